@@ -1,5 +1,6 @@
 package info.ata4.bspsrc.app.info;
 
+import info.ata4.bspsrc.app.info.cli.BspInfoCli;
 import info.ata4.bspsrc.app.info.gui.BspInfoFrame;
 import info.ata4.bspsrc.app.info.gui.models.BspInfoModel;
 import info.ata4.bspsrc.app.util.log.Log4jUtil;
@@ -15,6 +16,11 @@ public class BspInfo {
 	 * @param args the command line arguments
 	 */
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			BspInfoCli.main(args);
+			return;
+		}
+
 		Log4jUtil.configure(requireNonNull(BspInfo.class.getResource("log4j2.xml")));
 		GuiUtil.setupFlatlaf();
 
@@ -0,0 +1,41 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.app.info.cli;
+
+import info.ata4.bspsrc.app.util.log.Log4jUtil;
+import picocli.CommandLine;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Headless entry point of BSPInfo. Logs to stderr, so the standard output
+ * only contains the results.
+ */
+public class BspInfoCli {
+
+	/**
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		// never open a window, even if something loads AWT by accident
+		System.setProperty("java.awt.headless", "true");
+
+		Log4jUtil.configure(requireNonNull(BspInfoCli.class.getResource("log4j2.properties")));
+
+		var cmdLine = new CommandLine(new BspInfoCliCommand());
+		cmdLine.setColorScheme(CommandLine.Help.defaultColorScheme(CommandLine.Help.Ansi.AUTO));
+
+		if (args.length == 0)
+			cmdLine.usage(cmdLine.getOut());
+		else
+			System.exit(cmdLine.execute(args));
+	}
+}
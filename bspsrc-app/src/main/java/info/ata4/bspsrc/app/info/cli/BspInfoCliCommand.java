@@ -0,0 +1,28 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.app.info.cli;
+
+import info.ata4.bspsrc.decompiler.BspSource;
+
+import static picocli.CommandLine.*;
+
+@Command(
+		name = "bspinfo",
+		version = "BSPInfo " + BspSource.VERSION,
+		description = "Shows information about BSP files. Starts the GUI if no arguments are given.",
+		subcommands = {
+				InspectCommand.class,
+				HelpCommand.class
+		},
+		mixinStandardHelpOptions = true
+)
+public class BspInfoCliCommand {
+}
@@ -0,0 +1,335 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.app.info.cli;
+
+import info.ata4.bspsrc.app.info.gui.data.EmbeddedInfo;
+import info.ata4.bspsrc.app.info.gui.data.GameLumpInfo;
+import info.ata4.bspsrc.app.info.gui.data.LumpInfo;
+import info.ata4.bspsrc.app.info.gui.models.BspInfoModel;
+import info.ata4.bspsrc.decompiler.modules.BspCompileParams;
+import info.ata4.bspsrc.decompiler.modules.BspDependencies;
+import info.ata4.bspsrc.decompiler.modules.BspProtection;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.app.SourceAppDB;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.foreign.Arena;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static picocli.CommandLine.*;
+
+/**
+ * Inspects BSP files without the GUI and writes one JSON object per file and
+ * line, containing everything the {@link BspInfoModel} provides.
+ *
+ * Files are inspected in parallel, but only a few of them are in flight at any
+ * time and each result is written as soon as it's complete, so the memory use
+ * doesn't depend on the amount of files. Each file is mapped within its own
+ * arena, which is closed right after its line has been built.
+ */
+@Command(
+		name = "inspect",
+		description = "Writes information about BSP files as JSON lines, one line per file.",
+		parameterListHeading = "%nParameters:%n",
+		optionListHeading = "%nOptions:%n",
+		abbreviateSynopsis = true,
+		mixinStandardHelpOptions = true,
+		sortOptions = false,
+		showDefaultValues = true
+)
+public class InspectCommand implements Callable<Integer> {
+
+	private static final Logger L = LogManager.getLogger();
+
+	// amount of inspected files between progress messages
+	private static final int PROGRESS_INTERVAL = 1000;
+
+	@Spec
+	private Model.CommandSpec spec;
+
+	@Option(names = { "-r", "--recursive" }, description = "Recursively inspect files found in subdirectories.")
+	private boolean recursive;
+	@Option(names = { "-o", "--output" }, description = "Write the JSON lines to this file instead of the standard output.", paramLabel = "<path>")
+	private Path outputPath;
+	@Option(names = { "-t", "--threads" }, description = "Amount of files to inspect in parallel.", paramLabel = "<count>")
+	private int threads = Runtime.getRuntime().availableProcessors();
+	@Parameters(description = "One or more bsp files or folders.", arity = "1..*")
+	private List<Path> paths;
+
+	private final AtomicLong filesDone = new AtomicLong();
+	private final AtomicLong filesFailed = new AtomicLong();
+	private final AtomicLong bytesDone = new AtomicLong();
+
+	@Override
+	public Integer call() throws IOException, InterruptedException {
+		if (threads < 1) {
+			throw new ParameterException(spec.commandLine(), "Thread count must be at least 1");
+		}
+
+		long startTime = System.nanoTime();
+
+		if (outputPath == null) {
+			// flush only, closing the writer would close the standard output
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+			try {
+				inspectAll(out);
+			} finally {
+				out.flush();
+			}
+		} else {
+			try (Writer out = Files.newBufferedWriter(outputPath, UTF_8)) {
+				inspectAll(out);
+			}
+		}
+
+		double seconds = Math.max(System.nanoTime() - startTime, 1) / 1e9;
+		L.info("Inspected {} files ({} failed) in {} s: {} files/s, {} MB/s",
+				filesDone.get(),
+				filesFailed.get(),
+				String.format("%.1f", seconds),
+				String.format("%.1f", filesDone.get() / seconds),
+				String.format("%.1f", bytesDone.get() / seconds / (1 << 20)));
+
+		return filesFailed.get() == 0 ? 0 : 1;
+	}
+
+	private void inspectAll(Writer out) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		// limits the queued files, so the directory walk doesn't run ahead
+		var slots = new Semaphore(2 * threads);
+
+		try {
+			for (Path path : paths) {
+				if (Files.isDirectory(path)) {
+					inspectDirectory(path, out, executor, slots);
+				} else {
+					submit(path, out, executor, slots);
+				}
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void inspectDirectory(Path path, Writer out, ExecutorService executor, Semaphore slots)
+			throws IOException, InterruptedException {
+		PathMatcher bspPathMatcher = path.getFileSystem().getPathMatcher("glob:**.bsp");
+
+		// unreadable entries are reported like files that failed to load,
+		// instead of aborting the whole walk
+		Files.walkFileTree(path, Set.of(), recursive ? Integer.MAX_VALUE : 1, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (!Files.isRegularFile(file) || !bspPathMatcher.matches(file)) {
+					return FileVisitResult.CONTINUE;
+				}
+
+				try {
+					submit(file, out, executor, slots);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return FileVisitResult.TERMINATE;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException ex) {
+				writeFailure(out, file, ex);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException ex) {
+				if (ex != null) {
+					writeFailure(out, dir, ex);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+	private void submit(Path bspPath, Writer out, ExecutorService executor, Semaphore slots)
+			throws InterruptedException {
+		slots.acquire();
+		executor.execute(() -> {
+			try {
+				write(out, inspect(bspPath));
+			} finally {
+				slots.release();
+			}
+		});
+	}
+
+	private String inspect(Path bspPath) {
+		long startTime = System.nanoTime();
+		JsonLineBuilder json;
+
+		try (Arena arena = Arena.ofShared()) {
+			long size = Files.size(bspPath);
+
+			var model = new BspInfoModel();
+			model.load(bspPath, arena);
+
+			json = new JsonLineBuilder()
+					.beginObject()
+					.name("path").value(bspPath.toString())
+					.name("size").value(size);
+			writeModel(json, model);
+			bytesDone.addAndGet(size);
+		} catch (Exception ex) {
+			// start over, the failed line may be incomplete
+			json = failure(bspPath, ex);
+		}
+
+		json.name("millis").value(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		countDone();
+
+		return json.endObject().toString();
+	}
+
+	private void writeFailure(Writer out, Path path, IOException ex) {
+		String line = failure(path, ex).endObject().toString();
+		countDone();
+		write(out, line);
+	}
+
+	private JsonLineBuilder failure(Path path, Exception ex) {
+		L.warn("'{}' - Failed: {}", path, ex.toString());
+		filesFailed.incrementAndGet();
+
+		return new JsonLineBuilder()
+				.beginObject()
+				.name("path").value(path.toString())
+				.name("error").value(ex.toString());
+	}
+
+	private void countDone() {
+		long done = filesDone.incrementAndGet();
+		if (done % PROGRESS_INTERVAL == 0) {
+			L.info("Inspected {} files", done);
+		}
+	}
+
+	private static void writeModel(JsonLineBuilder json, BspInfoModel model) {
+		BspFile bspFile = model.getBspFile().orElseThrow();
+
+		String comment = model.getBspData()
+				.flatMap(bspData -> bspData.entities.stream().findFirst())
+				.map(entity -> entity.getValue("comment"))
+				.orElse(null);
+
+		json.name("name").value(bspFile.getName())
+				.name("version").value(bspFile.getVersion())
+				.name("revision").value(bspFile.getRevision())
+				.name("appId").value(bspFile.getAppId())
+				.name("game").value(SourceAppDB.getInstance().getName(bspFile.getAppId()).orElse(null))
+				.name("compressed").value(bspFile.hasCompressedLumps())
+				.name("comment").value(comment)
+				.name("fileCrc").value(model.getFileCrc().map(Long::toHexString).orElse(null))
+				.name("mapCrc").value(model.getMapCrc().map(Long::toHexString).orElse(null));
+
+		BspCompileParams cparams = model.getCparams().orElseThrow();
+		json.name("compileParams").beginObject()
+				.name("vbsp").values(cparams.getVbspParams())
+				.name("vvis").values(cparams.getVvisParams())
+				.name("vrad").values(cparams.getVradParams())
+				.name("vvisRun").value(cparams.isVvisRun())
+				.name("vradRun").value(cparams.isVradRun())
+				.endObject();
+
+		BspProtection prot = model.getProt().orElseThrow();
+		json.name("protection").beginObject()
+				.name("entityFlag").value(prot.hasEntityFlag())
+				.name("textureFlag").value(prot.hasTextureFlag())
+				.name("brushFlag").value(prot.hasBrushFlag())
+				.name("encryptedEntities").value(prot.hasEncryptedEntities())
+				.name("obfuscatedEntities").value(prot.hasObfuscatedEntities())
+				.name("modifiedTexinfo").value(prot.hasModifiedTexinfo())
+				.endObject();
+
+		BspDependencies bspres = model.getBspres().orElseThrow();
+		json.name("dependencies").beginObject()
+				.name("materials").values(bspres.getMaterials())
+				.name("sounds").values(bspres.getSoundFiles())
+				.name("soundScripts").values(bspres.getSoundScripts())
+				.name("soundscapes").values(bspres.getSoundscapes())
+				.name("models").values(bspres.getModels())
+				.name("particles").values(bspres.getParticles())
+				.endObject();
+
+		json.name("lumps").beginArray();
+		for (LumpInfo lump : model.getLumps()) {
+			json.beginObject()
+					.name("index").value(lump.id())
+					.name("name").value(lump.name())
+					.name("size").value(lump.size())
+					.name("version").value(lump.version())
+					.endObject();
+		}
+		json.endArray();
+
+		json.name("gameLumps").beginArray();
+		for (GameLumpInfo lump : model.getGameLumps()) {
+			json.beginObject()
+					.name("name").value(lump.name())
+					.name("size").value(lump.size())
+					.name("version").value(lump.version())
+					.endObject();
+		}
+		json.endArray();
+
+		json.name("embeddedFiles").beginArray();
+		for (EmbeddedInfo file : model.getEmbeddedInfos()) {
+			json.beginObject()
+					.name("name").value(file.name())
+					.name("size").value(file.size())
+					.endObject();
+		}
+		json.endArray();
+	}
+
+	private static void write(Writer out, String line) {
+		try {
+			synchronized (out) {
+				out.write(line);
+				out.write('\n');
+			}
+		} catch (IOException ex) {
+			L.error("Couldn't write result", ex);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.app.info.cli;
+
+import java.util.Collection;
+
+/**
+ * Minimal builder for a single line of JSON. Names and values are appended
+ * in order, commas are inserted automatically and strings are escaped, so no
+ * line breaks end up in the output.
+ */
+class JsonLineBuilder {
+
+	private final StringBuilder sb = new StringBuilder(1024);
+
+	// true if the next element needs a leading comma
+	private boolean comma;
+
+	public JsonLineBuilder beginObject() {
+		separate();
+		sb.append('{');
+		comma = false;
+		return this;
+	}
+
+	public JsonLineBuilder endObject() {
+		sb.append('}');
+		comma = true;
+		return this;
+	}
+
+	public JsonLineBuilder beginArray() {
+		separate();
+		sb.append('[');
+		comma = false;
+		return this;
+	}
+
+	public JsonLineBuilder endArray() {
+		sb.append(']');
+		comma = true;
+		return this;
+	}
+
+	public JsonLineBuilder name(String name) {
+		separate();
+		string(name);
+		sb.append(':');
+		comma = false;
+		return this;
+	}
+
+	public JsonLineBuilder value(String value) {
+		separate();
+		if (value == null) {
+			sb.append("null");
+		} else {
+			string(value);
+		}
+		comma = true;
+		return this;
+	}
+
+	public JsonLineBuilder value(long value) {
+		separate();
+		sb.append(value);
+		comma = true;
+		return this;
+	}
+
+	public JsonLineBuilder value(boolean value) {
+		separate();
+		sb.append(value);
+		comma = true;
+		return this;
+	}
+
+	public JsonLineBuilder values(Collection<String> values) {
+		beginArray();
+		values.forEach(this::value);
+		return endArray();
+	}
+
+	private void separate() {
+		if (comma) {
+			sb.append(',');
+		}
+	}
+
+	private void string(String s) {
+		sb.append('"');
+
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"' -> sb.append("\\\"");
+				case '\\' -> sb.append("\\\\");
+				case '\n' -> sb.append("\\n");
+				case '\r' -> sb.append("\\r");
+				case '\t' -> sb.append("\\t");
+				default -> {
+					if (Character.isHighSurrogate(c) && i + 1 < s.length()
+							&& Character.isLowSurrogate(s.charAt(i + 1))) {
+						// characters outside the BMP are kept as they are
+						sb.append(c).append(s.charAt(++i));
+					} else if (c < 0x20 || c == 0x7f || Character.isSurrogate(c)) {
+						// unpaired surrogates can't be encoded as UTF-8
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+				}
+			}
+		}
+
+		sb.append('"');
+	}
+
+	@Override
+	public String toString() {
+		return sb.toString();
+	}
+}
@@ -4,6 +4,8 @@ import info.ata4.bspsrc.app.info.BspFileUtils;
 import info.ata4.bspsrc.app.info.gui.data.EmbeddedInfo;
 import info.ata4.bspsrc.app.info.gui.data.GameLumpInfo;
 import info.ata4.bspsrc.app.info.gui.data.LumpInfo;
+import info.ata4.bspsrc.decompiler.modules.BspAnalysis;
+import info.ata4.bspsrc.decompiler.modules.BspAnalyzer;
 import info.ata4.bspsrc.decompiler.modules.BspChecksum;
 import info.ata4.bspsrc.decompiler.modules.BspCompileParams;
 import info.ata4.bspsrc.decompiler.modules.BspDependencies;
@@ -14,21 +16,19 @@ import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFile;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.io.LazyDStructList;
 import info.ata4.bspsrc.lib.lump.AbstractLump;
 import info.ata4.bspsrc.lib.struct.BspData;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.nio.file.Path;
 import java.util.*;
 
 public class BspInfoModel {
 
-	private static final Logger L = LogManager.getLogger();
-
 	private final List<Runnable> listeners = new ArrayList<>();
 
 	private BspFile bspFile;
@@ -48,6 +48,26 @@ public class BspInfoModel {
 		bspFile = new BspFile();
 		bspFile.load(filePath);
 
+		analyze();
+	}
+
+	/**
+	 * Same as {@link #load(Path)}, but maps the file within the given arena.
+	 * The lump, game lump and embedded file lists, the checksums, the compile
+	 * parameters and the protection flags stay available after the arena has
+	 * been closed. Everything that still reads from the mapped file must not be
+	 * used anymore by then: the lumps of {@link #getBspFile()}, the lazily
+	 * loaded structs of {@link #getBspData()} and the materials and models of
+	 * {@link #getBspres()}, which are only collected on access.
+	 */
+	public void load(Path filePath, Arena arena) throws BspException, IOException {
+		bspFile = new BspFile();
+		bspFile.load(filePath, arena);
+
+		analyze();
+	}
+
+	private void analyze() throws IOException {
 		int lumpSizeSum = bspFile.getLumps().stream()
 				.mapToInt(AbstractLump::getLength)
 				.sum();
@@ -76,6 +96,8 @@ public class BspInfoModel {
 				.toList();
 
 		var bspReader = new BspFileReader(bspFile);
+		// the checks below only look at parts of most lumps
+		bspReader.setLazyStructs(true, LazyDStructList.CACHE_ALL);
 		bspReader.loadEntities();
 
 		var windingFactory = WindingFactory.forAppId(bspFile.getAppId());
@@ -86,28 +108,44 @@ public class BspInfoModel {
 
 		var texsrc = new TextureSource(bspReader);
 		prot = new BspProtection(bspReader, brushBounds, texsrc);
-		prot.check();
 
 		bspres = new BspDependencies(bspReader);
 
+		var files = new ArrayList<EmbeddedInfo>();
+
+		// run all checks with a single pass over the entities, brushes and pakfile
+		new BspAnalyzer(bspReader)
+				.add(cparams)
+				.add(prot)
+				.add(bspres)
+				.add(new BspAnalysis() {
+					@Override
+					public Set<Source> getSources() {
+						return EnumSet.of(Source.PAKFILE);
+					}
+
+					@Override
+					public void visitPakEntry(ZipArchiveEntry ze) {
+						files.add(new EmbeddedInfo(ze.getName(), ze.getSize()));
+					}
+
+					@Override
+					public void finish(boolean pakfileRead) {
+						// don't list a part of the files, BspAnalyzer already
+						// logged why the pakfile couldn't be read
+						if (!pakfileRead) {
+							files.clear();
+						}
+					}
+				})
+				.run();
+
+		embeddedInfos = files;
+
 		var checksum = new BspChecksum(bspReader);
 		fileCrc = checksum.getFileCRC();
 		mapCrc = checksum.getMapCRC();
 
-		try (ZipFile zip = bspFile.getPakFile().getZipFile()) {
-			var files = new ArrayList<EmbeddedInfo>();
-
-			Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
-			while (enumeration.hasMoreElements()) {
-				ZipArchiveEntry ze = enumeration.nextElement();
-				files.add(new EmbeddedInfo(ze.getName(), ze.getSize()));
-			}
-
-			embeddedInfos = files;
-		} catch (IOException ex) {
-			L.warn("Can't read pak");
-		}
-
 		listeners.forEach(Runnable::run);
 	}
 
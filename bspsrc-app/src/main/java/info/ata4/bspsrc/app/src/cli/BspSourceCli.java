@@ -26,7 +26,10 @@ public class BspSourceCli {
      * @param args the command line arguments
      */
     public static void main(String[] args) {
-        Log4jUtil.configure(requireNonNull(BspSourceCli.class.getResource("log4j2.xml")));
+        // never open a window, even if something loads AWT by accident
+        System.setProperty("java.awt.headless", "true");
+
+        Log4jUtil.configure(requireNonNull(BspSourceCli.class.getResource("log4j2.properties")));
 
         var cmdLine = new CommandLine(new BspSourceCliCommand());
         cmdLine.setColorScheme(CommandLine.Help.defaultColorScheme(CommandLine.Help.Ansi.AUTO));
@@ -136,6 +136,8 @@ public class BspSourceCliCommand implements Callable<Void> {
 	private static class MiscellaneousOptions {
 		@Option(names = "--no_vmf", description = "Don't write any VMF files, read BSP only.")
 		private boolean noVmf;
+		@Option(names = "--gzip", description = "Write gzip compressed VMF files with an additional .gz extension.")
+		private boolean compressOutput;
 		@Option(names = "--no_lumpfiles", description = "Don't load lump files (.lmp) associated with the BSP file.")
 		private boolean noLumpFiles;
 		@Option(names = "--no_prot", description = "Skip decompiling protection checking. Can increase speed when mass-decompiling unprotected maps.")
@@ -163,6 +165,10 @@ public class BspSourceCliCommand implements Callable<Void> {
 				"Smart extracting automatically skips all files generated by vbsp, that are only relevant to running the map in the engine."
 		})
 		private boolean noSmartUnpack;
+		@Option(names = "--columnar", description = "Store vertices, planes, edges and index lumps in primitive arrays. Reduces memory usage on large maps.")
+		private boolean columnarGeometry;
+		@Option(names = "--parallel", description = "Build brushes and displacements of each map on multiple threads. The output is identical to the single threaded one.")
+		private boolean parallelDecompile;
 	}
 
 	@Override
@@ -248,6 +254,7 @@ public class BspSourceCliCommand implements Callable<Void> {
 
 		// miscellaneous options
 		config.nullOutput = miscellaneousOptions.noVmf;
+		config.compressOutput = miscellaneousOptions.compressOutput;
 		config.loadLumpFiles = !miscellaneousOptions.noLumpFiles;
 		config.skipProt = miscellaneousOptions.noProt;
 		config.writeVisgroups = !miscellaneousOptions.noVisGroups;
@@ -256,6 +263,8 @@ public class BspSourceCliCommand implements Callable<Void> {
 		config.sourceFormat = miscellaneousOptions.sourceFormat;
 		config.unpackEmbedded = miscellaneousOptions.unpackEmbedded;
 		config.smartUnpack = !miscellaneousOptions.noSmartUnpack;
+		config.columnarGeometry = miscellaneousOptions.columnarGeometry;
+		config.parallelDecompile = miscellaneousOptions.parallelDecompile;
 
 		return config;
 	}
@@ -6,7 +6,6 @@ import info.ata4.bspsrc.decompiler.BspSource;
 import info.ata4.io.util.PathUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.Filter;
 import org.apache.logging.log4j.core.LoggerContext;
@@ -32,14 +31,20 @@ import static info.ata4.bspsrc.common.util.JavaUtil.zip;
  * Utility class to configure Log4j2 logging
  */
 public class Log4jUtil {
-	private static final Logger L = LogManager.getLogger();
 
-	public static final PatternLayout FILE_PATTERN = PatternLayout.newBuilder()
-			.withPattern("%d{HH:mm:ss.SSS} %-5level %msg%n")
-			.build();
-	public static final PatternLayout UI_PATTERN = PatternLayout.newBuilder()
-			.withPattern("[%level{WARN=warning, DEBUG=debug, ERROR=error, TRACE=trace, INFO=info}] %msg%n")
-			.build();
+	// no loggers or layouts are created here, so Log4j isn't initialized
+	// with its default configuration before configure() is called
+	private static PatternLayout filePattern() {
+		return PatternLayout.newBuilder()
+				.withPattern("%d{HH:mm:ss.SSS} %-5level %msg%n")
+				.build();
+	}
+
+	private static PatternLayout uiPattern() {
+		return PatternLayout.newBuilder()
+				.withPattern("[%level{WARN=warning, DEBUG=debug, ERROR=error, TRACE=trace, INFO=info}] %msg%n")
+				.build();
+	}
 
 	public static void configure(URL configUrl) {
 		try {
@@ -82,6 +87,7 @@ public class Log4jUtil {
 	) {
 		LoggerContext context = LoggerContext.getContext(false);
 		Configuration config = context.getConfiguration();
+		PatternLayout layout = filePattern();
 
 		var appenders = StreamSupport.stream(zip(entryUuids, entries).spliterator(), false)
 				.map(entry -> Map.entry(entry.getKey(), PathUtils.setExtension(entry.getValue().getVmfFile(), "log")))
@@ -95,7 +101,7 @@ public class Log4jUtil {
 								Filter.Result.ACCEPT,
 								Filter.Result.DENY
 						))
-						.setLayout(FILE_PATTERN)
+						.setLayout(layout)
 						.withAppend(false)
 						.withFileName(entry.getValue().toString())
 						.setConfiguration(config)
@@ -111,6 +117,7 @@ public class Log4jUtil {
 	) {
 		LoggerContext context = LoggerContext.getContext(false);
 		Configuration config = context.getConfiguration();
+		PatternLayout layout = uiPattern();
 
 		var appenders = StreamSupport.stream(zip(entryUuids, taskLogs).spliterator(), false)
 				.map(entry -> DocumentAppender.newBuilder()
@@ -124,7 +131,7 @@ public class Log4jUtil {
 								Filter.Result.ACCEPT,
 								Filter.Result.DENY
 						))
-						.setLayout(UI_PATTERN)
+						.setLayout(layout)
 						.setConfiguration(config)
 						.build())
 				.collect(Collectors.toSet());
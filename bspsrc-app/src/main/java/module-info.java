@@ -15,6 +15,7 @@ module info.ata4.bspsrc.app {
     requires com.github.weisj.jsvg; // needed for flatlaf.extras to work
     requires com.miglayout.swing;
 
+    opens info.ata4.bspsrc.app.info.cli;
     opens info.ata4.bspsrc.app.src.cli;
     opens info.ata4.bspsrc.app.util.log.plugins to org.apache.logging.log4j.core;
     opens info.ata4.bspsrc.app.util.swing.ui;
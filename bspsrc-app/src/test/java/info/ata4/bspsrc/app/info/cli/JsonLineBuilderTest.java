@@ -0,0 +1,76 @@
+package info.ata4.bspsrc.app.info.cli;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonLineBuilder Test")
+class JsonLineBuilderTest {
+
+	private static String string(String value) {
+		return new JsonLineBuilder().value(value).toString();
+	}
+
+	@Test
+	@DisplayName("Separates names and values with commas")
+	void structure() {
+		String json = new JsonLineBuilder()
+				.beginObject()
+				.name("a").value(1)
+				.name("b").value(true)
+				.name("c").value((String) null)
+				.name("d").values(List.of("x", "y"))
+				.name("e").beginArray().beginObject().endObject().beginObject().endObject().endArray()
+				.endObject()
+				.toString();
+
+		assertEquals("{\"a\":1,\"b\":true,\"c\":null,\"d\":[\"x\",\"y\"],\"e\":[{},{}]}", json);
+	}
+
+	@Test
+	@DisplayName("Escapes quotes and backslashes")
+	void quotesAndBackslashes() {
+		assertEquals("\"say \\\"hi\\\"\"", string("say \"hi\""));
+		assertEquals("\"maps\\\\cp_test.bsp\"", string("maps\\cp_test.bsp"));
+		assertEquals("\"\\\\\\\"\"", string("\\\""));
+	}
+
+	@Test
+	@DisplayName("Escapes control characters")
+	void controlCharacters() {
+		assertEquals("\"a\\nb\\rc\\td\"", string("a\nb\rc\td"));
+		assertEquals("\"\\u0000\\u0001\\u001f\\u007f\"", string("\u0000\u0001\u001f\u007f"));
+		assertEquals("\" ~\"", string(" ~"));
+	}
+
+	@Test
+	@DisplayName("Keeps characters outside the BMP")
+	void nonBmpCharacters() {
+		String emoji = new String(Character.toChars(0x1f600));
+
+		assertEquals("\"" + emoji + "\"", string(emoji));
+		assertEquals("\"a" + emoji + "b" + emoji + "\"", string("a" + emoji + "b" + emoji));
+		assertEquals("\"ä€\"", string("ä€"));
+	}
+
+	@Test
+	@DisplayName("Escapes unpaired surrogates")
+	void unpairedSurrogates() {
+		assertEquals("\"\\ud83d\"", string("\ud83d"));
+		assertEquals("\"\\ude00a\"", string("\ude00a"));
+		assertEquals("\"\\ude00\\ud83d\"", string("\ude00\ud83d"));
+	}
+
+	@Test
+	@DisplayName("Names are escaped like values")
+	void names() {
+		assertEquals("{\"a\\\"b\":\"\\n\"}", new JsonLineBuilder()
+				.beginObject()
+				.name("a\"b").value("\n")
+				.endObject()
+				.toString());
+	}
+}
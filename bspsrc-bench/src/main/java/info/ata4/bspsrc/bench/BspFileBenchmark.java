@@ -0,0 +1,41 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.bench;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link BspFile#load(java.nio.file.Path, boolean)} with and without
+ * memory-mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BspFileBenchmark {
+
+    @Param({"true", "false"})
+    public boolean memMapping;
+
+    @Benchmark
+    public BspFile load(BspFixture fixture) throws IOException, BspException {
+        BspFile bspFile = new BspFile();
+        bspFile.load(fixture.file, memMapping);
+        return bspFile;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.bench;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.struct.BspData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures the individual {@code BspFileReader.loadXxx} methods. A new reader
+ * is created for each invocation, since the loaded lumps are cached in its
+ * {@link BspData}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BspFileReaderBenchmark {
+
+    @Param({
+        "entities", "vertices", "edges", "faces", "originalFaces", "models",
+        "surfaceEdges", "occluders", "texInfo", "texData", "staticProps",
+        "cubemaps", "planes", "brushes", "brushSides", "areaportals",
+        "clipPortalVertices", "dispInfos", "dispVertices", "dispTriangleTags",
+        "dispMultiBlend", "nodes", "leaves", "leafFaces", "leafBrushes",
+        "overlays", "flags", "all"
+    })
+    public String lump;
+
+    private BspFile bspFile;
+    private Consumer<BspFileReader> loader;
+
+    @Setup(Level.Trial)
+    public void setup(BspFixture fixture) throws IOException, BspException {
+        bspFile = fixture.load();
+        loader = switch (lump) {
+            case "entities" -> BspFileReader::loadEntities;
+            case "vertices" -> BspFileReader::loadVertices;
+            case "edges" -> BspFileReader::loadEdges;
+            case "faces" -> BspFileReader::loadFaces;
+            case "originalFaces" -> BspFileReader::loadOriginalFaces;
+            case "models" -> BspFileReader::loadModels;
+            case "surfaceEdges" -> BspFileReader::loadSurfaceEdges;
+            case "occluders" -> BspFileReader::loadOccluders;
+            case "texInfo" -> BspFileReader::loadTexInfo;
+            case "texData" -> BspFileReader::loadTexData;
+            case "staticProps" -> BspFileReader::loadStaticProps;
+            case "cubemaps" -> BspFileReader::loadCubemaps;
+            case "planes" -> BspFileReader::loadPlanes;
+            case "brushes" -> BspFileReader::loadBrushes;
+            case "brushSides" -> BspFileReader::loadBrushSides;
+            case "areaportals" -> BspFileReader::loadAreaportals;
+            case "clipPortalVertices" -> BspFileReader::loadClipPortalVertices;
+            case "dispInfos" -> BspFileReader::loadDispInfos;
+            case "dispVertices" -> BspFileReader::loadDispVertices;
+            case "dispTriangleTags" -> BspFileReader::loadDispTriangleTags;
+            case "dispMultiBlend" -> BspFileReader::loadDispMultiBlend;
+            case "nodes" -> BspFileReader::loadNodes;
+            case "leaves" -> BspFileReader::loadLeaves;
+            case "leafFaces" -> BspFileReader::loadLeafFaces;
+            case "leafBrushes" -> BspFileReader::loadLeafBrushes;
+            case "overlays" -> BspFileReader::loadOverlays;
+            case "flags" -> BspFileReader::loadFlags;
+            case "all" -> BspFileReader::loadAll;
+            default -> throw new IllegalArgumentException("Unknown lump: " + lump);
+        };
+    }
+
+    @Benchmark
+    public BspData load() {
+        BspFileReader reader = new BspFileReader(bspFile);
+        loader.accept(reader);
+        return reader.getData();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.bench;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Benchmark state holding a synthetic map of the given grid size, written to
+ * a temporary file once per trial.
+ */
+@State(Scope.Benchmark)
+public class BspFixture {
+
+    /**
+     * Number of box brushes per grid axis, the map contains the square of it.
+     */
+    @Param({"16", "48", "90"})
+    public int gridSize;
+
+    public Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("bspsrc-bench-" + gridSize + "-", ".bsp");
+        SyntheticBsp.write(file, gridSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // still memory-mapped on some platforms
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Loads the fixture map.
+     *
+     * @return loaded BSP file
+     */
+    public BspFile load() throws IOException, BspException {
+        BspFile bspFile = new BspFile();
+        bspFile.load(file);
+        return bspFile;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.bench;
+
+import info.ata4.bspsrc.decompiler.BspSourceConfig;
+import info.ata4.bspsrc.decompiler.VmfWriter;
+import info.ata4.bspsrc.decompiler.modules.BspDecompiler;
+import info.ata4.bspsrc.decompiler.modules.geom.BrushSideFaceMapper;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the geometry modules and the complete decompilation of a map into
+ * a {@link VmfWriter} that discards its output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecompilerBenchmark {
+
+    private BspFile bspFile;
+    private BspFileReader reader;
+    private BspSourceConfig config;
+
+    @Setup(Level.Trial)
+    public void setup(BspFixture fixture) throws IOException, BspException {
+        bspFile = fixture.load();
+        reader = new BspFileReader(bspFile);
+        reader.loadAll();
+
+        config = new BspSourceConfig();
+        config.nullOutput = true;
+    }
+
+    /**
+     * Builds the windings of all brush sides with an empty cache.
+     */
+    @Benchmark
+    public void windingFromSide(Blackhole bh) {
+        BspData bsp = reader.getData();
+        WindingFactory windingFactory = WindingFactory.forAppId(bspFile.getAppId());
+
+        for (DBrush brush : bsp.brushes) {
+            for (int i = 0; i < brush.numside; i++) {
+                bh.consume(windingFactory.fromSide(bsp, brush, i));
+            }
+        }
+    }
+
+    @Benchmark
+    public BrushSideFaceMapper brushSideFaceMapper() {
+        WindingFactory windingFactory = WindingFactory.forAppId(bspFile.getAppId());
+        BrushSideFaceMapper mapper = new BrushSideFaceMapper(reader, windingFactory);
+        mapper.load();
+        return mapper;
+    }
+
+    @Benchmark
+    public void decompile(FreshReader fresh) {
+        var config = new BspSourceConfig(this.config);
+        config.parallelDecompile = fresh.parallel;
+
+        try (VmfWriter writer = new VmfWriter(
+                Channels.newChannel(OutputStream.nullOutputStream()),
+                config.vmfDoubleScale,
+                config.vmfDoubleScaleTextureAxes,
+                config.vmfDoubleScaleTextureScale
+        )) {
+            new BspDecompiler(fresh.reader, writer, config).start();
+        }
+    }
+
+    /**
+     * Provides a freshly loaded reader for each invocation, since decompiling
+     * may modify the BSP data.
+     */
+    @State(Scope.Thread)
+    public static class FreshReader {
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        private BspFileReader reader;
+
+        @Setup(Level.Invocation)
+        public void setup(DecompilerBenchmark benchmark) {
+            reader = new BspFileReader(benchmark.bspFile);
+            reader.loadAll();
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.bench;
+
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.struct.*;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import info.ata4.io.DataWriter;
+import info.ata4.io.DataWriters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Generates synthetic version 20 BSP files for benchmarking.
+ *
+ * The map is a flat grid of axis-aligned box brushes, each with six sides,
+ * one face and one original face per side and a leaf of its own in a balanced
+ * BSP tree. Every third brush is a detail brush and every fourth brush gets
+ * an info_target entity, so that the detail and entity paths of the
+ * decompiler see some work, too.
+ */
+public class SyntheticBsp {
+
+    // edge vertex indices are unsigned shorts, with eight vertices per brush
+    public static final int MAX_GRID_SIZE = 90;
+
+    private static final int VERSION = 20;
+    private static final float BOX_SIZE = 64;
+    private static final float BOX_SPACING = 96;
+
+    private static final String[] TEXNAMES = {
+        "DEV/DEV_MEASUREGENERIC01",
+        "TOOLS/TOOLSNODRAW"
+    };
+
+    private final int gridSize;
+
+    private final Map<String, Integer> planeIndex = new HashMap<>();
+    private final List<DPlane> planes = new ArrayList<>();
+    private final List<DVertex> verts = new ArrayList<>();
+    private final List<DEdge> edges = new ArrayList<>();
+    private final List<Integer> surfEdges = new ArrayList<>();
+    private final List<DFace> faces = new ArrayList<>();
+    private final List<DFace> origFaces = new ArrayList<>();
+    private final List<DBrush> brushes = new ArrayList<>();
+    private final List<DBrushSide> brushSides = new ArrayList<>();
+    private final List<DNode> nodes = new ArrayList<>();
+    private final List<DLeaf> leaves = new ArrayList<>();
+    private final List<Integer> leafFaces = new ArrayList<>();
+    private final List<Integer> leafBrushes = new ArrayList<>();
+    private final StringBuilder entities = new StringBuilder();
+
+    /**
+     * Writes a synthetic map with {@code gridSize * gridSize} box brushes.
+     *
+     * @param file destination file
+     * @param gridSize number of brushes per grid axis
+     * @throws IOException if the file couldn't be written
+     */
+    public static void write(Path file, int gridSize) throws IOException {
+        if (gridSize < 1 || gridSize > MAX_GRID_SIZE) {
+            throw new IllegalArgumentException("Invalid grid size: " + gridSize);
+        }
+
+        new SyntheticBsp(gridSize).build().save(file);
+    }
+
+    private SyntheticBsp(int gridSize) {
+        this.gridSize = gridSize;
+    }
+
+    private SyntheticBsp build() {
+        // edge 0 can't be referenced by surfedges, since -0 == 0
+        edges.add(edge(0, 0));
+
+        // leaf 0 is the solid leaf by convention
+        leaves.add(leaf(0, 0, 0, 0));
+
+        entities.append("{\n\"classname\" \"worldspawn\"\n\"mapversion\" \"1\"\n}\n");
+
+        int numBrushes = gridSize * gridSize;
+        for (int i = 0; i < numBrushes; i++) {
+            float x = (i % gridSize) * BOX_SPACING;
+            float y = (i / gridSize) * BOX_SPACING;
+            addBox(i, new Vector3f(x, y, 0), new Vector3f(x + BOX_SIZE, y + BOX_SIZE, BOX_SIZE));
+        }
+
+        addNode(0, numBrushes);
+
+        return this;
+    }
+
+    private void addBox(int index, Vector3f mins, Vector3f maxs) {
+        DBrush brush = new DBrush();
+        brush.fstside = brushSides.size();
+        brush.numside = 6;
+        brush.contents = EnumSet.of(BrushFlag.CONTENTS_SOLID);
+        if (index % 3 == 0) {
+            brush.contents.add(BrushFlag.CONTENTS_DETAIL);
+        }
+
+        int fstface = faces.size();
+        int fstvert = verts.size();
+
+        // box corners, bit n of the index selects maxs for axis n
+        for (int corner = 0; corner < 8; corner++) {
+            float[] p = new float[3];
+            for (int axis = 0; axis < 3; axis++) {
+                p[axis] = (corner & (1 << axis)) != 0 ? maxs.get(axis) : mins.get(axis);
+            }
+
+            DVertex vert = new DVertex();
+            vert.point = Vector3f.fromArray(p);
+            verts.add(vert);
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            for (int sign : new int[] {-1, 1}) {
+                float dist = sign > 0 ? maxs.get(axis) : -mins.get(axis);
+                int pnum = plane(axis, sign, dist);
+                int texinfo = axis == 2 && sign < 0 ? 3 : axis;
+
+                DBrushSide side = new DBrushSide();
+                side.pnum = pnum;
+                side.texinfo = texinfo;
+                side.dispinfo = -1;
+                brushSides.add(side);
+
+                addFace(axis, sign, pnum, texinfo, fstvert, mins, maxs);
+            }
+        }
+
+        brushes.add(brush);
+
+        leafBrushes.add(index);
+        for (int i = fstface; i < faces.size(); i++) {
+            leafFaces.add(i);
+        }
+        leaves.add(leaf(leafFaces.size() - 6, 6, leafBrushes.size() - 1, 1));
+
+        if (index % 4 == 0) {
+            Vector3f center = mins.add(maxs).scalar(0.5f);
+            entities.append(String.format(Locale.ROOT,
+                    "{\n\"classname\" \"info_target\"\n\"targetname\" \"target_%d\"\n\"origin\" \"%g %g %g\"\n}\n",
+                    index, center.x(), center.y(), maxs.z() + 16));
+        }
+    }
+
+    private void addFace(int axis, int sign, int pnum, int texinfo, int fstvert, Vector3f mins, Vector3f maxs) {
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+
+        // clockwise when looking at the front side
+        int[][] uv = sign > 0
+                ? new int[][] {{0, 0}, {0, 1}, {1, 1}, {1, 0}}
+                : new int[][] {{0, 0}, {1, 0}, {1, 1}, {0, 1}};
+
+        int[] corners = new int[4];
+        for (int i = 0; i < 4; i++) {
+            int corner = (sign > 0 ? 1 : 0) << axis;
+            corner |= uv[i][0] << u;
+            corner |= uv[i][1] << v;
+            corners[i] = fstvert + corner;
+        }
+
+        int fstedge = surfEdges.size();
+        for (int i = 0; i < 4; i++) {
+            surfEdges.add(edges.size());
+            edges.add(edge(corners[i], corners[(i + 1) % 4]));
+        }
+
+        DFace face = new DFace();
+        face.pnum = pnum;
+        face.fstedge = fstedge;
+        face.numedge = 4;
+        face.texinfo = texinfo;
+        face.dispInfo = -1;
+        face.lightofs = -1;
+        face.area = (maxs.get(u) - mins.get(u)) * (maxs.get(v) - mins.get(v));
+        face.origFace = origFaces.size();
+        faces.add(face);
+
+        DFace origFace = new DFace();
+        origFace.pnum = face.pnum;
+        origFace.fstedge = face.fstedge;
+        origFace.numedge = face.numedge;
+        origFace.texinfo = face.texinfo;
+        origFace.dispInfo = face.dispInfo;
+        origFace.lightofs = face.lightofs;
+        origFace.area = face.area;
+        origFace.origFace = -1;
+        origFaces.add(origFace);
+    }
+
+    /**
+     * Returns the index of the plane, adding it together with its flipped
+     * counterpart if it doesn't exist yet, like vbsp does.
+     */
+    private int plane(int axis, int sign, float dist) {
+        String key = axis + ":" + sign + ":" + dist;
+        Integer index = planeIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        float[] normal = new float[3];
+        normal[axis] = sign;
+
+        float[] flipped = new float[3];
+        flipped[axis] = -sign;
+
+        index = planes.size();
+        planes.add(plane(Vector3f.fromArray(normal), dist, axis));
+        planes.add(plane(Vector3f.fromArray(flipped), -dist, axis));
+
+        planeIndex.put(key, index);
+        planeIndex.put(axis + ":" + -sign + ":" + -dist, index + 1);
+
+        return index;
+    }
+
+    /**
+     * Recursively adds a balanced node tree over the leaves of the brushes
+     * {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @return node index or negative leaf reference
+     */
+    private int addNode(int from, int to) {
+        if (to - from == 1) {
+            // brush i is stored in leaf i + 1
+            return -1 - (from + 1);
+        }
+
+        int inode = nodes.size();
+        DNode node = new DNode();
+        node.planenum = 0;
+        node.mins = Vector3f.NULL;
+        node.maxs = Vector3f.NULL;
+        nodes.add(node);
+
+        int mid = (from + to) >>> 1;
+        node.children[0] = addNode(from, mid);
+        node.children[1] = addNode(mid, to);
+
+        return inode;
+    }
+
+    private void save(Path file) throws IOException {
+        List<DTexData> texdatas = new ArrayList<>();
+        List<Integer> stringTable = new ArrayList<>();
+        StringBuilder stringData = new StringBuilder();
+
+        for (String texname : TEXNAMES) {
+            DTexData texdata = new DTexData();
+            texdata.reflectivity = new Vector3f(0.5f, 0.5f, 0.5f);
+            texdata.texname = texdatas.size();
+            texdata.width = texdata.viewWidth = 512;
+            texdata.height = texdata.viewHeight = 512;
+            texdatas.add(texdata);
+
+            stringTable.add(stringData.length());
+            stringData.append(texname).append('\0');
+        }
+
+        // one texinfo per axis and a nodraw one for the bottom sides
+        List<DTexInfo> texinfos = new ArrayList<>();
+        for (int axis = 0; axis < 4; axis++) {
+            int a = axis % 3;
+            DTexInfo texinfo = new DTexInfo();
+            texinfo.textureVecsTexels[0][(a + 1) % 3] = 0.25f;
+            texinfo.textureVecsTexels[1][(a + 2) % 3] = -0.25f;
+            texinfo.lightmapVecsLuxels[0][(a + 1) % 3] = 0.0625f;
+            texinfo.lightmapVecsLuxels[1][(a + 2) % 3] = -0.0625f;
+            texinfo.flags = EnumSet.noneOf(SurfaceFlag.class);
+            texinfo.texdata = axis == 3 ? 1 : 0;
+            texinfos.add(texinfo);
+        }
+
+        DModel world = new DModel();
+        world.mins = new Vector3f(0, 0, 0);
+        world.maxs = new Vector3f(gridSize * BOX_SPACING, gridSize * BOX_SPACING, BOX_SIZE);
+        world.origin = Vector3f.NULL;
+        world.headnode = 0;
+        world.fstface = 0;
+        world.numface = faces.size();
+
+        Map<LumpType, ByteBuffer> lumps = new EnumMap<>(LumpType.class);
+        lumps.put(LumpType.LUMP_ENTITIES, string(entities.toString()));
+        lumps.put(LumpType.LUMP_PLANES, structs(planes));
+        lumps.put(LumpType.LUMP_TEXDATA, structs(texdatas));
+        lumps.put(LumpType.LUMP_VERTEXES, structs(verts));
+        lumps.put(LumpType.LUMP_NODES, structs(nodes));
+        lumps.put(LumpType.LUMP_TEXINFO, structs(texinfos));
+        lumps.put(LumpType.LUMP_FACES, structs(faces));
+        lumps.put(LumpType.LUMP_LEAFS, structs(leaves));
+        lumps.put(LumpType.LUMP_EDGES, structs(edges));
+        lumps.put(LumpType.LUMP_SURFEDGES, ints(surfEdges));
+        lumps.put(LumpType.LUMP_MODELS, structs(List.of(world)));
+        lumps.put(LumpType.LUMP_LEAFFACES, ushorts(leafFaces));
+        lumps.put(LumpType.LUMP_LEAFBRUSHES, ushorts(leafBrushes));
+        lumps.put(LumpType.LUMP_BRUSHES, structs(brushes));
+        lumps.put(LumpType.LUMP_BRUSHSIDES, structs(brushSides));
+        lumps.put(LumpType.LUMP_ORIGINALFACES, structs(origFaces));
+        lumps.put(LumpType.LUMP_GAME_LUMP, ints(List.of(0)));
+        lumps.put(LumpType.LUMP_PAKFILE, emptyZip());
+        lumps.put(LumpType.LUMP_TEXDATA_STRING_DATA, string(stringData.toString()));
+        lumps.put(LumpType.LUMP_TEXDATA_STRING_TABLE, ints(stringTable));
+
+        int size = BspFile.HEADER_SIZE;
+        for (ByteBuffer bb : lumps.values()) {
+            size += bb.remaining();
+        }
+
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(Integer.reverseBytes(BspFile.BSP_ID));
+        bb.putInt(VERSION);
+
+        int offset = BspFile.HEADER_SIZE;
+        for (int i = 0; i < BspFile.HEADER_LUMPS; i++) {
+            ByteBuffer lump = lumps.get(LumpType.get(i, VERSION));
+            int length = lump == null ? 0 : lump.remaining();
+
+            bb.putInt(length == 0 ? 0 : offset);
+            bb.putInt(length);
+            bb.putInt(i == LumpType.LUMP_LEAFS.getIndex() ? 1 : 0);
+            bb.putInt(0);
+
+            if (length > 0) {
+                bb.put(offset, lump, lump.position(), length);
+                offset += length;
+            }
+        }
+
+        // map revision
+        bb.putInt(1);
+        bb.clear();
+
+        try (FileChannel fc = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            while (bb.hasRemaining()) {
+                fc.write(bb);
+            }
+        }
+    }
+
+    private static DPlane plane(Vector3f normal, float dist, int type) {
+        DPlane plane = new DPlane();
+        plane.normal = normal;
+        plane.dist = dist;
+        plane.type = type;
+        return plane;
+    }
+
+    private static DEdge edge(int v0, int v1) {
+        DEdge edge = new DEdge();
+        edge.v[0] = v0;
+        edge.v[1] = v1;
+        return edge;
+    }
+
+    private static DLeaf leaf(int fstleafface, int numleafface, int fstleafbrush, int numleafbrush) {
+        DLeaf leaf = new DLeafV1();
+        leaf.contents = 0;
+        leaf.cluster = -1;
+        leaf.mins = Vector3f.NULL;
+        leaf.maxs = Vector3f.NULL;
+        leaf.fstleafface = fstleafface;
+        leaf.numleafface = numleafface;
+        leaf.fstleafbrush = fstleafbrush;
+        leaf.numleafbrush = numleafbrush;
+        leaf.leafWaterDataID = -1;
+        return leaf;
+    }
+
+    private static ByteBuffer structs(List<? extends DStruct> structs) throws IOException {
+        int size = structs.isEmpty() ? 0 : structs.size() * structs.get(0).getSize();
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        DataWriter out = DataWriters.forByteBuffer(bb);
+
+        for (DStruct struct : structs) {
+            struct.write(out);
+        }
+
+        return bb.flip();
+    }
+
+    private static ByteBuffer ints(List<Integer> values) {
+        ByteBuffer bb = ByteBuffer.allocate(values.size() * 4).order(ByteOrder.LITTLE_ENDIAN);
+        values.forEach(bb::putInt);
+        return bb.flip();
+    }
+
+    private static ByteBuffer ushorts(List<Integer> values) {
+        ByteBuffer bb = ByteBuffer.allocate(values.size() * 2).order(ByteOrder.LITTLE_ENDIAN);
+        values.forEach(value -> bb.putShort((short) (int) value));
+        return bb.flip();
+    }
+
+    private static ByteBuffer string(String s) {
+        return ByteBuffer.wrap((s + '\0').getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ByteBuffer emptyZip() {
+        // end of central directory record only
+        ByteBuffer bb = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0x06054b50);
+        return bb.clear();
+    }
+}
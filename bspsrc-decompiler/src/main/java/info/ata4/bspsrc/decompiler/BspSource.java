@@ -12,6 +12,7 @@ package info.ata4.bspsrc.decompiler;
 
 import info.ata4.bspsrc.decompiler.modules.BspDecompiler;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
+import info.ata4.bspsrc.decompiler.util.AsyncOutputChannel;
 import info.ata4.bspsrc.lib.BspFile;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.PakFile;
@@ -20,6 +21,7 @@ import info.ata4.bspsrc.lib.app.SourceAppId;
 import info.ata4.bspsrc.lib.exceptions.BspException;
 import info.ata4.bspsrc.lib.nmo.NmoException;
 import info.ata4.bspsrc.lib.nmo.NmoFile;
+import info.ata4.bspsrc.lib.struct.BspData;
 import org.apache.logging.log4j.CloseableThreadContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,8 +29,10 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
@@ -39,8 +43,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Stream;
 
+import static java.nio.file.StandardOpenOption.*;
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -56,6 +62,11 @@ import static java.util.Objects.requireNonNull;
 public class BspSource {
 
     private static final Logger L = LogManager.getLogger();
+
+    private static final int VMF_GZIP_BUFFER_SIZE = 1 << 16;
+    private static final int VMF_ASYNC_BUFFER_SIZE = 1 << 20;
+    private static final int VMF_ASYNC_BUFFER_COUNT = 4;
+
     public static final String DECOMPILE_TASK_ID_IDENTIFIER = "decompile_id";
 
     public static final String VERSION = "1.4.8-DEV";
@@ -177,7 +188,7 @@ public class BspSource {
             }
         }
 
-        var reader = new BspFileReader(bsp);
+        var reader = new BspFileReader(bsp, new BspData(), config.columnarGeometry);
         reader.loadAll();
 
         // load NMO if game is 'No More Room in Hell'
@@ -222,21 +233,38 @@ public class BspSource {
             L.info("Finished decompiling {}.", bspFile);
         } catch (IOException e) {
             throw new BspSourceException("Error decompiling bsp.", e);
+        } catch (UncheckedIOException e) {
+            throw new BspSourceException("Error writing vmf file.", e.getCause());
         }
     }
 
     private static VmfWriter getVmfWriter(File vmfFile, BspSourceConfig config) throws IOException {
-        // write to file or omit output?
         return new VmfWriter(
-                config.nullOutput 
-                        ? new PrintWriter(OutputStream.nullOutputStream()) 
-                        : new PrintWriter(vmfFile, StandardCharsets.US_ASCII),
+                getVmfChannel(vmfFile, config),
                 config.vmfDoubleScale,
                 config.vmfDoubleScaleTextureAxes,
                 config.vmfDoubleScaleTextureScale
         );
     }
 
+    private static WritableByteChannel getVmfChannel(File vmfFile, BspSourceConfig config) throws IOException {
+        // write to file or omit output?
+        if (config.nullOutput) {
+            return Channels.newChannel(OutputStream.nullOutputStream());
+        }
+
+        if (!config.compressOutput) {
+            return FileChannel.open(vmfFile.toPath(), CREATE, WRITE, TRUNCATE_EXISTING);
+        }
+
+        // compress on a separate thread while the geometry is being built
+        Path gzFile = Path.of(vmfFile.getPath() + ".gz");
+        L.info("Writing compressed VMF to {}", gzFile);
+
+        var out = new GZIPOutputStream(Files.newOutputStream(gzFile), VMF_GZIP_BUFFER_SIZE);
+        return new AsyncOutputChannel(out, VMF_ASYNC_BUFFER_SIZE, VMF_ASYNC_BUFFER_COUNT, "VMF writer");
+    }
+
     public List<UUID> getEntryUuids() {
         return entryUuids;
     }
@@ -64,12 +64,15 @@ public final class BspSourceConfig {
     
     // miscellaneous options
     public boolean nullOutput = false;
+    public boolean compressOutput = false;
     public boolean loadLumpFiles = true;
     public boolean skipProt = false;
     public boolean writeVisgroups = true;
     public boolean writeCameras = true;
     public boolean unpackEmbedded = false;
     public boolean smartUnpack = true;
+    public boolean columnarGeometry = false;
+    public boolean parallelDecompile = false;
 
     public int vmfDoubleScale = 8;
     public int vmfDoubleScaleTextureAxes = 4;
@@ -113,12 +116,15 @@ public final class BspSourceConfig {
         this.fixToolTextures = config.fixToolTextures;
         
         this.nullOutput = config.nullOutput;
+        this.compressOutput = config.compressOutput;
         this.loadLumpFiles = config.loadLumpFiles;
         this.skipProt = config.skipProt;
         this.writeVisgroups = config.writeVisgroups;
         this.writeCameras = config.writeCameras;
         this.unpackEmbedded = config.unpackEmbedded;
         this.smartUnpack = config.smartUnpack;
+        this.columnarGeometry = config.columnarGeometry;
+        this.parallelDecompile = config.parallelDecompile;
 
         this.vmfDoubleScale = config.vmfDoubleScale;
         this.vmfDoubleScaleTextureAxes = config.vmfDoubleScaleTextureAxes;
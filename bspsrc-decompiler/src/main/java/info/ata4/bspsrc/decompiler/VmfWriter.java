@@ -20,22 +20,58 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Class to write formatted VMF files.
  *
+ * The output is appended as US-ASCII directly into a reusable byte buffer,
+ * which is written out in large chunks. Characters outside of US-ASCII are
+ * replaced with '?'.
+ *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class VmfWriter implements Closeable {
 
     private static final Logger L = LogManager.getLogger();
 
-    private final PrintWriter pw;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] TABS = new byte[64];
+    private static final byte[] NEWLINE = {'\r', '\n'};
+    private static final byte[] KEY_VALUE_SEPARATOR = {'"', ' ', '"'};
+    private static final byte[] VALUE_END = {'"', '\r', '\n'};
+
+    // powers of ten that are exactly representable as double
+    private static final double[] POW10 = new double[16];
+    private static final long[] POW10_LONG = new long[16];
+
+    static {
+        Arrays.fill(TABS, (byte) '\t');
+
+        POW10[0] = 1;
+        POW10_LONG[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+            POW10_LONG[i] = POW10_LONG[i - 1] * 10;
+        }
+    }
+
+    private final Sink sink;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+
+    // scratch space for formatting a number backwards
+    private final byte[] digits = new byte[20];
+
     private final Deque<String> section = new ArrayDeque<>();
 
     private final int doubleScale;
@@ -48,24 +84,69 @@ public class VmfWriter implements Closeable {
             int doubleScaleTextureAxes,
             int doubleScaleTextureScale
     ) {
-        this.pw = pw;
+        this(new Sink() {
+            @Override
+            public void write(byte[] b, int len) {
+                pw.write(new String(b, 0, len, StandardCharsets.ISO_8859_1));
+            }
+
+            @Override
+            public void close() {
+                pw.close();
+            }
+        }, doubleScale, doubleScaleTextureAxes, doubleScaleTextureScale);
+    }
+
+    public VmfWriter(
+            WritableByteChannel channel,
+            int doubleScale,
+            int doubleScaleTextureAxes,
+            int doubleScaleTextureScale
+    ) {
+        this(new Sink() {
+            @Override
+            public void write(byte[] b, int len) throws IOException {
+                ByteBuffer bb = ByteBuffer.wrap(b, 0, len);
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        }, doubleScale, doubleScaleTextureAxes, doubleScaleTextureScale);
+    }
+
+    private VmfWriter(
+            Sink sink,
+            int doubleScale,
+            int doubleScaleTextureAxes,
+            int doubleScaleTextureScale
+    ) {
+        this.sink = sink;
         this.doubleScale = doubleScale;
         this.doubleScaleTextureAxes = doubleScaleTextureAxes;
         this.doubleScaleTextureScale = doubleScaleTextureScale;
     }
 
     private void indent() {
-        for (int i = 0; i < section.size(); i++) {
-            pw.print("\t");
+        int n = section.size();
+        while (n > 0) {
+            int len = Math.min(n, TABS.length);
+            append(TABS, len);
+            n -= len;
         }
     }
 
     public void start(String name) {
         indent();
-        pw.print(name);
-        pw.print("\r\n");
+        append(name);
+        append(NEWLINE, NEWLINE.length);
         indent();
-        pw.print("{\r\n");
+        append('{');
+        append(NEWLINE, NEWLINE.length);
 
         section.addFirst(name);
     }
@@ -80,48 +161,78 @@ public class VmfWriter implements Closeable {
         section.removeFirst();
 
         indent();
-        pw.print("}\r\n");
+        append('}');
+        append(NEWLINE, NEWLINE.length);
     }
 
-    public void put(String key, String value) {
+    private void beginValue(String key) {
         indent();
-        pw.printf("\"%s\" \"%s\"\r\n", key, value);
+        append('"');
+        append(key);
+        append(KEY_VALUE_SEPARATOR, KEY_VALUE_SEPARATOR.length);
+    }
+
+    private void endValue() {
+        append(VALUE_END, VALUE_END.length);
+    }
+
+    public void put(String key, String value) {
+        beginValue(key);
+        append(value);
+        endValue();
     }
 
     public void put(String key, int value) {
-        put(key, String.valueOf(value));
+        put(key, (long) value);
     }
 
     public void put(String key, int... values) {
-        put(key, Arrays.stream(values).mapToObj(Integer::toString).collect(Collectors.joining(" ")));
+        beginValue(key);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                append(' ');
+            }
+            appendLong(values[i]);
+        }
+        endValue();
     }
 
     public void put(String key, long value) {
-        put(key, String.valueOf(value));
+        beginValue(key);
+        appendLong(value);
+        endValue();
     }
 
     public void put(String key, float value) {
-        put(key, formatFloat(value, doubleScale));
+        put(key, (double) value);
     }
 
     public void put(String key, double value) {
-        put(key, formatFloat(value, doubleScale));
+        beginValue(key);
+        appendFloat(value, doubleScale);
+        endValue();
     }
 
     public void put(String key, boolean value) {
-        put(key, value ? "1" : "0");
+        beginValue(key);
+        append(value ? '1' : '0');
+        endValue();
     }
 
     public void put(String key, char value) {
-        put(key, String.valueOf(value));
+        beginValue(key);
+        append(value);
+        endValue();
     }
 
     public void put(String key, Vector3f v, int p) {
-        put(key, formatVector3d(v.toDouble(), p));
+        put(key, v.toDouble(), p);
     }
 
     public void put(String key, Vector3d v, int p) {
-        put(key, formatVector3d(v, p));
+        beginValue(key);
+        appendVector3d(v, p);
+        endValue();
     }
 
     public void put(String key, Vector3f v) {
@@ -133,13 +244,19 @@ public class VmfWriter implements Closeable {
     }
 
     public void put(String key, Vector3d v1, Vector3d v2, Vector3d v3) {
-        put(key, formatVector3d(v1, 1) + " "
-                + formatVector3d(v2, 1) + " "
-                + formatVector3d(v3, 1));
+        beginValue(key);
+        appendVector3d(v1, 1);
+        append(' ');
+        appendVector3d(v2, 1);
+        append(' ');
+        appendVector3d(v3, 1);
+        endValue();
     }
 
     public void put(String key, TextureAxis axis) {
-        put(key, formatTextureAxis(axis));
+        beginValue(key);
+        appendTextureAxis(axis);
+        endValue();
     }
 
     public void put(Map<String, String> stringMap) {
@@ -165,51 +282,50 @@ public class VmfWriter implements Closeable {
         put(keyValue.getKey(), keyValue.getValue());
     }
 
-    private String formatVector3d(Vector3d v, int p) {
-        StringBuilder sb = new StringBuilder();
-
+    private void appendVector3d(Vector3d v, int p) {
         if (p == 1) {
-            sb.append('(');
+            append('(');
         } else if (p == 2) {
-            sb.append('[');
+            append('[');
         }
 
         if (!v.isValid()) {
             L.warn("Invalid vector: {}", v);
-            sb.append("0 0 0");
+            append("0 0 0");
         } else {
-            sb.append(formatFloat(v.x(), doubleScale)).append(' ');
-            sb.append(formatFloat(v.y(), doubleScale)).append(' ');
-            sb.append(formatFloat(v.z(), doubleScale));
+            appendFloat(v.x(), doubleScale);
+            append(' ');
+            appendFloat(v.y(), doubleScale);
+            append(' ');
+            appendFloat(v.z(), doubleScale);
         }
 
         if (p == 1) {
-            sb.append(')');
+            append(')');
         } else if (p == 2) {
-            sb.append(']');
+            append(']');
         }
-
-        return sb.toString();
     }
 
-    private String formatTextureAxis(TextureAxis tx) {
-        StringBuilder sb = new StringBuilder();
-        sb.append('[');
+    private void appendTextureAxis(TextureAxis tx) {
+        append('[');
 
         if (!tx.axis.isValid()) {
             L.warn("Invalid vector: {}", tx.axis);
-            sb.append("0 0 0 ");
+            append("0 0 0 ");
         } else {
-            sb.append(formatFloat(tx.axis.x(), doubleScaleTextureAxes)).append(' ');
-            sb.append(formatFloat(tx.axis.y(), doubleScaleTextureAxes)).append(' ');
-            sb.append(formatFloat(tx.axis.z(), doubleScaleTextureAxes)).append(' ');
+            appendFloat(tx.axis.x(), doubleScaleTextureAxes);
+            append(' ');
+            appendFloat(tx.axis.y(), doubleScaleTextureAxes);
+            append(' ');
+            appendFloat(tx.axis.z(), doubleScaleTextureAxes);
+            append(' ');
         }
 
-        sb.append(tx.shift);
-        sb.append("] ");
-        sb.append(formatFloat(tx.tw, doubleScaleTextureScale));
-
-        return sb.toString();
+        appendLong(tx.shift);
+        append(']');
+        append(' ');
+        appendFloat(tx.tw, doubleScaleTextureScale);
     }
 
     private static final ThreadLocal<Map<Integer, DecimalFormat>> FORMATTERS = ThreadLocal.withInitial(HashMap::new);
@@ -217,7 +333,7 @@ public class VmfWriter implements Closeable {
         return new DecimalFormat("0." + "#".repeat(decimalPlaces), new DecimalFormatSymbols(Locale.ENGLISH));
     }
 
-    private String formatFloat(double f, int decimalPlaces) {
+    private static String formatFloat(double f, int decimalPlaces) {
         if (decimalPlaces == 0)
             return Double.toString(f);
 
@@ -226,9 +342,153 @@ public class VmfWriter implements Closeable {
                 .format(f);
     }
 
+    /**
+     * Appends the same text as {@link #formatFloat(double, int)} without
+     * creating any strings for the common cases.
+     */
+    private void appendFloat(double f, int decimalPlaces) {
+        if (decimalPlaces > 0 && decimalPlaces < POW10.length && Double.isFinite(f)) {
+            double scaled = Math.abs(f) * POW10[decimalPlaces];
+
+            if (scaled < 1e15) {
+                double floor = Math.floor(scaled);
+                double frac = scaled - floor;
+
+                // the product may be off by half an ulp, so values close to a
+                // rounding tie are left to DecimalFormat, which rounds the
+                // exact value half-even
+                if (Math.abs(frac - 0.5) > 2 * Math.ulp(scaled)) {
+                    long rounded = (long) floor + (frac > 0.5 ? 1 : 0);
+
+                    // DecimalFormat keeps the sign of negative values that are
+                    // rounded to zero, leave these rare cases to it as well
+                    if (rounded != 0 || Double.doubleToRawLongBits(f) >= 0) {
+                        appendFixed(f < 0, rounded, decimalPlaces);
+                        return;
+                    }
+                }
+            }
+        }
+
+        append(formatFloat(f, decimalPlaces));
+    }
+
+    private void appendFixed(boolean negative, long rounded, int decimalPlaces) {
+        long intPart = rounded / POW10_LONG[decimalPlaces];
+        long fracPart = rounded % POW10_LONG[decimalPlaces];
+
+        if (negative) {
+            append('-');
+        }
+
+        appendLong(intPart);
+
+        if (fracPart == 0) {
+            return;
+        }
+
+        // drop trailing zeros
+        int places = decimalPlaces;
+        while (fracPart % 10 == 0) {
+            fracPart /= 10;
+            places--;
+        }
+
+        ensure(places + 1);
+        buf[count++] = '.';
+        for (int i = places - 1; i >= 0; i--) {
+            buf[count + i] = (byte) ('0' + fracPart % 10);
+            fracPart /= 10;
+        }
+        count += places;
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        int len = digits.length - pos;
+        ensure(len);
+        System.arraycopy(digits, pos, buf, count, len);
+        count += len;
+    }
+
+    private void append(String s) {
+        if (s == null) {
+            s = "null";
+        }
+
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+
+            if (count == buf.length) {
+                flush();
+            }
+
+            if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else {
+                // a surrogate pair is a single unmappable character
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    i++;
+                }
+                buf[count++] = '?';
+            }
+        }
+    }
+
+    private void append(char c) {
+        ensure(1);
+        buf[count++] = c < 0x80 ? (byte) c : (byte) '?';
+    }
+
+    private void append(byte[] b, int len) {
+        ensure(len);
+        System.arraycopy(b, 0, buf, count, len);
+        count += len;
+    }
+
+    private void ensure(int len) {
+        if (count + len > buf.length) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (count == 0) {
+            return;
+        }
+
+        try {
+            sink.write(buf, count);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        count = 0;
+    }
+
     @Override
     public void close() {
-        pw.close();
+        try (sink) {
+            flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
 
         // stack should be empty, otherwise someone forgot to call end() at least once
         if (!section.isEmpty()) {
@@ -236,4 +496,8 @@ public class VmfWriter implements Closeable {
             L.warn("Unclosed VMF chunk: {}", stackState);
         }
     }
+
+    private interface Sink extends Closeable {
+        void write(byte[] b, int len) throws IOException;
+    }
 }
@@ -0,0 +1,64 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.modules;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+import java.util.Set;
+
+/**
+ * A check that is run by {@link BspAnalyzer} together with other checks,
+ * sharing a single pass over the entities, brushes and pakfile entries.
+ *
+ * Each source is visited in order on a single thread, but different sources
+ * may be visited at the same time on different threads. Implementations must
+ * therefore keep the state for each source separate and combine it in
+ * {@link #finish(boolean)}.
+ */
+public interface BspAnalysis {
+
+    enum Source {
+        ENTITIES,
+        BRUSHES,
+        PAKFILE
+    }
+
+    /**
+     * @return the sources this check wants to visit
+     */
+    Set<Source> getSources();
+
+    /**
+     * Called before any source is visited.
+     */
+    default void start() {
+    }
+
+    default void visitEntity(Entity ent) {
+    }
+
+    default void visitBrush(int ibrush, DBrush brush) {
+    }
+
+    default void visitPakEntry(ZipArchiveEntry entry) {
+    }
+
+    /**
+     * Called after all sources have been visited.
+     *
+     * @param pakfileRead {@code false} if the pakfile couldn't be read, in
+     *                    which case not all entries may have been visited
+     */
+    default void finish(boolean pakfileRead) {
+    }
+}
@@ -0,0 +1,116 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.modules;
+
+import info.ata4.bspsrc.decompiler.modules.BspAnalysis.Source;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Runs multiple {@link BspAnalysis} checks with a single pass over the
+ * entities, the brushes and the pakfile entries. The sources are independent
+ * of each other and are visited in parallel on the current fork-join pool.
+ */
+public class BspAnalyzer extends ModuleRead {
+
+    private static final Logger L = LogManager.getLogger();
+
+    private final List<BspAnalysis> analyses = new ArrayList<>();
+
+    public BspAnalyzer(BspFileReader reader) {
+        super(reader);
+    }
+
+    public BspAnalyzer add(BspAnalysis analysis) {
+        analyses.add(analysis);
+        return this;
+    }
+
+    public void run() {
+        List<BspAnalysis> entityVisitors = visitorsOf(Source.ENTITIES);
+        List<BspAnalysis> brushVisitors = visitorsOf(Source.BRUSHES);
+        List<BspAnalysis> pakVisitors = visitorsOf(Source.PAKFILE);
+
+        // load everything up front, loading is not thread-safe
+        if (!entityVisitors.isEmpty()) {
+            reader.loadEntities();
+        }
+        if (!brushVisitors.isEmpty()) {
+            reader.loadBrushes();
+        }
+
+        analyses.forEach(BspAnalysis::start);
+
+        boolean[] pakfileRead = {true};
+
+        List<Runnable> passes = new ArrayList<>();
+        if (!entityVisitors.isEmpty()) {
+            passes.add(() -> {
+                for (Entity ent : bsp.entities) {
+                    for (BspAnalysis analysis : entityVisitors) {
+                        analysis.visitEntity(ent);
+                    }
+                }
+            });
+        }
+        if (!brushVisitors.isEmpty()) {
+            passes.add(() -> {
+                for (int i = 0; i < bsp.brushes.size(); i++) {
+                    DBrush brush = bsp.brushes.get(i);
+                    for (BspAnalysis analysis : brushVisitors) {
+                        analysis.visitBrush(i, brush);
+                    }
+                }
+            });
+        }
+        if (!pakVisitors.isEmpty()) {
+            passes.add(() -> pakfileRead[0] = visitPakfile(pakVisitors));
+        }
+
+        passes.parallelStream().forEach(Runnable::run);
+
+        for (BspAnalysis analysis : analyses) {
+            analysis.finish(pakfileRead[0]);
+        }
+    }
+
+    private boolean visitPakfile(List<BspAnalysis> visitors) {
+        try (ZipFile zip = bspFile.getPakFile().getZipFile()) {
+            Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
+            while (enumeration.hasMoreElements()) {
+                ZipArchiveEntry ze = enumeration.nextElement();
+                for (BspAnalysis analysis : visitors) {
+                    analysis.visitPakEntry(ze);
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            L.warn("Couldn't read pakfile", ex);
+            return false;
+        }
+    }
+
+    private List<BspAnalysis> visitorsOf(Source source) {
+        return analyses.stream()
+                .filter(analysis -> analysis.getSources().contains(source))
+                .toList();
+    }
+}
@@ -9,45 +9,171 @@
  */
 package info.ata4.bspsrc.decompiler.modules;
 
+import info.ata4.bspsrc.decompiler.util.Crc32Util;
 import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.io.LzmaUtil;
 import info.ata4.bspsrc.lib.lump.Lump;
 import info.ata4.bspsrc.lib.lump.LumpType;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
 import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * BSP checksum calculator based on Source's server map CRC check.
+ * <p>
+ * Both checksums are computed in one pass over the memory-mapped file. The
+ * file is hashed in pieces in parallel, cut at every lump boundary, so the
+ * checksum of each lump that is stored uncompressed in the file can be
+ * combined from the same pieces. Only the other lumps are hashed separately.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class BspChecksum extends ModuleRead {
 
+    // maximum size of the pieces that are hashed in parallel
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    private boolean computed;
+    private long mapCrc;
+    private Long fileCrc;
+
     public BspChecksum(BspFileReader reader) {
         super(reader);
     }
 
     public long getMapCRC() {
-        CRC32 crc = new CRC32();
+        compute();
+        return mapCrc;
+    }
+
+    public long getFileCRC() throws IOException {
+        compute();
+
+        if (fileCrc == null) {
+            // the file data isn't available, stream it instead
+            var crc = new CRC32();
+            try (InputStream is = new CheckedInputStream(Files.newInputStream(bspFile.getFile()), crc)) {
+                is.transferTo(OutputStream.nullOutputStream());
+            }
+            fileCrc = crc.getValue();
+        }
+
+        return fileCrc;
+    }
+
+    private synchronized void compute() {
+        if (computed) {
+            return;
+        }
+        computed = true;
 
         // CRC across all lumps except for the Entities lump
-        for (Lump lump : bspFile.getLumps()) {
-            if (lump.getType() == LumpType.LUMP_ENTITIES) {
-                continue;
+        List<Lump> lumps = bspFile.getLumps().stream()
+                .filter(lump -> lump.getType() != LumpType.LUMP_ENTITIES)
+                .toList();
+
+        long[] lumpCrcs = new long[lumps.size()];
+        long[] lumpLengths = new long[lumps.size()];
+        boolean[] lumpsDone = new boolean[lumps.size()];
+
+        Optional<ByteBuffer> fileBuffer = bspFile.getFileBuffer();
+        if (fileBuffer.isPresent()) {
+            ByteBuffer fb = fileBuffer.get();
+
+            for (int i = 0; i < lumps.size(); i++) {
+                lumpsDone[i] = isStoredInFile(lumps.get(i), fb);
             }
 
-            crc.update(lump.getBuffer());
+            // cut the file into chunks and at the boundaries of the lumps
+            // that can be taken from it
+            int size = fb.limit();
+            IntStream chunkCuts = IntStream.iterate(0, ofs -> ofs < size, ofs -> ofs + CHUNK_SIZE);
+            IntStream lumpCuts = IntStream.range(0, lumps.size())
+                    .filter(i -> lumpsDone[i])
+                    .mapToObj(lumps::get)
+                    .flatMapToInt(lump -> IntStream.of(lump.getOffset(), lump.getOffset() + lump.getRawLength()));
+            int[] cuts = IntStream.concat(chunkCuts, lumpCuts)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+
+            int pieces = cuts.length;
+            long[] pieceCrcs = new long[pieces];
+            IntStream.range(0, pieces).parallel().forEach(i ->
+                    pieceCrcs[i] = Crc32Util.crc(fb.slice(cuts[i], pieceEnd(cuts, i, size) - cuts[i])));
+
+            long crc = 0;
+            for (int i = 0; i < pieces; i++) {
+                crc = Crc32Util.combine(crc, pieceCrcs[i], pieceEnd(cuts, i, size) - cuts[i]);
+            }
+            fileCrc = crc;
+
+            for (int i = 0; i < lumps.size(); i++) {
+                if (!lumpsDone[i]) {
+                    continue;
+                }
+
+                Lump lump = lumps.get(i);
+                int start = lump.getOffset();
+                int end = start + lump.getRawLength();
+
+                long lumpCrc = 0;
+                for (int j = Arrays.binarySearch(cuts, start); j < pieces && cuts[j] < end; j++) {
+                    lumpCrc = Crc32Util.combine(lumpCrc, pieceCrcs[j], pieceEnd(cuts, j, size) - cuts[j]);
+                }
+
+                lumpCrcs[i] = lumpCrc;
+                lumpLengths[i] = lump.getLength();
+            }
         }
 
-        return crc.getValue();
+        // hash the remaining lumps, which are compressed or come from other files
+        IntStream.range(0, lumps.size())
+                .filter(i -> !lumpsDone[i])
+                .parallel()
+                .forEach(i -> {
+                    Lump lump = lumps.get(i);
+                    boolean compressed = lump.isCompressed();
+
+                    ByteBuffer bb = lump.getBuffer();
+                    lumpCrcs[i] = Crc32Util.crc(bb);
+                    lumpLengths[i] = bb.remaining();
+
+                    // don't keep the uncompressed data around just for this
+                    if (compressed) {
+                        lump.releaseUncompressed();
+                    }
+                });
+
+        long crc = 0;
+        for (int i = 0; i < lumps.size(); i++) {
+            crc = Crc32Util.combine(crc, lumpCrcs[i], lumpLengths[i]);
+        }
+        mapCrc = crc;
     }
 
-    public long getFileCRC() throws IOException {
-        var bytes = Files.readAllBytes(bspFile.getFile());
+    private boolean isStoredInFile(Lump lump, ByteBuffer fb) {
+        int offset = lump.getOffset();
+        int length = lump.getRawLength();
+
+        // compressed lumps are hashed with their uncompressed data
+        return bspFile.getFile().equals(lump.getParentFile())
+                && length > 0
+                && offset >= 0
+                && offset + length <= fb.limit()
+                && !LzmaUtil.isCompressed(fb.slice(offset, length));
+    }
 
-        var crc = new CRC32();
-        crc.update(bytes);
-        return crc.getValue();
+    private static int pieceEnd(int[] cuts, int i, int size) {
+        return i + 1 < cuts.length ? cuts[i + 1] : size;
     }
 }
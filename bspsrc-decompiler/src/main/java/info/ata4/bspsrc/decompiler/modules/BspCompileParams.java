@@ -13,23 +13,20 @@ import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.lump.LumpType;
 import info.ata4.bspsrc.lib.struct.LevelFlag;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipFile;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
+ * Guesses the compile parameters from the lumps and the pakfile, either on
+ * first access or as part of a {@link BspAnalyzer} run.
  *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
-public class BspCompileParams extends ModuleRead {
-
-    private static final Logger L = LogManager.getLogger();
+public class BspCompileParams extends ModuleRead implements BspAnalysis {
 
     private List<String> vbspParams = new ArrayList<>();
     private List<String> vvisParams = new ArrayList<>();
@@ -38,37 +35,53 @@ public class BspCompileParams extends ModuleRead {
     private boolean vvisRun = false;
     private boolean vradRun = false;
 
+    private boolean stale;
+    private boolean hasVhv;
+    private boolean analyzed;
+
     public BspCompileParams(BspFileReader reader) {
         super(reader);
 
         reader.loadFlags();
+    }
+
+    private void analyze() {
+        if (!analyzed) {
+            new BspAnalyzer(reader).add(this).run();
+        }
+    }
 
-        boolean stale = false;
-        boolean hasVhv = false;
+    @Override
+    public Set<Source> getSources() {
+        return EnumSet.of(Source.PAKFILE);
+    }
 
-        try (ZipFile zip = bspFile.getPakFile().getZipFile()) {
-            Enumeration<ZipArchiveEntry> enumeration = zip.getEntries();
-            while (enumeration.hasMoreElements()) {
-                ZipArchiveEntry ze = enumeration.nextElement();
+    @Override
+    public void start() {
+        vbspParams.clear();
+        vvisParams.clear();
+        vradParams.clear();
 
-                // check for stale.txt, which marks possibly screwed up maps
-                if (ze.getName().equals("stale.txt")) {
-                    stale = true;
-                }
+        stale = false;
+        hasVhv = false;
+    }
 
-                // check for .vhv files, which contain the vertex lighting data
-                if (ze.getName().endsWith(".vhv")) {
-                    hasVhv = true;
-                }
+    @Override
+    public void visitPakEntry(ZipArchiveEntry ze) {
+        // check for stale.txt, which marks possibly screwed up maps
+        if (ze.getName().equals("stale.txt")) {
+            stale = true;
+        }
 
-                if (stale && hasVhv) {
-                    // we're done here
-                    break;
-                }
-            }
-        } catch (IOException ex) {
-            L.warn("Couldn't read pakfile", ex);
+        // check for .vhv files, which contain the vertex lighting data
+        if (ze.getName().endsWith(".vhv")) {
+            hasVhv = true;
         }
+    }
+
+    @Override
+    public void finish(boolean pakfileRead) {
+        analyzed = true;
 
         // both parameters produce marked files, there's probably no way to
         // distinguish them
@@ -109,22 +122,27 @@ public class BspCompileParams extends ModuleRead {
     }
 
     public List<String> getVbspParams() {
+        analyze();
         return Collections.unmodifiableList(vbspParams);
     }
 
     public List<String> getVvisParams() {
+        analyze();
         return Collections.unmodifiableList(vvisParams);
     }
 
     public List<String> getVradParams() {
+        analyze();
         return Collections.unmodifiableList(vradParams);
     }
 
     public boolean isVvisRun() {
+        analyze();
         return vvisRun;
     }
 
     public boolean isVradRun() {
+        analyze();
         return vradRun;
     }
 }
@@ -17,7 +17,9 @@ import info.ata4.bspsrc.decompiler.modules.entity.EntitySource;
 import info.ata4.bspsrc.decompiler.modules.geom.*;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
 import info.ata4.bspsrc.decompiler.util.AreaportalMapper;
+import info.ata4.bspsrc.decompiler.util.BspTreeStats;
 import info.ata4.bspsrc.decompiler.util.OccluderMapper;
+import info.ata4.bspsrc.decompiler.util.PortalIndex;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.app.SourceAppId;
@@ -46,27 +48,33 @@ public class BspDecompiler extends ModuleDecompile {
     private final EntitySource entsrc;
     private final BspProtection bspprot;
     private final VmfMeta vmfmeta;
+    private final WindingFactory windingFactory;
 
     public BspDecompiler(BspFileReader reader, VmfWriter writer, BspSourceConfig config) {
         super(reader, writer);
 
         this.config = config;
 
-        var windingFactory = WindingFactory.forAppId(bspFile.getAppId());
+        windingFactory = WindingFactory.forAppId(bspFile.getAppId());
         var brushBounds = new BrushBounds(windingFactory);
 
-        var apReallocationData = AreaportalMapper.createReallocationData(reader.getData(), config, windingFactory);
-        var occReallocationData = OccluderMapper.createReallocationData(reader.getData(), config, windingFactory);
+        var portalIndex = PortalIndex.build(reader.getData());
+        var trees = BspTreeStats.walkModels(reader.getData());
+        var apReallocationData = AreaportalMapper.createReallocationData(reader.getData(), config, windingFactory,
+                portalIndex);
+        var occReallocationData = OccluderMapper.createReallocationData(reader.getData(), config, windingFactory,
+                portalIndex, trees.world());
 
         texsrc = new TextureSource(reader);
         bspprot = new BspProtection(reader, brushBounds, texsrc);
         vmfmeta = new VmfMeta(reader, writer);
         brushSideFaceMapper = new BrushSideFaceMapper(reader, windingFactory);
         brushsrc = new BrushSource(reader, writer, config, texsrc, bspprot, vmfmeta, brushSideFaceMapper,
-                windingFactory, occReallocationData);
+                windingFactory, trees, occReallocationData);
         facesrc = new FaceSource(reader, writer, config, texsrc, vmfmeta, windingFactory, occReallocationData);
         entsrc = new EntitySource(reader, writer, config, brushsrc, facesrc, texsrc, bspprot, vmfmeta,
-                brushSideFaceMapper, windingFactory, brushBounds, apReallocationData, occReallocationData);
+                brushSideFaceMapper, windingFactory, brushBounds, portalIndex, apReallocationData,
+                occReallocationData);
     }
 
     /**
@@ -115,6 +123,11 @@ public class BspDecompiler extends ModuleDecompile {
         if (config.writeCameras) {
             vmfmeta.writeCameras();
         }
+
+        if (L.isDebugEnabled()) {
+            windingFactory.getCacheStats().forEach((type, stats) ->
+                    L.debug("Winding cache ({}): {}", type, stats));
+        }
     }
 
     private void checkProtection() {
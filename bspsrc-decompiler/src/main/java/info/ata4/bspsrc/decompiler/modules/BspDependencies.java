@@ -14,16 +14,29 @@ import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.entity.Entity;
 
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 /**
  * BSP resource dependencies scanner.
+ *
+ * All entity dependencies are collected in a single pass over the entities,
+ * either on first access or as part of a {@link BspAnalyzer} run.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
-public class BspDependencies extends ModuleRead {
+public class BspDependencies extends ModuleRead implements BspAnalysis {
+
+    private final Set<String> entityMaterials = new TreeSet<>();
+    private final Set<String> entityModels = new TreeSet<>();
+    private final Set<String> soundFiles = new TreeSet<>();
+    private final Set<String> soundScripts = new TreeSet<>();
+    private final Set<String> soundScapes = new TreeSet<>();
+    private final Set<String> particles = new TreeSet<>();
+
+    private boolean analyzed;
 
     public BspDependencies(BspFileReader reader) {
         super(reader);
@@ -31,147 +44,154 @@ public class BspDependencies extends ModuleRead {
         reader.loadEntities();
     }
 
-    public Set<String> getMaterials() {
-        Set<String> materials = new TreeSet<>();
-        TextureSource texsrc = new TextureSource(reader);
-
-        // add all texnames
-        for (String texname : texsrc.getFixedTextureNames()) {
-            materials.add("materials/" + texname + ".vmt");
+    private void analyze() {
+        if (!analyzed) {
+            new BspAnalyzer(reader).add(this).run();
         }
+    }
 
-        // add all entity materials
-        for (Entity ent : bsp.entities) {
-            try {
-                for (String value : ent.getValues()) {
+    @Override
+    public Set<Source> getSources() {
+        return EnumSet.of(Source.ENTITIES);
+    }
 
-                    if (value.startsWith("materials/")
-                            || value.endsWith(".vtf")
-                            || value.endsWith(".vmt")) {
-                        String texture = texsrc.canonizeTextureName(value);
+    @Override
+    public void start() {
+        entityMaterials.clear();
+        entityModels.clear();
+        soundFiles.clear();
+        soundScripts.clear();
+        soundScapes.clear();
+        particles.clear();
+    }
 
-                        if (!texture.startsWith("materials/")) {
-                            texture = "materials/" + texture;
-                        }
+    @Override
+    public void visitEntity(Entity ent) {
+        String className = ent.getClassName();
 
-                        if (!texture.endsWith(".vtf") && !texture.endsWith(".vmt")) {
-                            texture += ".vmt";
-                        }
+        for (Map.Entry<String, String> kv : ent.getEntrySet()) {
+            String key = kv.getKey();
+            String value = kv.getValue();
 
-                        materials.add(texture);
-                    }
-                }
-            } catch (NullPointerException ex) {
+            if (value == null) {
+                continue;
             }
-        }
 
-        return materials;
-    }
-
-    public Set<String> getModels() {
-        reader.loadStaticProps();
+            // entity materials
+            if (value.startsWith("materials/")
+                    || value.endsWith(".vtf")
+                    || value.endsWith(".vmt")) {
+                String texture = TextureSource.canonizeTextureName(value);
 
-        TreeSet<String> models = new TreeSet<>();
+                if (!texture.startsWith("materials/")) {
+                    texture = "materials/" + texture;
+                }
 
-        // add entity models
-        for (Entity ent : bsp.entities) {
-            try {
-                for (String value : ent.getValues()) {
-                    if (value.endsWith(".mdl")) {
-                        models.add(value);
-                    }
+                if (!texture.endsWith(".vtf") && !texture.endsWith(".vmt")) {
+                    texture += ".vmt";
                 }
-            } catch (NullPointerException ex) {
+
+                entityMaterials.add(texture);
             }
-        }
 
-        // add static prop models
-        models.addAll(bsp.staticPropName);
+            // entity models
+            if (value.endsWith(".mdl")) {
+                entityModels.add(value);
+            }
 
-        return models;
-    }
+            // raw sound extensions
+            if (value.startsWith("sound/")
+                    || value.endsWith(".wav")
+                    || value.endsWith(".mp3")) {
+                soundFiles.add(value.startsWith("sound/") ? value : "sound/" + value);
+            }
 
-    public Set<String> getSoundFiles() {
-        Set<String> soundFiles = new TreeSet<>();
+            // soundscapes are not our job
+            if (className.equals("env_soundscape")) {
+                continue;
+            }
 
-        for (Entity ent : bsp.entities) {
-            for (Map.Entry<String, String> kv : ent.getEntrySet()) {
-                String value = kv.getValue();
+            // heuristic soundscript detection
+            if (key.contains("sound") || key.contains("noise")) {
+                // ignore empty strings, scripted sentences and numeric values
+                if (value.length() == 0
+                        || value.startsWith("!")
+                        || value.matches("^-?[0-9]+$")) {
+                    continue;
+                }
 
-                // raw sound extensions
-                if (value.startsWith("sound/")
-                        || value.endsWith(".wav")
-                        || value.endsWith(".mp3")) {
+                soundScripts.add(value);
+            }
+        }
 
-                    if (!value.startsWith("sound/")) {
-                        value = "sound/" + value;
-                    }
+        if (className.equals("env_soundscape")) {
+            String soundScape = ent.getValue("soundscape");
+            if (soundScape != null) {
+                soundScapes.add(soundScape);
+            }
+        }
 
-                    soundFiles.add(value);
-                }
+        if (className.equals("info_particle_system")) {
+            String effectName = ent.getValue("effect_name");
+            if (effectName != null) {
+                particles.add(effectName);
             }
         }
+    }
 
-        return soundFiles;
+    @Override
+    public void finish(boolean pakfileRead) {
+        analyzed = true;
     }
 
+    public Set<String> getMaterials() {
+        analyze();
 
-    public Set<String> getSoundScripts() {
-        Set<String> soundScripts = new TreeSet<>();
+        Set<String> materials = new TreeSet<>();
+        TextureSource texsrc = new TextureSource(reader);
 
-        for (Entity ent : bsp.entities) {
-            for (Map.Entry<String, String> kv : ent.getEntrySet()) {
-                // soundscapes are not our job
-                if (ent.getClassName().equals("env_soundscape")) {
-                    continue;
-                }
+        // add all texnames
+        for (String texname : texsrc.getFixedTextureNames()) {
+            materials.add("materials/" + texname + ".vmt");
+        }
 
-                String key = kv.getKey();
-                String value = kv.getValue();
+        // add all entity materials
+        materials.addAll(entityMaterials);
 
-                // heuristic soundscript detection
-                if (key.contains("sound") || key.contains("noise")) {
-                    // ignore empty strings, scripted sentences and numeric values
-                    if (value == null
-                            || value.length() == 0
-                            || value.startsWith("!")
-                            || value.matches("^-?[0-9]+$")) {
-                        continue;
-                    }
+        return materials;
+    }
 
-                    soundScripts.add(value);
-                }
-            }
+    public Set<String> getModels() {
+        analyze();
 
-        }
+        reader.loadStaticProps();
 
-        return soundScripts;
-    }
+        // add entity models
+        TreeSet<String> models = new TreeSet<>(entityModels);
 
-    public Set<String> getSoundscapes() {
-        Set<String> soundScapes = new TreeSet<>();
+        // add static prop models
+        models.addAll(bsp.staticPropName);
 
-        for (Entity ent : bsp.entities) {
-            if (ent.getClassName().equals("env_soundscape")) {
-                soundScapes.add(ent.getValue("soundscape"));
-            }
-        }
+        return models;
+    }
 
-        return soundScapes;
+    public Set<String> getSoundFiles() {
+        analyze();
+        return new TreeSet<>(soundFiles);
     }
 
-    public Set<String> getParticles() {
-        Set<String> particles = new TreeSet<>();
+    public Set<String> getSoundScripts() {
+        analyze();
+        return new TreeSet<>(soundScripts);
+    }
 
-        for (Entity ent : bsp.entities) {
-            try {
-                if (ent.getClassName().equals("info_particle_system")) {
-                    particles.add(ent.getValue("effect_name"));
-                }
-            } catch (NullPointerException ex) {
-            }
-        }
+    public Set<String> getSoundscapes() {
+        analyze();
+        return new TreeSet<>(soundScapes);
+    }
 
-        return particles;
+    public Set<String> getParticles() {
+        analyze();
+        return new TreeSet<>(particles);
     }
 }
@@ -19,13 +19,15 @@ import info.ata4.bspsrc.lib.struct.DBrush;
 import info.ata4.bspsrc.lib.struct.DBrushSide;
 import info.ata4.bspsrc.lib.struct.DPlane;
 import info.ata4.bspsrc.lib.vector.Vector3d;
-import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.Objects.requireNonNull;
 
@@ -38,10 +40,13 @@ import static java.util.Objects.requireNonNull;
  * - encrypted entities by BSPProtect
  * - obfuscated entities by IID
  * - texinfo hack by IID_BSP
+ *
+ * The checks can run on their own with {@link #check()} or together with
+ * other checks in a {@link BspAnalyzer}.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
-public class BspProtection extends ModuleRead {
+public class BspProtection extends ModuleRead implements BspAnalysis {
 
     // constants
     public static final String BSPPROTECT_FILE = "entities.dat";
@@ -72,10 +77,20 @@ public class BspProtection extends ModuleRead {
     private boolean obfuscatedEnt;
     private boolean modifedTexinfo;
 
-    // lists of protecting elements
-    private List<DBrush> protBrushes = new ArrayList<>();
+    // lists of protecting elements, brushes by index in the order they were found
+    private final List<Integer> protBrushes = new ArrayList<>();
+    private final BitSet protBrushSet = new BitSet();
     private List<Entity> protEntities = new ArrayList<>();
 
+    // state of the brush pass, indices of the last matching prefab brushes
+    private int b1;
+    private int b2;
+    private int b3;
+
+    // state of the entity pass
+    private int targetnames;
+    private int targetnamesObfs;
+
     public BspProtection(BspFileReader reader, BrushBounds brushBounds, TextureSource texsrc) {
         super(reader);
 
@@ -89,6 +104,22 @@ public class BspProtection extends ModuleRead {
     }
 
     public boolean check() {
+        new BspAnalyzer(reader).add(this).run();
+        return isProtected();
+    }
+
+    @Override
+    public Set<Source> getSources() {
+        // BSPProtect currently works with Source 2007/2009 aka Orange Box only
+        if (bspFile.getVersion() != 20) {
+            return EnumSet.of(Source.ENTITIES, Source.BRUSHES);
+        }
+
+        return EnumSet.allOf(Source.class);
+    }
+
+    @Override
+    public void start() {
         flaggedEnt = false;
         flaggedTex = false;
         flaggedBrush = false;
@@ -96,19 +127,44 @@ public class BspProtection extends ModuleRead {
         obfuscatedEnt = false;
         modifedTexinfo = false;
 
-        checkBrushes();
+        protBrushes.clear();
+        protBrushSet.clear();
+        protEntities.clear();
+
+        b1 = -1;
+        b2 = -1;
+        b3 = -1;
+
+        targetnames = 0;
+        targetnamesObfs = 0;
+
+        L.debug("Checking for protector prefab");
+        L.debug("Checking for entity lock key \"" + VMEX_LOCKED_ENT + "\" and obfuscated targetnames");
+
+        if (getSources().contains(Source.PAKFILE)) {
+            L.debug("Checking for encrypted entities inside pakfile (file: \"" + BSPPROTECT_FILE + "\")");
+        }
+    }
+
+    @Override
+    public void finish(boolean pakfileRead) {
+        // all targetnames are numeric?
+        obfuscatedEnt = targetnames > 0 && targetnames == targetnamesObfs;
+        if (obfuscatedEnt) {
+            L.debug("Found obfuscation!");
+        }
+
+        // pakfile broken or missing?
+        if (!pakfileRead) {
+            encryptedEnt = false;
+        }
+
         checkBrushSides();
-        checkEntities();
         checkTextures();
-        checkPakfile();
-
-        boolean prot = isProtected();
 
-        if (!prot) {
+        if (!isProtected()) {
             L.debug("Nothing found");
         }
-
-        return prot;
     }
 
     public boolean isProtected() {
@@ -175,24 +231,24 @@ public class BspProtection extends ModuleRead {
     }
 
     /**
-     * Returns all found protector brushes.
+     * Returns the indices of all found protector brushes.
      * 
-     * @return list of protector brushes
+     * @return array of protector brush indices
      */
-    public List<DBrush> getProtectedBrushes() {
-        List<DBrush> list = new ArrayList<>();
-        list.addAll(protBrushes);
-        return list;
+    public int[] getProtectedBrushes() {
+        return protBrushes.stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
     }
 
     /**
      * Checks if the given brush is a protector brush.
      * 
-     * @param brush
+     * @param ibrush brush index
      * @return true if the brush is part of the protection prefab.
      */
-    public boolean isProtectedBrush(DBrush brush) {
-        return protBrushes.contains(brush);
+    public boolean isProtectedBrush(int ibrush) {
+        return protBrushSet.get(ibrush);
     }
 
     /**
@@ -216,50 +272,50 @@ public class BspProtection extends ModuleRead {
         return protEntities.contains(entity);
     }
 
-    private void checkBrushes() {
-        L.debug("Checking for protector prefab");
-
-        DBrush b1 = null;
-        DBrush b2 = null;
-        DBrush b3 = null;
-
-        // check every brush
-        for (DBrush b : bsp.brushes) {
-            // ignore brushes that don't fit
-            if (!isAlignedBrush(b) || !isSameTexBrush(b)) {
-                continue;
-            }
+    /**
+     * Checks for the protector prefab
+     */
+    @Override
+    public void visitBrush(int i, DBrush b) {
+        // ignore brushes that don't fit
+        if (!isAlignedBrush(b) || !isSameTexBrush(b)) {
+            return;
+        }
 
-            // get brush dimensions
-            var bsize = brushBounds.getBounds(bsp, b).getSize();
+        // get brush dimensions
+        var bsize = brushBounds.getBounds(bsp, i).getSize();
 
-            // check brush dimensions with prefab constants
-            if (PB1.sub(bsize).length() < EPS_SIZE) {
-                b1 = b;
-            }
-            if (PB2.sub(bsize).length() < EPS_SIZE) {
-                b2 = b;
-            }
-            if (PB3.sub(bsize).length() < EPS_SIZE) {
-                b3 = b;
-            }
+        // check brush dimensions with prefab constants
+        if (PB1.sub(bsize).length() < EPS_SIZE) {
+            b1 = i;
+        }
+        if (PB2.sub(bsize).length() < EPS_SIZE) {
+            b2 = i;
+        }
+        if (PB3.sub(bsize).length() < EPS_SIZE) {
+            b3 = i;
+        }
 
-            // check if all three brushes exists
-            if (b1 != null && b2 != null && b3 != null) {
-                L.debug("Found protector prefab!");
-                flaggedBrush = true;
+        // check if all three brushes exists
+        if (b1 != -1 && b2 != -1 && b3 != -1) {
+            L.debug("Found protector prefab!");
+            flaggedBrush = true;
 
-                protBrushes.add(b1);
-                protBrushes.add(b2);
-                protBrushes.add(b3);
+            addProtectedBrush(b1);
+            addProtectedBrush(b2);
+            addProtectedBrush(b3);
 
-                b1 = null;
-                b2 = null;
-                b3 = null;
-            }
+            b1 = -1;
+            b2 = -1;
+            b3 = -1;
         }
     }
 
+    private void addProtectedBrush(int ibrush) {
+        protBrushes.add(ibrush);
+        protBrushSet.set(ibrush);
+    }
+
     private void checkBrushSides() {
         L.debug("Checking for nodraw brush sides (ratio limit: {})", NODRAW_RATIO_LIMIT);
 
@@ -280,38 +336,27 @@ public class BspProtection extends ModuleRead {
         }
     }
 
-    private void checkEntities() {
-        L.debug("Checking for entity lock key \"" + VMEX_LOCKED_ENT + "\" and obfuscated targetnames");
-
-        int targetnames = 0;
-        int targetnamesObfs = 0;
-
-        for (Entity ent : bsp.entities) {
-            String targetName = ent.getTargetName();
+    /**
+     * Checks for the entity lock key and obfuscated target names
+     */
+    @Override
+    public void visitEntity(Entity ent) {
+        String targetName = ent.getTargetName();
 
-            // check for obfuscated target names
-            if (targetName != null) {
-                targetnames++;
+        // check for obfuscated target names
+        if (targetName != null) {
+            targetnames++;
 
-                if (targetName.matches("^[0-9]+$")) {
-                    targetnamesObfs++;
-                }
-            }
-
-            // search for no_decomp entity property
-            for (String key : ent.getKeys()) {
-                if (key.equals(VMEX_LOCKED_ENT)) {
-                    L.debug("Found lock key!");
-                    protEntities.add(ent);
-                    flaggedEnt = true;
-                }
+            if (targetName.matches("^[0-9]+$")) {
+                targetnamesObfs++;
             }
         }
 
-        // all targetnames are numeric?
-        obfuscatedEnt = targetnames > 0 && targetnames == targetnamesObfs;
-        if (obfuscatedEnt) {
-            L.debug("Found obfuscation!");
+        // search for no_decomp entity property
+        if (ent.hasKey(VMEX_LOCKED_ENT)) {
+            L.debug("Found lock key!");
+            protEntities.add(ent);
+            flaggedEnt = true;
         }
     }
 
@@ -337,25 +382,11 @@ public class BspProtection extends ModuleRead {
      * The visible entitly lump will contain the worldspawn only if the
      * map file has been encrypted with this tool.
      */
-    private void checkPakfile() {
-        L.debug("Checking for encrypted entities inside pakfile (file: \"" + BSPPROTECT_FILE + "\")");
-
-        // BSPProtect currently works with Source 2007/2009 aka Orange Box only
-        if (bspFile.getVersion() != 20) {
-            encryptedEnt = false;
-            return;
-        }
-
-        try (ZipFile zip = bspFile.getPakFile().getZipFile()) {
-            if (zip.getEntries(BSPPROTECT_FILE).iterator().hasNext()) {
-                L.debug("Found encrypted entities!");
-                encryptedEnt = true;
-            }
-        } catch (IOException ex) {
-            L.warn("Couldn't read pakfile", ex);
-
-            // pakfile broken or missing?
-            encryptedEnt = false;
+    @Override
+    public void visitPakEntry(ZipArchiveEntry entry) {
+        if (entry.getName().equals(BSPPROTECT_FILE)) {
+            L.debug("Found encrypted entities!");
+            encryptedEnt = true;
         }
     }
 
@@ -12,13 +12,13 @@ package info.ata4.bspsrc.decompiler.modules;
 import info.ata4.bspsrc.common.util.AlphanumComparator;
 import info.ata4.bspsrc.decompiler.VmfWriter;
 import info.ata4.bspsrc.decompiler.modules.entity.Camera;
+import info.ata4.bspsrc.decompiler.util.IntTable;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.struct.Color32;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.awt.*;
-import java.util.List;
 import java.util.*;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -36,12 +36,16 @@ public class VmfMeta extends ModuleDecompile {
     private final Random random = new Random();
 
     // UID mappings
-    private Map<Integer, Integer> faceUIDs = new HashMap<>();
-    private Map<Integer, Integer> origFaceUIDs = new HashMap<>();
-    private Map<Integer, Integer> dispinfoUIDs = new HashMap<>();
+    private final IntTable faceUIDs = new IntTable();
+    private final IntTable origFaceUIDs = new IntTable();
+    private final IntTable dispinfoUIDs = new IntTable();
 
-    // UID blacklist
-    private Set<Integer> uidbl = new HashSet<>();
+    // UID blacklist, as bits for all UIDs below UIDBL_BITS_MAX. Others are
+    // rare and would only be reached on absurdly large maps, so they're kept
+    // in a set instead of growing the bits without limit
+    private static final int UIDBL_BITS_MAX = 1 << 24;
+    private final BitSet uidbl = new BitSet();
+    private final Set<Integer> uidblLarge = new HashSet<>();
 
     // VMF unique ID
     private int uid = 0;
@@ -78,8 +82,22 @@ public class VmfMeta extends ModuleDecompile {
         }
     }
 
-    public Set<Integer> getUIDBlackList() {
-        return uidbl;
+    /**
+     * Prevents {@link #getUID} from returning the given UID, because it's
+     * already used elsewhere.
+     * 
+     * @param id UID to blacklist
+     */
+    public void blacklistUID(int id) {
+        if (id >= 0 && id < UIDBL_BITS_MAX) {
+            uidbl.set(id);
+        } else {
+            uidblLarge.add(id);
+        }
+    }
+
+    private boolean isBlacklistedUID(int id) {
+        return id >= 0 && id < UIDBL_BITS_MAX ? uidbl.get(id) : uidblLarge.contains(id);
     }
 
     /**
@@ -88,13 +106,13 @@ public class VmfMeta extends ModuleDecompile {
      * @return UID
      */
     public int getUID() {
-        if (uidbl.isEmpty()) {
+        if (uidbl.isEmpty() && uidblLarge.isEmpty()) {
             return uid++;
         } else {
             // increment ID until it's not found in the blacklist anymore
             do {
                 uid++;
-            } while (uidbl.contains(uid));
+            } while (isBlacklistedUID(uid));
 
             return uid;
         }
@@ -111,7 +129,7 @@ public class VmfMeta extends ModuleDecompile {
         if (faceUIDs.containsKey(iface)) {
             return faceUIDs.get(iface);
         } else {
-            // try origface
+            // try origface, which is -1 and therefore not found if there is none
             int ioface = bsp.faces.get(iface).origFace;
             if (origFaceUIDs.containsKey(ioface)) {
                 return origFaceUIDs.get(ioface);
@@ -127,9 +145,9 @@ public class VmfMeta extends ModuleDecompile {
      * 
      * @param iface face index
      * @param id VMF UID generated by {@link #getUID}
-     * @return previously mapped UID or <tt>null</tt> if there was no mapping
+     * @return previously mapped UID or -1 if there was no mapping
      */
-    public Integer setFaceUID(int iface, int id) {
+    public int setFaceUID(int iface, int id) {
         return faceUIDs.put(iface, id);
     }
 
@@ -138,9 +156,9 @@ public class VmfMeta extends ModuleDecompile {
      * 
      * @param iface face index
      * @param id VMF UID generated by {@link #getUID}
-     * @return previously mapped UID or <tt>null</tt> if there was no mapping
+     * @return previously mapped UID or -1 if there was no mapping
      */
-    public Integer setOrigFaceUID(int iface, int id) {
+    public int setOrigFaceUID(int iface, int id) {
         return origFaceUIDs.put(iface, id);
     }
 
@@ -151,12 +169,7 @@ public class VmfMeta extends ModuleDecompile {
      * @return brush side ID or -1 if the index isn't mapped yet
      */
     public int getDispInfoUID(int idispinfo) {
-        if (dispinfoUIDs.containsKey(idispinfo)) {
-            return dispinfoUIDs.get(idispinfo);
-        }
-
-        // not found
-        return -1;
+        return dispinfoUIDs.get(idispinfo);
     }
 
     /**
@@ -164,9 +177,9 @@ public class VmfMeta extends ModuleDecompile {
      * 
      * @param idispinfo dispinfo index
      * @param id VMF UID generated by {@link #getUID}
-     * @return previously mapped UID or <tt>null</tt> if there was no mapping
+     * @return previously mapped UID or -1 if there was no mapping
      */
-    public Integer setDispInfoUID(int idispinfo, int id) {
+    public int setDispInfoUID(int idispinfo, int id) {
         return dispinfoUIDs.put(idispinfo, id);
     }
 
@@ -219,9 +232,9 @@ public class VmfMeta extends ModuleDecompile {
         writer.put("name", visgroup.name);
         writer.put("visgroupid", visgroup.id);
         writer.put("color", String.format("%s %s %s",
-                visgroup.getColor().getRed(),
-                visgroup.getColor().getBlue(),
-                visgroup.getColor().getGreen()));
+                visgroup.getColor().r,
+                visgroup.getColor().b,
+                visgroup.getColor().g));
 
         visgroup.visgroups.forEach(this::writeVisgroup);
 
@@ -379,7 +392,7 @@ public class VmfMeta extends ModuleDecompile {
     {
         private final String name;
         private final int id;
-        private Color color;
+        private Color32 color;
 
         private final Visgroup parent;
         private final SortedSet<Visgroup> visgroups = new TreeSet<>(Comparator.comparing(vg -> vg.name, AlphanumComparator.COMPARATOR));
@@ -461,13 +474,13 @@ public class VmfMeta extends ModuleDecompile {
             return Stream.concat(Stream.of(this), visgroups.stream().flatMap(Visgroup::visgroupStream));
         }
 
-        public Visgroup setColor(Color color) {
+        public Visgroup setColor(Color32 color) {
             Objects.requireNonNull(color);
             this.color = color;
             return this;
         }
 
-        public Color getColor() {
+        public Color32 getColor() {
             return color;
         }
 
@@ -486,11 +499,11 @@ public class VmfMeta extends ModuleDecompile {
             return id;
         }
 
-        private Color getNewVisgroupColor() {
+        private Color32 getNewVisgroupColor() {
             float hue = random.nextFloat();
             float saturation = random.nextFloat() * 0.8f + 0.1f;
             float luminance = random.nextFloat() * 0.4f + 0.5f;
-            return Color.getHSBColor(hue, saturation, luminance);
+            return Color32.fromHSB(hue, saturation, luminance);
         }
     }
 
@@ -33,12 +33,11 @@ import info.ata4.bspsrc.lib.vector.Vector3f;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.awt.*;
 import java.util.*;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
@@ -57,6 +56,12 @@ public class EntitySource extends ModuleDecompile {
 
     private static final Pattern INSTANCE_PREFIX = Pattern.compile("^([^-]+)-");
 
+    // visgroup colors
+    private static final Color32 GREEN = new Color32(0, 255, 0, 255);
+    private static final Color32 RED = new Color32(255, 0, 0, 255);
+    private static final Color32 CYAN = new Color32(0, 255, 255, 255);
+    private static final Color32 MAGENTA = new Color32(255, 0, 255, 255);
+
     private final WindingFactory windingFactory;
     private final BrushBounds brushBounds;
 
@@ -69,6 +74,7 @@ public class EntitySource extends ModuleDecompile {
     private final VmfMeta vmfmeta;
     private final BrushSideFaceMapper brushSideFaceMapper;
 
+    private final PortalIndex portalIndex;
     private final AreaportalMapper.ReallocationData areaportalReallocationData;
     private final OccluderMapper.ReallocationData occluderReallocationData;
 
@@ -90,6 +96,7 @@ public class EntitySource extends ModuleDecompile {
             BrushSideFaceMapper brushSideFaceMapper,
             WindingFactory windingFactory,
             BrushBounds brushBounds,
+            PortalIndex portalIndex,
             AreaportalMapper.ReallocationData areaportalReallocationData,
             OccluderMapper.ReallocationData occluderReallocationData
     ) {
@@ -106,6 +113,7 @@ public class EntitySource extends ModuleDecompile {
         this.vmfmeta = requireNonNull(vmfmeta);
         this.brushSideFaceMapper = requireNonNull(brushSideFaceMapper);
 
+        this.portalIndex = requireNonNull(portalIndex);
         this.areaportalReallocationData = requireNonNull(areaportalReallocationData);
         this.occluderReallocationData = requireNonNull(occluderReallocationData);
 
@@ -151,22 +159,22 @@ public class EntitySource extends ModuleDecompile {
         VmfMeta.Visgroup reallocatedVg = vmfmeta
                 .visgroups()
                 .getVisgroup("Reallocated")
-                .setColor(Color.GREEN);
+                .setColor(GREEN);
 
         VmfMeta.Visgroup rebuildVg = vmfmeta
                 .visgroups()
                 .getVisgroup("Rebuild")
-                .setColor(Color.RED);
+                .setColor(RED);
 
         VmfMeta.Visgroup reallocatedAreaportalVg = reallocatedVg.getVisgroup("Areaportal")
-                .setColor(Color.CYAN);
+                .setColor(CYAN);
         VmfMeta.Visgroup rebuildAreaportalVg = rebuildVg.getVisgroup("Areaportal")
-                .setColor(Color.CYAN.darker());
+                .setColor(CYAN.darker());
 
         VmfMeta.Visgroup reallocatedOccluderVg = reallocatedVg.getVisgroup("Occluder")
-                .setColor(Color.MAGENTA);
+                .setColor(MAGENTA);
         VmfMeta.Visgroup rebuildOccluderVg = rebuildVg.getVisgroup("Occluder")
-                .setColor(Color.MAGENTA.darker());
+                .setColor(MAGENTA.darker());
 
 
         List<VmfMeta.Visgroup> visgroups = new ArrayList<>();
@@ -261,17 +269,14 @@ public class EntitySource extends ModuleDecompile {
                     ));
                     continue;
                 }
-                int finalPortalNum = portalNum;
-                var areaportalsWithPortalKey = bsp.areaportals.stream()
-                        .filter(areaportal -> areaportal.portalKey == finalPortalNum)
-                        .collect(Collectors.toSet());
+                var areaportalsWithPortalKey = portalIndex.getAreaportals(portalNum);
                 if (areaportalsWithPortalKey.isEmpty()) {
                     L.warn("func_areaportal entity links to a non existing areaportal, skipping...");
                     continue;
                 }
                 
                 var areaportalsHaveInvalidGeometry = areaportalsWithPortalKey.stream()
-                        .anyMatch(areaportal -> areaportal.clipPortalVerts < 3);
+                        .anyMatch(iAreaportal -> bsp.areaportals.get(iAreaportal).clipPortalVerts < 3);
                 if (areaportalsHaveInvalidGeometry) {
                     L.warn("func_areaportal links areaportal with invalid geometry, skipping...");
                     continue;
@@ -398,7 +403,10 @@ public class EntitySource extends ModuleDecompile {
                         brushsrc.writeBrush(reallocatedIBrush);
                         visgroups.add(reallocatedAreaportalVg);
                     } else {
-                        facesrc.writeAreaportal(portalNum);
+                        // write only once, even though there are two DAreaportal's with
+                        // that key, their geometries are identical
+                        var iAreaportal = portalIndex.getAreaportals(portalNum).getFirst();
+                        facesrc.writeAreaportal(bsp.areaportals.get(iAreaportal));
                         visgroups.add(rebuildAreaportalVg);
                     }
 
@@ -480,57 +488,29 @@ public class EntitySource extends ModuleDecompile {
     public void writeDetails() {
         L.info("Writing func_details");
 
-        Set<DBrush> funcDetailBrushes = bsp.brushes.stream()
-                .filter(brushsrc::isFuncDetail)
-                .filter(dBrush -> !bspprot.isProtectedBrush(dBrush))
-                .collect(Collectors.toSet());
+        int[] funcDetailBrushes = IntStream.range(0, bsp.brushes.size())
+                .filter(ibrush -> brushsrc.isFuncDetail(bsp.brushes.get(ibrush)))
+                .filter(ibrush -> !bspprot.isProtectedBrush(ibrush))
+                .toArray();
 
-        Set<Set<DBrush>> funcDetailBrushGroups;
+        List<int[]> funcDetailBrushGroups;
 
         if (config.detailMerge) {
-            int newGroupId = 0;
-            Map<DBrush, Integer> brushGroups = new HashMap<>();
-            for (DBrush funcDetailBrush : funcDetailBrushes) {
-                AABB bounds = brushBounds.getBounds(bsp, funcDetailBrush);
-                AABB extendedBounds = bounds.expand(config.detailMergeThresh);
-
-                // get all ids of groups that touch this brush
-                Set<Integer> intersectingGroupIds = new HashSet<>();
-                brushGroups.forEach((dBrush, groupId) -> {
-                    if (!intersectingGroupIds.contains(groupId)) {
-                        AABB otherBrushBounds = brushBounds.getBounds(bsp, dBrush);
-                        if (extendedBounds.intersectsWith(otherBrushBounds)) {
-                            intersectingGroupIds.add(groupId);
-                        }
-                    }
-                });
-
-                if (!intersectingGroupIds.isEmpty()) {
-                    int finalNewGroupId = newGroupId;
-                    brushGroups.replaceAll((dBrush, groupId) -> {
-                        return intersectingGroupIds.contains(groupId) ? finalNewGroupId : groupId;
-                    });
-                }
-                brushGroups.put(funcDetailBrush, newGroupId++);
-            }
-
-            Map<Integer, Set<DBrush>> inverseBrushGroups = new HashMap<>();
-            brushGroups.forEach((dBrush, groupId) -> inverseBrushGroups.computeIfAbsent(groupId, HashSet::new).add(dBrush));
-            funcDetailBrushGroups = new HashSet<>(inverseBrushGroups.values());
+            funcDetailBrushGroups = mergeDetailBrushes(funcDetailBrushes);
         } else {
-            funcDetailBrushGroups = funcDetailBrushes.stream()
-                    .map(Collections::singleton)
-                    .collect(Collectors.toSet());
+            funcDetailBrushGroups = Arrays.stream(funcDetailBrushes)
+                    .mapToObj(ibrush -> new int[] {ibrush})
+                    .toList();
         }
 
-        for (Set<DBrush> funcDetailBrushGroup : funcDetailBrushGroups) {
+        for (int[] funcDetailBrushGroup : funcDetailBrushGroups) {
             writer.start("entity");
             writer.put("id", vmfmeta.getUID());
             writer.put("classname", "func_detail");
 
-            funcDetailBrushGroup.stream()
-                    .map(bsp.brushes::indexOf)
-                    .forEach(brushsrc::writeBrush);
+            for (int ibrush : funcDetailBrushGroup) {
+                brushsrc.writeBrush(ibrush);
+            }
 
             writer.end("entity");
         }
@@ -538,21 +518,54 @@ public class EntitySource extends ModuleDecompile {
         // TODO: doesn't this cause all protected brushes to be written as func_detail
         //  (and therefore also causing some brushes to be written twice)?
         // write protector brushes separately
-        List<DBrush> protBrushes = bspprot.getProtectedBrushes();
-        if (!protBrushes.isEmpty()) {
+        int[] protBrushes = bspprot.getProtectedBrushes();
+        if (protBrushes.length > 0) {
             writer.start("entity");
             writer.put("id", vmfmeta.getUID());
             writer.put("classname", "func_detail");
             vmfmeta.writeMetaVisgroup("VMEX protector brushes");
 
-            for (DBrush protBrush : protBrushes) {
-                brushsrc.writeBrush(bsp.brushes.indexOf(protBrush));
+            for (int ibrush : protBrushes) {
+                brushsrc.writeBrush(ibrush);
             }
 
             writer.end("entity");
         }
     }
     
+    /**
+     * Groups detail brushes whose bounds, expanded by the merge threshold,
+     * touch each other, directly or through other brushes of the group.
+     *
+     * @param brushIndices indices of the brushes to merge, in ascending order
+     * @return groups of brush indices, ordered by their first brush index
+     */
+    private List<int[]> mergeDetailBrushes(int[] brushIndices) {
+        List<AABB> bounds = new ArrayList<>(brushIndices.length);
+        for (int ibrush : brushIndices) {
+            bounds.add(brushBounds.getBounds(bsp, ibrush));
+        }
+
+        var index = new AABBIndex(AABBIndex.cellSizeFor(bounds, 2 * config.detailMergeThresh));
+        var groups = new UnionFind(brushIndices.length);
+
+        for (int i = 0; i < brushIndices.length; i++) {
+            int current = i;
+            index.forEachIntersecting(bounds.get(i).expand(config.detailMergeThresh),
+                    other -> groups.union(current, other));
+            index.add(i, bounds.get(i));
+        }
+
+        List<int[]> brushGroups = groups.groups();
+        for (int[] group : brushGroups) {
+            for (int i = 0; i < group.length; i++) {
+                group[i] = brushIndices[group[i]];
+            }
+        }
+
+        return brushGroups;
+    }
+
     public void writeVisClusters() {
         L.info("Writing func_viscluster");
         
@@ -1022,7 +1035,7 @@ public class EntitySource extends ModuleDecompile {
             // for anything else
             int hammerid = getHammerID(ent);
             if (hammerid != -1) {
-                vmfmeta.getUIDBlackList().add(hammerid);
+                vmfmeta.blacklistUID(hammerid);
             }
         }
     }
@@ -1119,6 +1132,6 @@ public class EntitySource extends ModuleDecompile {
                 L.error("Error reserving visgroup ids for Nmrih Objectives", e);
             }
         }
-        nmoData.extractions.forEach(extraction -> vmfmeta.getUIDBlackList().add(extraction.id));
+        nmoData.extractions.forEach(extraction -> vmfmeta.blacklistUID(extraction.id));
     }
 }
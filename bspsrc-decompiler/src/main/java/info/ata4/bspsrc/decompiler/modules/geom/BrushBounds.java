@@ -15,21 +15,24 @@ import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.struct.BspData;
 import info.ata4.bspsrc.lib.struct.DBrush;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.stream.IntStream;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * Brush utility class.
+ * <p>
+ * The bounds are cached lazily without any synchronization, so an instance
+ * must not be used by multiple threads at the same time.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class BrushBounds {
 
     private final WindingFactory windingFactory;
-    private final Map<DBrush, AABB> aabbCache = new HashMap<>();
+
+    // bounds by brush index
+    private AABB[] aabbCache = new AABB[0];
 
     public BrushBounds(WindingFactory windingFactory) {
         this.windingFactory = requireNonNull(windingFactory);
@@ -40,17 +43,25 @@ public class BrushBounds {
      * its brush sides.
      *
      * @param bsp bsp data
-     * @param brush a brush
+     * @param ibrush brush index
      * @return the bounding box of the brush
      */
-    public AABB getBounds(BspData bsp, DBrush brush) {
-        // add bounds of all brush sides
-        return aabbCache.computeIfAbsent(
-                brush,
-                dBrush -> IntStream.range(0, brush.numside)
-                        .mapToObj(i -> windingFactory.fromSide(bsp, brush, i))
-                        .map(Winding::getBounds)
-                        .reduce(AABB.ZERO, AABB::include)
-        );
+    public AABB getBounds(BspData bsp, int ibrush) {
+        if (aabbCache.length != bsp.brushes.size()) {
+            aabbCache = new AABB[bsp.brushes.size()];
+        }
+
+        AABB bounds = aabbCache[ibrush];
+        if (bounds == null) {
+            // add bounds of all brush sides
+            DBrush brush = bsp.brushes.get(ibrush);
+            bounds = IntStream.range(0, brush.numside)
+                    .mapToObj(i -> windingFactory.fromSide(bsp, brush, i))
+                    .map(Winding::getBounds)
+                    .reduce(AABB.ZERO, AABB::include);
+            aabbCache[ibrush] = bounds;
+        }
+
+        return bounds;
     }
 }
@@ -11,10 +11,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
-import static info.ata4.bspsrc.common.util.JavaUtil.mapGetOrDefault;
 import static java.util.Objects.requireNonNull;
 
 public class BrushSideFaceMapper extends ModuleRead {
@@ -27,9 +26,13 @@ public class BrushSideFaceMapper extends ModuleRead {
 	private final WindingFactory windingFactory;
 
 	// This is modelled with the assumption that the relation between brushsides and original faces is always N to 1
-	// So in other words any particular brushside can only ever have 0 or 1 original face
-	public final Map<Integer, Integer> brushSideToOrigFace = new HashMap<>();
-	public final Map<Integer, HashSet<Integer>> origFaceToBrushSide = new HashMap<>();
+	// So in other words any particular brushside can only ever have 0 or 1 original face, -1 meaning none
+	private int[] brushSideToOrigFace = new int[0];
+
+	// brushsides of original face i are at [origFaceBrushSideStarts[i], origFaceBrushSideStarts[i + 1]),
+	// in ascending order
+	private int[] origFaceBrushSideStarts = new int[1];
+	private int[] origFaceBrushSides = new int[0];
 
 	public BrushSideFaceMapper(BspFileReader reader, WindingFactory windingFactory) {
 		super(reader);
@@ -37,6 +40,13 @@ public class BrushSideFaceMapper extends ModuleRead {
 		this.windingFactory = requireNonNull(windingFactory);
 	}
 
+	/**
+	 * Matches all brushsides to original faces.
+	 * <p>
+	 * A brushside can only match faces with the same {@link FaceIndexKey}, so the brushsides are
+	 * grouped by their key and the groups are matched in parallel. Each group is processed in the
+	 * order of the brushes and faces, which makes the result independent of the thread scheduling.
+	 */
 	public void load() {
 		reader.loadOriginalFaces();
 		reader.loadFaces();
@@ -45,8 +55,30 @@ public class BrushSideFaceMapper extends ModuleRead {
 		reader.loadEdges();
 		reader.loadVertices();
 
-		identifyExactMatches();
-		identifyMergedMatches();
+		brushSideToOrigFace = new int[bsp.brushSides.size()];
+		Arrays.fill(brushSideToOrigFace, -1);
+
+		var brushSideGroups = groupBrushSides();
+		identifyExactMatches(brushSideGroups);
+		identifyMergedMatches(brushSideGroups);
+		indexOrigFaces();
+	}
+
+	/**
+	 * @return brushsides grouped by their {@link FaceIndexKey}, in the order of the brushes
+	 */
+	private List<BrushSideGroup> groupBrushSides() {
+		var groups = new LinkedHashMap<FaceIndexKey, BrushSideGroup>();
+		for (DBrush brush : bsp.brushes) {
+			for (int i = 0; i < brush.numside; i++) {
+				int brushSideIndex = brush.fstside + i;
+				var key = FaceIndexKey.fromBrushSide(bsp.brushSides.get(brushSideIndex));
+				groups.computeIfAbsent(key, k -> new BrushSideGroup(k, new ArrayList<>()))
+						.sides()
+						.add(new BrushSideRef(brush, brushSideIndex));
+			}
+		}
+		return new ArrayList<>(groups.values());
 	}
 
 	/**
@@ -55,66 +87,75 @@ public class BrushSideFaceMapper extends ModuleRead {
 	 * <p>
 	 * Currently, this also checks for dispInfo, even though in practice brushsides always seem
 	 * to have dispInfo of 0
+	 * <p>
+	 * Every original face is matched at most once. If several original faces match a brushside, the
+	 * one with the lowest index is used.
 	 */
-	private void identifyExactMatches() {
+	private void identifyExactMatches(List<BrushSideGroup> brushSideGroups) {
 
 		// setup index for fast searching
-		Map<FaceIndexKey, Set<Integer>> origFaceIndex = IntStream.range(0, bsp.origFaces.size())
-				.boxed()
-				.collect(Collectors.groupingBy(
-						origFaceI -> FaceIndexKey.fromFace(bsp.origFaces.get(origFaceI)),
-						Collectors.toCollection(HashSet::new)
-				));
+		Map<FaceIndexKey, int[]> origFaceIndex = indexFaces(bsp.origFaces);
 
 		// for every brushside find a matching original face
-		for (DBrush brush : bsp.brushes) {
-			for (int i = 0; i < brush.numside; i++) {
-				int brushSideIndex = brush.fstside + i;
-				DBrushSide brushSide = bsp.brushSides.get(brushSideIndex);
-				Winding brushSideWinding = windingFactory.fromSide(bsp, brush, brushSide);
-
-				Set<Integer> potentialFaces = origFaceIndex.getOrDefault(
-						FaceIndexKey.fromBrushSide(brushSide),
-						Collections.emptySet()
-				);
-				potentialFaces.stream()
-						.filter(origFaceI -> windingFactory.fromFace(bsp, bsp.origFaces.get(origFaceI))
-								.matches(brushSideWinding))
-						.findAny()
-						.ifPresent(origFaceI -> {
-							potentialFaces.remove(origFaceI); // remove it so it's not considered twice
-							brushSideToOrigFace.put(brushSideIndex, origFaceI);
-							origFaceToBrushSide.computeIfAbsent(origFaceI, key -> new HashSet<>())
-									.add(brushSideIndex);
-						});
+		brushSideGroups.parallelStream().forEach(group -> {
+			int[] potentialFaces = origFaceIndex.get(group.key());
+			if (potentialFaces == null)
+				return;
+
+			// faces that were already matched, so they're not considered twice
+			var matched = new boolean[potentialFaces.length];
+
+			for (BrushSideRef side : group.sides()) {
+				if (brushSideToOrigFace[side.index()] >= 0)
+					continue;
+
+				Winding brushSideWinding = windingFactory.fromSide(bsp, side.brush(), side.side());
+				for (int j = 0; j < potentialFaces.length; j++) {
+					if (!matched[j] && windingFactory.fromFace(bsp, bsp.origFaces.get(potentialFaces[j]))
+							.matches(brushSideWinding)) {
+						matched[j] = true;
+						brushSideToOrigFace[side.index()] = potentialFaces[j];
+						break;
+					}
+				}
 			}
-		}
+		});
 
-		Set<? extends DFace> remainingOrigFaces = origFaceIndex.values().stream()
-				.flatMap(Collection::stream)
-				.map(bsp.origFaces::get)
-				.collect(Collectors.toSet());
+		var origFaceMatched = new boolean[bsp.origFaces.size()];
+		int extractMatchesFound = 0;
+		for (int origFaceI : brushSideToOrigFace) {
+			if (origFaceI >= 0) {
+				origFaceMatched[origFaceI] = true;
+				extractMatchesFound++;
+			}
+		}
 
-		int extractMatchesFound = brushSideToOrigFace.size();
 		int extactMatchesPossible = bsp.brushSides.size();
 		L.info(String.format("%d (%.1f%%) exact brushside->origface matches",
 				extractMatchesFound, 100.0 * extractMatchesFound / extactMatchesPossible));
 
-		Map<Boolean, Long> partitionedRemainingOrigFacesCount = remainingOrigFaces.stream()
-				.collect(Collectors.partitioningBy(dFace -> dFace.dispInfo >= 0, Collectors.counting()));
-		Map<Boolean, Long> partitionedOrigFacesCount = bsp.origFaces.stream()
-				.collect(Collectors.partitioningBy(dFace -> dFace.dispInfo >= 0, Collectors.counting()));
-		var origFacesNonDispRemaining = partitionedRemainingOrigFacesCount.get(false);
-		var origFacesNonDispTotal = partitionedOrigFacesCount.get(false);
-		var origFacesDispRemaining = partitionedRemainingOrigFacesCount.get(true);
-		var origFacesDispTotal = partitionedOrigFacesCount.get(true);
+		long origFacesNonDispRemaining = 0;
+		long origFacesNonDispTotal = 0;
+		long origFacesDispRemaining = 0;
+		long origFacesDispTotal = 0;
+		for (int origFaceI = 0; origFaceI < bsp.origFaces.size(); origFaceI++) {
+			if (bsp.origFaces.get(origFaceI).dispInfo >= 0) {
+				origFacesDispTotal++;
+				if (!origFaceMatched[origFaceI])
+					origFacesDispRemaining++;
+			} else {
+				origFacesNonDispTotal++;
+				if (!origFaceMatched[origFaceI])
+					origFacesNonDispRemaining++;
+			}
+		}
 		L.info(String.format("%d (%.1f%%) nondisp and %d (%.1f%%) disp original faces left after exact brushside->origface matching",
 				origFacesNonDispRemaining, 100.0 * origFacesNonDispRemaining / origFacesNonDispTotal,
 				origFacesDispRemaining, 100.0 * origFacesDispRemaining / origFacesDispTotal));
 	}
 
 	/**
-	 * For some reason the matching process in {@link #identifyExactMatches()} doesn't identify
+	 * For some reason the matching process in {@link #identifyExactMatches(List)} doesn't identify
 	 * all matches. Some brushsides are still left, even though visually they seem to belong to some
 	 * original face.
 	 * <p>
@@ -128,67 +169,160 @@ public class BrushSideFaceMapper extends ModuleRead {
 	 * @see <a href="https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/mp/src/utils/vbsp/faces.cpp#L1086">
 	 *     https://github.com/ValveSoftware/source-sdk-2013/blob/0d8dceea4310fde5706b3ce1c70609d72a38efdf/mp/src/utils/vbsp/faces.cpp#L1086</a>
 	 */
-	private void identifyMergedMatches() {
+	private void identifyMergedMatches(List<BrushSideGroup> brushSideGroups) {
 
-		// setup index for fast searching
-		Map<FaceIndexKey, Set<Integer>> faceIndex = IntStream.range(0, bsp.faces.size())
-				.boxed()
-				.collect(Collectors.groupingBy(
-						faceI -> FaceIndexKey.fromFace(bsp.faces.get(faceI)),
-						Collectors.toCollection(HashSet::new)
-				));
+		// setup index for fast searching, only using faces that have an original face
+		Map<FaceIndexKey, int[]> faceIndex = indexFacesByOrigFace();
 
-		int oldMappingCount = brushSideToOrigFace.size();
+		int oldMappingCount = countMatches();
 
-		for (DBrush brush : bsp.brushes) {
-			for (int i = 0; i < brush.numside; i++) {
-				int brushSideIndex = brush.fstside + i;
+		brushSideGroups.parallelStream().forEach(group -> {
+			int[] potentialFaces = faceIndex.get(group.key());
+			if (potentialFaces == null)
+				return;
 
-				if (brushSideToOrigFace.containsKey(brushSideIndex))
+			for (BrushSideRef side : group.sides()) {
+				if (brushSideToOrigFace[side.index()] >= 0)
 					continue;
 
-				DBrushSide brushSide = bsp.brushSides.get(brushSideIndex);
-				Winding brushSideWinding = windingFactory.fromSide(bsp, brush, brushSide);
+				DBrushSide brushSide = bsp.brushSides.get(side.index());
+				Winding brushSideWinding = windingFactory.fromSide(bsp, side.brush(), side.side());
 				var normal = bsp.planes.get(brushSide.pnum).normal.toDouble();
 
-				Set<Integer> potentialFaces = faceIndex.getOrDefault(
-						FaceIndexKey.fromBrushSide(brushSide),
-						Collections.emptySet()
-				);
-				potentialFaces.stream()
-						.map(bsp.faces::get)
-						.filter(dFace -> dFace.origFace >= 0) // only use faces that have an original face
-						.collect(Collectors.groupingBy(
-								dFace -> dFace.origFace,
-								Collectors.summingDouble(dFace ->  windingFactory.fromFace(bsp, dFace)
-										.clipWinding(brushSideWinding, normal)
-										.getArea())
-						))
-						.entrySet()
-						.stream()
-						.filter(entry -> entry.getValue() > AREA_EPS)
-						.max(Map.Entry.comparingByKey())
-						.map(Map.Entry::getKey)
-						.ifPresent(origFaceI -> {
-							brushSideToOrigFace.put(brushSideIndex, origFaceI);
-							origFaceToBrushSide.computeIfAbsent(origFaceI, key -> new HashSet<>())
-									.add(brushSideIndex);
-						});
+				// the faces are sorted by original face, so the overlap of each original face can be
+				// summed up in one run, starting with the highest original face, which wins ties
+				int end = potentialFaces.length;
+				while (end > 0) {
+					int origFaceI = bsp.faces.get(potentialFaces[end - 1]).origFace;
+					int start = end - 1;
+					while (start > 0 && bsp.faces.get(potentialFaces[start - 1]).origFace == origFaceI)
+						start--;
+
+					double area = 0;
+					for (int j = start; j < end; j++) {
+						area += windingFactory.fromFace(bsp, bsp.faces.get(potentialFaces[j]))
+								.clipWinding(brushSideWinding, normal)
+								.getArea();
+					}
+
+					if (area > AREA_EPS) {
+						brushSideToOrigFace[side.index()] = origFaceI;
+						break;
+					}
+
+					end = start;
+				}
 			}
-		}
+		});
 
-		int newMatchesCount = brushSideToOrigFace.size() - oldMappingCount;
+		int newMatchesCount = countMatches() - oldMappingCount;
 		L.info(String.format("%d (%.1f%%) partial brushside->origface matches",
 				newMatchesCount, 100.0 * newMatchesCount / bsp.brushSides.size()
 		));
 	}
 
+	/**
+	 * Creates the reverse mapping from original faces to brushsides.
+	 */
+	private void indexOrigFaces() {
+		int origFaceCount = bsp.origFaces.size();
+
+		int[] starts = new int[origFaceCount + 1];
+		for (int origFaceI : brushSideToOrigFace) {
+			if (origFaceI >= 0)
+				starts[origFaceI + 1]++;
+		}
+		for (int i = 0; i < origFaceCount; i++) {
+			starts[i + 1] += starts[i];
+		}
+
+		int[] next = Arrays.copyOf(starts, origFaceCount);
+		int[] brushSides = new int[starts[origFaceCount]];
+		for (int brushSideI = 0; brushSideI < brushSideToOrigFace.length; brushSideI++) {
+			int origFaceI = brushSideToOrigFace[brushSideI];
+			if (origFaceI >= 0)
+				brushSides[next[origFaceI]++] = brushSideI;
+		}
+
+		origFaceBrushSideStarts = starts;
+		origFaceBrushSides = brushSides;
+	}
+
+	/**
+	 * @return ascending face indices grouped by their {@link FaceIndexKey}
+	 */
+	private static Map<FaceIndexKey, int[]> indexFaces(List<? extends DFace> faces) {
+		var index = new HashMap<FaceIndexKey, IntStream.Builder>();
+		for (int faceI = 0; faceI < faces.size(); faceI++) {
+			index.computeIfAbsent(FaceIndexKey.fromFace(faces.get(faceI)), k -> IntStream.builder())
+					.add(faceI);
+		}
+
+		var result = new HashMap<FaceIndexKey, int[]>();
+		index.forEach((key, builder) -> result.put(key, builder.build().toArray()));
+		return result;
+	}
+
+	/**
+	 * @return indices of the faces with an original face grouped by their {@link FaceIndexKey},
+	 * sorted by original face and then by index
+	 */
+	private Map<FaceIndexKey, int[]> indexFacesByOrigFace() {
+		var index = new HashMap<FaceIndexKey, LongStream.Builder>();
+		for (int faceI = 0; faceI < bsp.faces.size(); faceI++) {
+			DFace face = bsp.faces.get(faceI);
+			if (face.origFace < 0)
+				continue;
+
+			index.computeIfAbsent(FaceIndexKey.fromFace(face), k -> LongStream.builder())
+					.add((long) face.origFace << 32 | faceI);
+		}
+
+		var result = new HashMap<FaceIndexKey, int[]>();
+		index.forEach((key, builder) -> result.put(key, builder.build()
+				.sorted()
+				.mapToInt(sortKey -> (int) sortKey)
+				.toArray()));
+		return result;
+	}
+
+	private int countMatches() {
+		return (int) Arrays.stream(brushSideToOrigFace)
+				.filter(origFaceI -> origFaceI >= 0)
+				.count();
+	}
+
 	public Optional<Integer> getOrigFaceIndex(int brushSideI) {
-		return Optional.ofNullable(brushSideToOrigFace.get(brushSideI));
+		int origFaceI = brushSideI >= 0 && brushSideI < brushSideToOrigFace.length ? brushSideToOrigFace[brushSideI] : -1;
+		return origFaceI >= 0 ? Optional.of(origFaceI) : Optional.empty();
 	}
 
-	public Set<Integer> getBrushSideIndices(int origFaceI) {
-		return mapGetOrDefault(origFaceToBrushSide, origFaceI, Set.of());
+	/**
+	 * @return ascending indices of the brushsides mapped to the original face
+	 */
+	public int[] getBrushSideIndices(int origFaceI) {
+		if (origFaceI < 0 || origFaceI >= origFaceBrushSideStarts.length - 1)
+			return new int[0];
+
+		return Arrays.copyOfRange(origFaceBrushSides, origFaceBrushSideStarts[origFaceI],
+				origFaceBrushSideStarts[origFaceI + 1]);
+	}
+
+	private record BrushSideGroup(
+			FaceIndexKey key,
+			List<BrushSideRef> sides
+	) {}
+
+	private record BrushSideRef(
+			DBrush brush,
+			int index
+	) {
+		/**
+		 * @return index of the brushside within its brush
+		 */
+		public int side() {
+			return index - brush.fstside;
+		}
 	}
 
 	private record FaceIndexKey(
@@ -20,13 +20,14 @@ import info.ata4.bspsrc.decompiler.modules.texture.Texture;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureBuilder;
 import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
 import info.ata4.bspsrc.decompiler.util.BspTreeStats;
+import info.ata4.bspsrc.decompiler.util.IntTable;
 import info.ata4.bspsrc.decompiler.util.OccluderMapper;
+import info.ata4.bspsrc.decompiler.util.OrderedParallel;
 import info.ata4.bspsrc.decompiler.util.Winding;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFileReader;
 import info.ata4.bspsrc.lib.struct.DBrush;
 import info.ata4.bspsrc.lib.struct.DBrushSide;
-import info.ata4.bspsrc.lib.struct.DModel;
 import info.ata4.bspsrc.lib.vector.Vector3d;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -64,8 +65,8 @@ public class BrushSource extends ModuleDecompile {
     private int worldbrushes = 0;
 
     // brush side ID mappings
-    private Map<Integer, Integer> brushSideToID = new HashMap<>();
-    private Map<Integer, Integer> brushIndexToID = new HashMap<>();
+    private final IntTable brushSideToID = new IntTable();
+    private final IntTable brushIndexToID = new IntTable();
 
     public BrushSource(
             BspFileReader reader, VmfWriter writer,
@@ -75,6 +76,7 @@ public class BrushSource extends ModuleDecompile {
             VmfMeta vmfmeta,
             BrushSideFaceMapper brushSideFaceMapper,
             WindingFactory windingFactory,
+            BspTreeStats.ModelTrees trees,
             OccluderMapper.ReallocationData occReallocationData
     ) {
         super(reader, writer);
@@ -87,7 +89,7 @@ public class BrushSource extends ModuleDecompile {
         this.windingFactory = requireNonNull(windingFactory);
         this.occReallocationData = requireNonNull(occReallocationData);
 
-        assignBrushes();
+        assignBrushes(trees);
     }
 
     /**
@@ -107,12 +109,7 @@ public class BrushSource extends ModuleDecompile {
      * @return brush side ID or -1 if the index isn't mapped yet
      */
     public int getBrushSideIDForIndex(int ibrushside) {
-        if (brushSideToID.containsKey(ibrushside)) {
-            return brushSideToID.get(ibrushside);
-        }
-
-        // not found
-        return -1;
+        return brushSideToID.get(ibrushside);
     }
 
     /**
@@ -124,38 +121,20 @@ public class BrushSource extends ModuleDecompile {
      * @return brush ID or -1 if the index isn't mapped yet
      */
     public int getBrushIDForIndex(int ibrush) {
-        if (brushIndexToID.containsKey(ibrush)) {
-            return brushIndexToID.get(ibrush);
-        }
-
-        // not found
-        return -1;
+        return brushIndexToID.get(ibrush);
     }
 
     /**
-     * Walks the map's BSP tree to associate brushes with entities and to find
-     * the index of the last worldbrush.
+     * Uses the walked BSP trees to associate brushes with entities and to
+     * find the index of the last worldbrush.
      */
-    private void assignBrushes() {
-        // walk the BSP tree
-        // to from the headnode of each model
-        // to calculate the minimum and maximum brush in the tree
+    private void assignBrushes(BspTreeStats.ModelTrees trees) {
+        // the minimum and maximum brush in the tree of each model
         // much simpler than the guessing method
         // plus this recovers null-faced brushes
+        worldbrushes = trees.world().getMaxBrushLeaf() + 1;
 
-        BspTreeStats tl = new BspTreeStats(bsp);
-
-        // walk model 0 (worldspawn model)
-        tl.walk(0);
-
-        L.debug("Walked worldspawn tree");
-
-        worldbrushes = tl.getMaxBrushLeaf() + 1;
-
-        for (DModel model : bsp.models) {
-            tl.reset();
-            tl.walk(model.headnode);
-
+        for (BspTreeStats tl : trees.models()) {
             DBrushModel bmodel = new DBrushModel();
             bmodel.fstbrush = tl.getMinBrushLeaf();
             bmodel.numbrush = tl.getMaxBrushLeaf() - tl.getMinBrushLeaf() + 1;
@@ -172,6 +151,8 @@ public class BrushSource extends ModuleDecompile {
     public void writeBrushes() {
         L.info("Writing brushes and planes");
 
+        List<Integer> brushes = new ArrayList<>();
+
         for (int i = 0; i < worldbrushes; i++) {
             DBrush brush = bsp.brushes.get(i);
 
@@ -195,19 +176,39 @@ public class BrushSource extends ModuleDecompile {
             // NOTE: occluder brushes aren't worldbrushes, so they don't need to
             // be handled here
 
-            writeBrush(i);
+            brushes.add(i);
+        }
+
+        if (config.parallelDecompile) {
+            // windings and textures are built in parallel, the brushes are
+            // still written in order so the IDs match the serial output
+            OrderedParallel.forEach(brushes,
+                    ibrush -> prepareBrush(ibrush, null, null),
+                    this::writeBrush);
+        } else {
+            for (int ibrush : brushes) {
+                writeBrush(ibrush);
+            }
         }
     }
 
     public boolean writeBrush(int ibrush, Vector3d origin, Vector3d angles) {
-        DBrush brush = bsp.brushes.get(ibrush);
+        return writeBrush(ibrush, prepareBrush(ibrush, origin, angles));
+    }
 
-        int brushID = vmfmeta.getUID();
+    public boolean writeBrush(int ibrush) {
+        return writeBrush(ibrush, null, null);
+    }
 
-        // map brush index to ID
-        brushIndexToID.put(ibrush, brushID);
+    /**
+     * Builds the windings and textures of all valid sides of a brush. Doesn't
+     * write anything or allocate IDs, so it's safe to call from multiple
+     * threads.
+     */
+    private PreparedBrush prepareBrush(int ibrush, Vector3d origin, Vector3d angles) {
+        DBrush brush = bsp.brushes.get(ibrush);
 
-        Map<Integer, Winding> validBrushSides = new HashMap<>();
+        Map<Integer, PreparedSide> validBrushSides = new HashMap<>();
 
         // check and preprocess the brush sides before writing the brush
         for (int i = 0; i < brush.numside; i++) {
@@ -220,7 +221,7 @@ public class BrushSource extends ModuleDecompile {
             }
 
             try {
-                Winding wind = windingFactory.fromSide(bsp, brush, brushSide).removeDegenerated();
+                Winding wind = windingFactory.fromSide(bsp, brush, i).removeDegenerated();
 
                 // skip sides with no vertices
                 if (wind.isEmpty()) {
@@ -275,7 +276,7 @@ public class BrushSource extends ModuleDecompile {
                 }
 
                 // the brush side should be safe to write
-                validBrushSides.put(ibrushside, wind);
+                validBrushSides.put(ibrushside, prepareSide(ibrushside, ibrush, wind, origin, angles));
             } catch (BrushSideException ex) {
 	            if (config.debug) {
                     L.warn("Skipped side {} of brush {}: {}", i, ibrush, ex.getMessage());
@@ -284,6 +285,65 @@ public class BrushSource extends ModuleDecompile {
             }
         }
 
+        return new PreparedBrush(validBrushSides);
+    }
+
+    private PreparedSide prepareSide(int ibrushside, int ibrush, Winding wind, Vector3d origin, Vector3d angles) {
+        DBrushSide brushSide = bsp.brushSides.get(ibrushside);
+
+        // calculate plane vectors
+        var plane = wind.buildPlane();
+
+        var e1 = plane[0];
+        var e2 = plane[1];
+        var e3 = plane[2];
+
+        // calculate plane normal
+        // NOTE: the plane normal from the BSP could be invalid if the brush was
+        //       rotated! better re-calculate it every time.
+        var ev12 = e2.sub(e1);
+        var ev13 = e3.sub(e1);
+        var normal = ev12.cross(ev13).normalize();
+
+        // build texture
+        var tb = new TextureBuilder(bsp, texsrc, occReallocationData);
+
+        tb.setOrigin(origin);
+        tb.setAngles(angles);
+        tb.setNormal(normal);
+
+        tb.setTexinfoIndex(brushSide.texinfo);
+        tb.setBrushIndex(ibrush);
+        tb.setBrushSideIndex(ibrushside);
+
+        boolean potentialCompactedTexinf = !brushSideFaceMapper.getOrigFaceIndex(ibrushside).isPresent();
+        tb.setEnableTextureFixing(potentialCompactedTexinf);
+
+        Texture texture = tb.build();
+
+        // set custom face texture string
+        if (!config.faceTexture.isEmpty()) {
+            texture.setOverrideTexture(config.faceTexture);
+        }
+
+        int smoothingGroups = brushSideFaceMapper.getOrigFaceIndex(ibrushside)
+                .map(bsp.origFaces::get)
+                .map(dFace -> dFace.smoothingGroups)
+                .orElse(0);
+
+        return new PreparedSide(wind, plane, normal, texture, smoothingGroups);
+    }
+
+    private boolean writeBrush(int ibrush, PreparedBrush prepared) {
+        DBrush brush = bsp.brushes.get(ibrush);
+
+        int brushID = vmfmeta.getUID();
+
+        // map brush index to ID
+        brushIndexToID.put(ibrush, brushID);
+
+        Map<Integer, PreparedSide> validBrushSides = prepared.validBrushSides();
+
         // all brush sides invalid = invalid brush
         if (validBrushSides.isEmpty()) {
             L.warn("Skipped empty brush {}", ibrush);
@@ -310,14 +370,12 @@ public class BrushSource extends ModuleDecompile {
         }
 
         // write valid sides only
-        for (Map.Entry<Integer, Winding> entry : validBrushSides.entrySet()) {
-            int ibrushside = entry.getKey();
-            Winding wind = entry.getValue();
-            writeSide(ibrushside, ibrush, wind, origin, angles);
+        for (Map.Entry<Integer, PreparedSide> entry : validBrushSides.entrySet()) {
+            writeSide(entry.getKey(), entry.getValue());
         }
 
         // add visgroup metadata if this is a protector detail brush
-        if (!brush.isDetail() && bspprot.isProtectedBrush(brush)) {
+        if (!brush.isDetail() && bspprot.isProtectedBrush(ibrush)) {
             vmfmeta.writeMetaVisgroup("VMEX protector brushes");
         }
 
@@ -326,47 +384,14 @@ public class BrushSource extends ModuleDecompile {
         return true;
     }
 
-    public boolean writeBrush(int ibrush) {
-        return writeBrush(ibrush, null, null);
-    }
-
-    private boolean writeSide(int ibrushside, int ibrush, Winding wind, Vector3d origin, Vector3d angles) {
+    private boolean writeSide(int ibrushside, PreparedSide side) {
         DBrushSide brushSide = bsp.brushSides.get(ibrushside);
 
-        // calculate plane vectors
-        var plane = wind.buildPlane();
-
-        var e1 = plane[0];
-        var e2 = plane[1];
-        var e3 = plane[2];
-
-        // calculate plane normal
-        // NOTE: the plane normal from the BSP could be invalid if the brush was
-        //       rotated! better re-calculate it every time.
-        var ev12 = e2.sub(e1);
-        var ev13 = e3.sub(e1);
-        var normal = ev12.cross(ev13).normalize();
-
-        // build texture
-        var tb = new TextureBuilder(bsp, texsrc, occReallocationData);
-
-        tb.setOrigin(origin);
-        tb.setAngles(angles);
-        tb.setNormal(normal);
-
-        tb.setTexinfoIndex(brushSide.texinfo);
-        tb.setBrushIndex(ibrush);
-        tb.setBrushSideIndex(ibrushside);
-
-        boolean potentialCompactedTexinf = !brushSideFaceMapper.getOrigFaceIndex(ibrushside).isPresent();
-        tb.setEnableTextureFixing(potentialCompactedTexinf);
-
-        Texture texture = tb.build();
-
-        // set custom face texture string
-        if (!config.faceTexture.isEmpty()) {
-            texture.setOverrideTexture(config.faceTexture);
-        }
+        var e1 = side.plane()[0];
+        var e2 = side.plane()[1];
+        var e3 = side.plane()[2];
+        var normal = side.normal();
+        var texture = side.texture();
 
         int sideID = vmfmeta.getUID();
 
@@ -378,11 +403,6 @@ public class BrushSource extends ModuleDecompile {
         // map brush side index to brush side ID
         brushSideToID.put(ibrushside, sideID);
 
-        int smoothingGroups = brushSideFaceMapper.getOrigFaceIndex(ibrushside)
-                .map(bsp.origFaces::get)
-                .map(dFace -> dFace.smoothingGroups)
-                .orElse(0);
-
         writer.start("side");
         writer.put("id", sideID);
 
@@ -391,7 +411,7 @@ public class BrushSource extends ModuleDecompile {
             writer.start("bspsrc_debug");
             writer.put("brushside_index", ibrushside);
             writer.put("normal", normal);
-            writer.put("winding", wind.toString());
+            writer.put("winding", side.wind().toString());
 
             if (texture.getOverrideTexture() != null) {
                 writer.put("original_material", texture.getOriginalTexture());
@@ -418,7 +438,7 @@ public class BrushSource extends ModuleDecompile {
         }
 
         writer.put("plane", e1, e2, e3);
-        writer.put("smoothing_groups", smoothingGroups);
+        writer.put("smoothing_groups", side.smoothingGroups());
         writer.put(texture);
 
         writer.end("side");
@@ -456,6 +476,16 @@ public class BrushSource extends ModuleDecompile {
         private int numbrush;
     }
 
+    /**
+     * Valid sides of a brush, ready to be written.
+     */
+    private record PreparedBrush(Map<Integer, PreparedSide> validBrushSides) {
+    }
+
+    private record PreparedSide(Winding wind, Vector3d[] plane, Vector3d normal, Texture texture,
+            int smoothingGroups) {
+    }
+
     private static class BrushSideException extends Exception {
         BrushSideException(String message) {
             super(message);
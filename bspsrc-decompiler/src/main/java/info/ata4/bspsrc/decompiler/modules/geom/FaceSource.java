@@ -16,6 +16,7 @@ import info.ata4.bspsrc.decompiler.modules.ModuleDecompile;
 import info.ata4.bspsrc.decompiler.modules.VmfMeta;
 import info.ata4.bspsrc.decompiler.modules.texture.*;
 import info.ata4.bspsrc.decompiler.util.OccluderMapper;
+import info.ata4.bspsrc.decompiler.util.OrderedParallel;
 import info.ata4.bspsrc.decompiler.util.Winding;
 import info.ata4.bspsrc.decompiler.util.WindingFactory;
 import info.ata4.bspsrc.lib.BspFileReader;
@@ -54,8 +55,10 @@ public class FaceSource extends ModuleDecompile {
     private final TextureSource texsrc;
     private final VmfMeta vmfmeta;
 
-    // mapped original faces
-    public Map<Integer, Set<Integer>> origFaceToSplitFace = new HashMap<>();
+    // split faces of original face i are at [origFaceSplitFaceStarts[i], origFaceSplitFaceStarts[i + 1])
+    // in origFaceSplitFaces, in ascending order
+    private int[] origFaceSplitFaceStarts = new int[1];
+    private int[] origFaceSplitFaces = new int[0];
 
     // set of face indices that are undersized
     private Set<Integer> undersizedFaces = new HashSet<>();
@@ -175,18 +178,20 @@ public class FaceSource extends ModuleDecompile {
                     // oface is undersized! write it as split faces
                     sfaces++;
 
-                    Set<Integer> faces = origFaceToSplitFace.get(face.origFace);
+                    int start = origFaceSplitFaceStarts[face.origFace];
+                    int end = origFaceSplitFaceStarts[face.origFace + 1];
 
                     // iterate through the corresponding faces
-                    for (Integer iface2 : faces) {
-                        writeFace(iface2, false);
+                    for (int j = start; j < end; j++) {
+                        writeFace(origFaceSplitFaces[j], false);
                     }
 
                     if (L.isTraceEnabled()) {
                         StringBuilder sb = new StringBuilder();
                         sb.append("OF ").append(face.origFace).append(": ");
 
-                        for (Integer findex : faces) {
+                        for (int j = start; j < end; j++) {
+                            int findex = origFaceSplitFaces[j];
                             sb.append(findex).append(' ');
                         }
 
@@ -218,6 +223,11 @@ public class FaceSource extends ModuleDecompile {
             return;
         }
 
+        if (config.parallelDecompile) {
+            writeDispFacesParallel();
+            return;
+        }
+
         for (int i = 0; i < bsp.faces.size(); i++) {
             if (bsp.faces.get(i).dispInfo != -1) {
                 writeFace(i, false);
@@ -225,6 +235,46 @@ public class FaceSource extends ModuleDecompile {
         }
     }
 
+    /**
+     * Same as the serial part of {@link #writeDispFaces()}, but builds the
+     * face windings and displacement rows on multiple threads.
+     */
+    private void writeDispFacesParallel() {
+        List<Integer> dispFaces = new ArrayList<>();
+        for (int i = 0; i < bsp.faces.size(); i++) {
+            if (bsp.faces.get(i).dispInfo != -1) {
+                dispFaces.add(i);
+            }
+        }
+
+        List<FaceGeometry> geometries = dispFaces.parallelStream()
+                .map(iface -> buildFaceGeometry(bsp.faces.get(iface), null, null))
+                .toList();
+
+        // the multiblend offset depends on the order the displacements are
+        // written in, so it has to be assigned serially up front
+        List<PreparedDispFace> dispFacesToWrite = new ArrayList<>();
+        int offset = multiblendOffset;
+        for (int i = 0; i < dispFaces.size(); i++) {
+            if (geometries.get(i) == null) {
+                continue;
+            }
+
+            int iface = dispFaces.get(i);
+            dispFacesToWrite.add(new PreparedDispFace(iface, geometries.get(i), offset));
+
+            if (config.writeDisp && hasMultiBlend(bsp.dispinfos.get(bsp.faces.get(iface).dispInfo))) {
+                offset += bsp.dispinfos.get(bsp.faces.get(iface).dispInfo).getVertexCount();
+            }
+        }
+
+        OrderedParallel.forEach(dispFacesToWrite,
+                df -> config.writeDisp
+                        ? buildDisplacement(bsp.faces.get(df.iface()).dispInfo, df.multiblendOffset())
+                        : null,
+                (df, rows) -> writeFaceGeometry(df.iface(), false, df.geometry(), rows));
+    }
+
     public void writeModel(int imodel, Vector3d origin, Vector3d angles) {
         DModel model;
 
@@ -250,9 +300,27 @@ public class FaceSource extends ModuleDecompile {
     public void writeFace(int iface, boolean orig, Vector3d origin, Vector3d angles) {
         DFace face = orig ? bsp.origFaces.get(iface) : bsp.faces.get(iface);
 
+        FaceGeometry geometry = buildFaceGeometry(face, origin, angles);
+        if (geometry == null) {
+            return;
+        }
+
+        writeFaceGeometry(iface, orig, geometry, null);
+    }
+
+    public void writeFace(int iface, boolean orig) {
+        writeFace(iface, orig, null, null);
+    }
+
+    /**
+     * Builds the winding and plane of a face.
+     *
+     * @return the face geometry or {@code null} if the face can't be written
+     */
+    private FaceGeometry buildFaceGeometry(DFace face, Vector3d origin, Vector3d angles) {
         if (face.numedge < 2) {
             // 0 or 1 edges? Something must be wrong
-            return;
+            return null;
         }
 
         Winding wind = windingFactory.fromFace(bsp, face);
@@ -276,7 +344,7 @@ public class FaceSource extends ModuleDecompile {
 
         if (!e1.isValid() || !e2.isValid() || !e3.isValid()) {
             L.warn("Face with wind {} is invalid", wind);
-            return;
+            return null;
         }
 
         // calculate plane normal
@@ -287,9 +355,27 @@ public class FaceSource extends ModuleDecompile {
         if (normal.isNaN() || normal.isInfinite()) {
             // TODO: is there a way to fix/avoid this?
             L.debug("Bad normal: {} x {}", ev12, ev13);
-            return;
+            return null;
         }
 
+        return new FaceGeometry(wind, plane, normal, origin, angles);
+    }
+
+    /**
+     * Writes a flat face with a previously built geometry.
+     *
+     * @param dispRows displacement rows built in advance or {@code null} to
+     *                 build them now
+     */
+    private void writeFaceGeometry(int iface, boolean orig, FaceGeometry geometry, DispInfoRows dispRows) {
+        DFace face = orig ? bsp.origFaces.get(iface) : bsp.faces.get(iface);
+
+        Winding wind = geometry.wind();
+        var e1 = geometry.plane()[0];
+        var e2 = geometry.plane()[1];
+        var e3 = geometry.plane()[2];
+        var normal = geometry.normal();
+
         writer.start("solid");
         writer.put("id", vmfmeta.getUID());
 
@@ -319,8 +405,8 @@ public class FaceSource extends ModuleDecompile {
         // build texture
         var tb = new TextureBuilder(bsp, texsrc, occReallocationData);
 
-        tb.setOrigin(origin);
-        tb.setAngles(angles);
+        tb.setOrigin(geometry.origin());
+        tb.setAngles(geometry.angles());
         tb.setNormal(normal);
 
         tb.setTexinfoIndex(face.texinfo);
@@ -350,7 +436,11 @@ public class FaceSource extends ModuleDecompile {
             // map face index to brush side ID
             vmfmeta.setDispInfoUID(face.dispInfo, sideID);
             // write dispinfo section
-            writeDisplacement(face.dispInfo);
+            if (dispRows != null) {
+                writeDisplacement(dispRows);
+            } else {
+                writeDisplacement(face.dispInfo);
+            }
         }
 
         writer.end("side");
@@ -370,10 +460,6 @@ public class FaceSource extends ModuleDecompile {
         writer.end("solid");
     }
 
-    public void writeFace(int iface, boolean orig) {
-        writeFace(iface, orig, null, null);
-    }
-
     /**
      * Writes prismatic back brush sides for a face
      */
@@ -467,18 +553,6 @@ public class FaceSource extends ModuleDecompile {
         writePyramBack(wind, texture, config.backfaceDepth);
     }
 
-    public void writeAreaportal(int portalKey) {
-        for (DAreaportal ap : bsp.areaportals) {
-            if (ap.portalKey == portalKey) {
-                writeAreaportal(ap);
-                // write only once, even though there are two DAreaportal's with
-                // that key, their geometries are identical
-                return;
-            }
-        }
-        L.warn("Tried to write non existing areaportal with portalkey " + portalKey);
-    }
-
     public void writeAreaportal(DAreaportal ap) {
         Winding wind = windingFactory.fromAreaportal(bsp, ap);
         // TODO: extrude polygon in the correct direction, currently it seems to be random?
@@ -597,6 +671,21 @@ public class FaceSource extends ModuleDecompile {
      * @param idispinfo dispinfo index
      */
     public void writeDisplacement(int idispinfo) {
+        writeDisplacement(buildDisplacement(idispinfo, multiblendOffset));
+    }
+
+    private boolean hasMultiBlend(DDispInfo di) {
+        return !bsp.dispmultiblend.isEmpty() && di.hasMultiBlend();
+    }
+
+    /**
+     * Builds the row strings of a dispinfo. Doesn't change any state, so it's
+     * safe to call from multiple threads.
+     *
+     * @param idispinfo dispinfo index
+     * @param multiblendOffset offset of the dispinfo in the multiblend lump
+     */
+    private DispInfoRows buildDisplacement(int idispinfo, int multiblendOffset) {
         DDispInfo di = bsp.dispinfos.get(idispinfo);
 
         Map<String, String> normalMap = new LinkedHashMap<>();
@@ -627,7 +716,7 @@ public class FaceSource extends ModuleDecompile {
         final int vertcount = di.getVertexCount();
         final int psize = di.getPowerSize();
 
-        final boolean hasMultiBlend = !bsp.dispmultiblend.isEmpty() && di.hasMultiBlend();
+        final boolean hasMultiBlend = hasMultiBlend(di);
 
         // build vertex related strings
         for (int i = 0; i < vertcount; i++) {
@@ -720,11 +809,6 @@ public class FaceSource extends ModuleDecompile {
             }
         }
 
-        // count up multiblend index
-        if (hasMultiBlend) {
-            multiblendOffset += vertcount;
-        }
-
         // build triangle tags
         int tcount = di.getTriangleTagCount();
 
@@ -756,6 +840,19 @@ public class FaceSource extends ModuleDecompile {
             }
         }
 
+        return new DispInfoRows(idispinfo, normalMap, distanceMap, alphaMap, triangleTagMap,
+                allowedVertSb.toString(), hasMultiBlend, multiBlendMap, alphaBlendMap, multiBlendColorMaps);
+    }
+
+    private void writeDisplacement(DispInfoRows rows) {
+        int idispinfo = rows.idispinfo();
+        DDispInfo di = bsp.dispinfos.get(idispinfo);
+
+        // count up multiblend index
+        if (rows.hasMultiBlend()) {
+            multiblendOffset += di.getVertexCount();
+        }
+
         // write VMF data
         writer.start("dispinfo");
 
@@ -770,38 +867,38 @@ public class FaceSource extends ModuleDecompile {
         writer.put("subdiv", 0);
 
         writer.start("normals");
-        writer.put(normalMap);
+        writer.put(rows.normalMap());
         writer.end("normals");
 
         writer.start("distances");
-        writer.put(distanceMap);
+        writer.put(rows.distanceMap());
         writer.end("distances");
 
         writer.start("alphas");
-        writer.put(alphaMap);
+        writer.put(rows.alphaMap());
         writer.end("alphas");
 
         writer.start("triangle_tags");
-        writer.put(triangleTagMap);
+        writer.put(rows.triangleTagMap());
         writer.end("triangle_tags");
 
         writer.start("allowed_verts");
-        writer.put("10", allowedVertSb.toString());
+        writer.put("10", rows.allowedVerts());
         writer.end("allowed_verts");
 
         // Multiblend
-        if (hasMultiBlend) {
+        if (rows.hasMultiBlend()) {
             writer.start("multiblend");
-            writer.put(multiBlendMap);
+            writer.put(rows.multiBlendMap());
             writer.end("multiblend");
 
             writer.start("alphablend");
-            writer.put(alphaBlendMap);
+            writer.put(rows.alphaBlendMap());
             writer.end("alphablend");
 
             for (int j = 0; j < DDispMultiBlend.MAX_MULTIBLEND_CHANNELS; j++) {
                 writer.start("multiblend_color_" + j);
-                writer.put(multiBlendColorMaps.get(j));
+                writer.put(rows.multiBlendColorMaps().get(j));
                 writer.end("multiblend_color_" + j);
             }
         }
@@ -810,34 +907,38 @@ public class FaceSource extends ModuleDecompile {
     }
 
     /**
-     * Builds a HashSet array of all faces corresponding to i'th orig face.
+     * Builds the lists of all faces corresponding to i'th orig face.
      * Also calculates the area of ofaces.
      */
     private void createFaceMapping() {        
         L.info("Building split face to original face maps");
 
-        // look at every face
-        for (int i = 0; i < bsp.faces.size(); i++) {
-            int o = bsp.faces.get(i).origFace;
+        int origFaceCount = bsp.origFaces.size();
 
-            // must check for no face correspondence
-            if (o == -1) {
-                continue;
+        // count the faces of every oface, skipping faces without face correspondence
+        int[] starts = new int[origFaceCount + 1];
+        for (DFace face : bsp.faces) {
+            if (face.origFace >= 0 && face.origFace < origFaceCount) {
+                starts[face.origFace + 1]++;
             }
+        }
+        for (int i = 0; i < origFaceCount; i++) {
+            starts[i + 1] += starts[i];
+        }
 
-            Set<Integer> faceSet;
-
-            if (origFaceToSplitFace.containsKey(o)) {
-                faceSet = origFaceToSplitFace.get(o);
-            } else {
-                faceSet = new HashSet<>();
-                origFaceToSplitFace.put(o, faceSet);
+        // add every face to the list of its oface
+        int[] next = Arrays.copyOf(starts, origFaceCount);
+        int[] splitFaces = new int[starts[origFaceCount]];
+        for (int i = 0; i < bsp.faces.size(); i++) {
+            int o = bsp.faces.get(i).origFace;
+            if (o >= 0 && o < origFaceCount) {
+                splitFaces[next[o]++] = i;
             }
-
-            //  add this face to the set
-            faceSet.add(i);
         }
 
+        origFaceSplitFaceStarts = starts;
+        origFaceSplitFaces = splitFaces;
+
         L.info("Building original face areas");
 
         // look at every oface
@@ -847,8 +948,7 @@ public class FaceSource extends ModuleDecompile {
             // recalculate face area when required
             // TODO: Don't change original DFace data...
             if (origFace.area == 0) {
-                Winding wind = windingFactory.fromFace(bsp, origFace);
-                origFace.area = (float) wind.getArea();
+                origFace.area = (float) getFaceArea(origFace);
             }
 
             if (L.isTraceEnabled()) {
@@ -858,12 +958,10 @@ public class FaceSource extends ModuleDecompile {
             // area of face components
             float carea = 0;
 
-            Set<Integer> faceSet = origFaceToSplitFace.get(i);
-
             // iterate through the corresponding split faces
-            for (Integer face : faceSet) {
+            for (int j = origFaceSplitFaceStarts[i]; j < origFaceSplitFaceStarts[i + 1]; j++) {
                 // add up the areas of all split faces
-                carea += bsp.faces.get(face).area;
+                carea += bsp.faces.get(origFaceSplitFaces[j]).area;
             }
 
             // components are bigger, within slop
@@ -876,4 +974,64 @@ public class FaceSource extends ModuleDecompile {
             }
         }
     }
+
+    /**
+     * Calculates the area of a face directly from the geometry lumps, like
+     * {@link Winding#getArea()}, but without building and caching a winding.
+     */
+    private double getFaceArea(DFace face) {
+        if (face.numedge < 3) {
+            return 0;
+        }
+
+        BspGeometry geom = bsp.geometry;
+
+        int v0 = geom.surfEdgeVert(face.fstedge);
+        double x0 = geom.vertX(v0);
+        double y0 = geom.vertY(v0);
+        double z0 = geom.vertZ(v0);
+
+        double total = 0;
+
+        for (int i = 2; i < face.numedge; i++) {
+            int v1 = geom.surfEdgeVert(face.fstedge + i - 1);
+            int v2 = geom.surfEdgeVert(face.fstedge + i);
+
+            double x1 = geom.vertX(v1) - x0;
+            double y1 = geom.vertY(v1) - y0;
+            double z1 = geom.vertZ(v1) - z0;
+
+            double x2 = geom.vertX(v2) - x0;
+            double y2 = geom.vertY(v2) - y0;
+            double z2 = geom.vertZ(v2) - z0;
+
+            double cx = y1 * z2 - z1 * y2;
+            double cy = z1 * x2 - x1 * z2;
+            double cz = x1 * y2 - y1 * x2;
+
+            total += Math.sqrt(cx * cx + cy * cy + cz * cz);
+        }
+
+        return total * 0.5f;
+    }
+
+    private record FaceGeometry(Winding wind, Vector3d[] plane, Vector3d normal, Vector3d origin, Vector3d angles) {
+    }
+
+    private record PreparedDispFace(int iface, FaceGeometry geometry, int multiblendOffset) {
+    }
+
+    private record DispInfoRows(
+            int idispinfo,
+            Map<String, String> normalMap,
+            Map<String, String> distanceMap,
+            Map<String, String> alphaMap,
+            Map<String, String> triangleTagMap,
+            String allowedVerts,
+            boolean hasMultiBlend,
+            Map<String, String> multiBlendMap,
+            Map<String, String> alphaBlendMap,
+            List<Map<String, String>> multiBlendColorMaps
+    ) {
+    }
 }
@@ -0,0 +1,269 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial index for finding intersecting bounding boxes, based on a uniform
+ * grid of cubic cells.
+ *
+ * Each box is registered in all cells it overlaps. Boxes that would span too
+ * many cells are kept in a separate list that is checked for every query
+ * instead. Empty boxes, like {@link AABB#ZERO}, never intersect anything and
+ * are not stored.
+ */
+public class AABBIndex {
+
+    // boxes spanning more cells are not stored in the grid
+    private static final int MAX_CELLS_PER_BOX = 64;
+
+    // cell coordinates are clamped to 21 bits per axis so they can be packed
+    private static final int MAX_CELL = (1 << 20) - 1;
+
+    private final double cellSize;
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final IntList oversized = new IntList();
+
+    // ids and bounds of all stored boxes, addressed by insertion order
+    private final IntList ids = new IntList();
+    private double[] bounds = new double[6 * 16];
+
+    // number of the query that last visited each box, to report
+    // boxes spanning multiple cells only once
+    private int[] visited = new int[16];
+    private int query;
+
+    /**
+     * @param cellSize edge length of the grid cells, ideally close to the
+     *                 size of a typical box
+     */
+    public AABBIndex(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+        }
+
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns a cell size for an index over the given boxes, which is the
+     * average of the largest dimension of all non-empty boxes.
+     *
+     * @param boxes boxes to be indexed
+     * @param margin additional size, for boxes that are expanded for queries
+     * @return suggested cell size
+     */
+    public static double cellSizeFor(Iterable<AABB> boxes, double margin) {
+        double sum = 0;
+        int count = 0;
+
+        for (AABB box : boxes) {
+            if (isEmpty(box)) {
+                continue;
+            }
+
+            Vector3d size = box.getSize();
+            sum += Math.max(size.x(), Math.max(size.y(), size.z()));
+            count++;
+        }
+
+        double cellSize = (count == 0 ? 0 : sum / count) + margin;
+        return Double.isFinite(cellSize) && cellSize >= 1 ? cellSize : 1;
+    }
+
+    /**
+     * Adds a box to the index.
+     *
+     * @param id identifier of the box, reported by queries
+     * @param box bounding box
+     */
+    public void add(int id, AABB box) {
+        if (isEmpty(box)) {
+            return;
+        }
+
+        int index = ids.size();
+        ids.add(id);
+
+        if (bounds.length < 6 * (index + 1)) {
+            bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+            visited = Arrays.copyOf(visited, 2 * visited.length);
+        }
+
+        Vector3d min = box.getMin();
+        Vector3d max = box.getMax();
+        int o = 6 * index;
+        bounds[o] = min.x();
+        bounds[o + 1] = min.y();
+        bounds[o + 2] = min.z();
+        bounds[o + 3] = max.x();
+        bounds[o + 4] = max.y();
+        bounds[o + 5] = max.z();
+
+        int x0 = cell(min.x()), y0 = cell(min.y()), z0 = cell(min.z());
+        int x1 = cell(max.x()), y1 = cell(max.y()), z1 = cell(max.z());
+
+        long cellCount = (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        if (cellCount > MAX_CELLS_PER_BOX) {
+            oversized.add(index);
+            return;
+        }
+
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    addToCell(key(x, y, z), index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the action with the id of each added box that intersects the given
+     * box, as defined by {@link AABB#intersectsWith(AABB)}. Each id is reported
+     * once per added box.
+     *
+     * @param box box to query
+     * @param action action for each intersecting id
+     */
+    public void forEachIntersecting(AABB box, IntConsumer action) {
+        if (isEmpty(box) || ids.size() == 0) {
+            return;
+        }
+
+        // start a new query, resetting the marks on overflow
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            query = 1;
+        }
+
+        Vector3d min = box.getMin();
+        Vector3d max = box.getMax();
+
+        for (int i = 0; i < oversized.size(); i++) {
+            visit(oversized.get(i), min, max, action);
+        }
+
+        int x0 = cell(min.x()), y0 = cell(min.y()), z0 = cell(min.z());
+        int x1 = cell(max.x()), y1 = cell(max.y()), z1 = cell(max.z());
+
+        long cellCount = (long) (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1);
+        if (cellCount > cells.size()) {
+            // cheaper to look at all occupied cells than at all covered ones
+            for (int[] cell : cells.values()) {
+                visitCell(cell, min, max, action);
+            }
+            return;
+        }
+
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int[] cell = cells.get(key(x, y, z));
+                    if (cell != null) {
+                        visitCell(cell, min, max, action);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return amount of stored, non-empty boxes
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private void visitCell(int[] cell, Vector3d min, Vector3d max, IntConsumer action) {
+        // first element is the amount of entries
+        for (int i = 1; i <= cell[0]; i++) {
+            visit(cell[i], min, max, action);
+        }
+    }
+
+    private void visit(int index, Vector3d min, Vector3d max, IntConsumer action) {
+        if (visited[index] == query) {
+            return;
+        }
+
+        visited[index] = query;
+
+        // same test as AABB.intersectsWith
+        int o = 6 * index;
+        if (bounds[o + 3] > min.x() && bounds[o] < max.x()
+                && bounds[o + 4] > min.y() && bounds[o + 1] < max.y()
+                && bounds[o + 5] > min.z() && bounds[o + 2] < max.z()) {
+            action.accept(ids.get(index));
+        }
+    }
+
+    private int cell(double v) {
+        double c = Math.floor(v / cellSize);
+        return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, c));
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) (x & 0x1fffff) << 42) | ((long) (y & 0x1fffff) << 21) | (z & 0x1fffff);
+    }
+
+    private void addToCell(long key, int index) {
+        // first element is the amount of entries
+        int[] cell = cells.get(key);
+        if (cell == null) {
+            cells.put(key, new int[] {1, index, 0, 0});
+            return;
+        }
+
+        int size = cell[0] + 1;
+        if (size == cell.length) {
+            cell = Arrays.copyOf(cell, 2 * cell.length);
+            cells.put(key, cell);
+        }
+        cell[size] = index;
+        cell[0] = size;
+    }
+
+    private static boolean isEmpty(AABB box) {
+        Vector3d min = box.getMin();
+        Vector3d max = box.getMax();
+
+        // also true for NaN coordinates
+        return !(min.x() <= max.x() && min.y() <= max.y() && min.z() <= max.z());
+    }
+
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -14,7 +14,6 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static info.ata4.bspsrc.common.util.JavaUtil.zip;
-import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
 
 /**
  * Class for mapping areaportal entities to their original brushes
@@ -30,13 +29,14 @@ public class AreaportalMapper {
      * If the number of portals is equal to the number of areaportal brushes, we just map the areaportal in the 
      * order we encounter them to the brushes.
      * This is possible because vBsp seems to compile the areaportals in sequential order.
-     * If this is not the case we use {@link AreaportalMapper#manualMapping(BspData, List, WindingFactory)} to 
-     * manually map the areaportal brushes to areaportal entities.
+     * If this is not the case we use {@link AreaportalMapper#manualMapping(BspData, PortalIndex, List, WindingFactory)}
+     * to manually map the areaportal brushes to areaportal entities.
      */
     public static ReallocationData createReallocationData(
             BspData bsp,
             BspSourceConfig config,
-            WindingFactory windingFactory
+            WindingFactory windingFactory,
+            PortalIndex portalIndex
     ) {
         if (!config.writeAreaportals)
             return new ReallocationData(Map.of());
@@ -45,7 +45,7 @@ public class AreaportalMapper {
             L.warn("Invalid areaportals, map was probably compiled with errors! Errors should be expected");
 
         var areaportalIBrushes = getApBrushes(bsp);
-       var portalKeys = getPortalKeys(bsp);
+        var portalKeys = portalIndex.getPositivePortalKeys();
 
         if (portalKeys.isEmpty()) {
             L.info("No areaportals to reallocate...");
@@ -67,7 +67,7 @@ public class AreaportalMapper {
         }
 
         return switch (mappingMode) {
-           case MANUAL -> manualMapping(bsp, areaportalIBrushes, windingFactory);
+           case MANUAL -> manualMapping(bsp, portalIndex, areaportalIBrushes, windingFactory);
            case ORDERED -> orderedMapping(portalKeys, areaportalIBrushes);
         };
     }
@@ -92,47 +92,28 @@ public class AreaportalMapper {
                 .toList();
     }
 
-    /**
-     * @return A list of all portal ids
-     */
-    private static List<Integer> getPortalKeys(BspData bsp) {
-        return bsp.areaportals.stream()
-                .mapToInt(ap -> ap.portalKey)
-                .filter(key -> key > 0)
-                .distinct()
-                .boxed()
-                .toList();
-    }
-
     /**
      * Maps portals to the likeliest brush which they originated from.
      *
      * <p>This is done by calculating the amount of overlap between each areaportal with each brush.
-     * A mapping is then created by applying the Hungarian method to assign each areaportal to a brush.
+     * A mapping is then created by applying the Hungarian method to assign each areaportal to a brush, see
+     * {@link SparseAssignment}.
      */
     private static ReallocationData manualMapping(
             BspData bsp,
+            PortalIndex portalIndex,
             List<Integer> areaportalIBrushes,
             WindingFactory windingFactory
     ) {
-        var areaportalsByPortalKey = IntStream.range(0, bsp.areaportals.size())
-                .filter(iAreaportal -> bsp.areaportals.get(iAreaportal).portalKey != 0)
-                .boxed()
-                .collect(Collectors.groupingBy(iAreaportal -> bsp.areaportals.get(iAreaportal).portalKey))
-                .entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByKey()) // not needed, just makes debugging easier
-                .toList();
-
-        var scores = createScores(bsp, areaportalIBrushes, areaportalsByPortalKey, windingFactory);
-        var mappingResult = hungarian((j, w) -> scores[j][w], scores.length, scores[0].length);
-        var assignments = processMappingResult(mappingResult, scores, areaportalIBrushes, areaportalsByPortalKey);
+        var scores = createScores(bsp, areaportalIBrushes, portalIndex, windingFactory);
+        var mappingResult = SparseAssignment.solve(scores);
+        var assignments = processMappingResult(mappingResult, scores, areaportalIBrushes, portalIndex);
 
         var mapping = new HashMap<Integer, Integer>();
         for (int portal = 0; portal < assignments.length; portal++) {
-            var portalKey = areaportalsByPortalKey.get(portal).getKey();
+            var portalKey = portalIndex.getPortalKey(portal);
             var apBrush = assignments[portal];
-            if (apBrush < 0 || scores[portal][apBrush] == 0) {
+            if (apBrush < 0 || scores.get(portal, apBrush) == 0) {
                 L.warn("Could not reallocate brush for portalKey {}.", portalKey);
                 continue;
             }
@@ -146,44 +127,71 @@ public class AreaportalMapper {
     /**
      * Create the score matrix for the hungarian method. The score for a portal/brush combination is defined as 
      * the amount of overlap between a portal surface and one of the brushes sides. They can be retrieved using 
-     * scores[portal][brush].
+     * scores.get(portal, brush).
+     * 
+     * <p>Surfaces on different planes can't overlap, so only brush sides on the plane of an areaportal are
+     * compared and all other scores are left at 0.
      */
-    private static double[][] createScores(
+    private static SparseScores createScores(
             BspData bsp,
             List<Integer> areaportalIBrushes,
-            List<Map.Entry<Integer, List<Integer>>> areaportalsByPortalKey,
+            PortalIndex portalIndex,
             WindingFactory windingFactory
     ) {
-        var scores = new double[areaportalsByPortalKey.size()][areaportalIBrushes.size()];
-        for (int portal = 0; portal < areaportalsByPortalKey.size(); portal++) {
-            for (int apBrush = 0; apBrush < areaportalIBrushes.size(); apBrush++) {
-                var areaportalIBrush = areaportalIBrushes.get(apBrush);
-                var brush = bsp.brushes.get(areaportalIBrush);
-
-                var bestScore = 0.0;
-                for (var iAreaportal : areaportalsByPortalKey.get(portal).getValue()) {
-                    var areaportal = bsp.areaportals.get(iAreaportal);
-                    
-                    for (var brushSide : bsp.brushSides.subList(brush.fstside, brush.fstside + brush.numside)) {
-                        double newScore = VectorUtil.matchingAreaPercentage(
-                                areaportal,
-                                brush,
-                                brushSide,
-                                bsp,
-                                windingFactory
-                        );
-                        bestScore = Math.max(bestScore, newScore);
-                    }
+        // areaportal brush and brush side of each flattened brush side
+        int brushSideCount = areaportalIBrushes.stream()
+                .mapToInt(iBrush -> bsp.brushes.get(iBrush).numside)
+                .sum();
+        var sideApBrushes = new int[brushSideCount];
+        var sidesOfBrush = new int[brushSideCount];
+        var sidePlanes = new int[brushSideCount];
+        int flattenedBrushSide = 0;
+        for (int apBrush = 0; apBrush < areaportalIBrushes.size(); apBrush++) {
+            var brush = bsp.brushes.get(areaportalIBrushes.get(apBrush));
+            for (int sideOfBrush = 0; sideOfBrush < brush.numside; sideOfBrush++) {
+                sideApBrushes[flattenedBrushSide] = apBrush;
+                sidesOfBrush[flattenedBrushSide] = sideOfBrush;
+                sidePlanes[flattenedBrushSide] = bsp.brushSides.get(brush.fstside + sideOfBrush).pnum;
+                flattenedBrushSide++;
+            }
+        }
+        var sidesByPlane = PlaneBuckets.build(sidePlanes);
+
+        var scores = new SparseScores.Builder(portalIndex.getPortalKeyCount(), areaportalIBrushes.size());
+        var bestScores = new double[areaportalIBrushes.size()];
+        var candidateApBrushes = new BitSet(areaportalIBrushes.size());
+        for (int portal = 0; portal < portalIndex.getPortalKeyCount(); portal++) {
+            for (var iAreaportal : portalIndex.getAreaportalsAt(portal)) {
+                var areaportal = bsp.areaportals.get(iAreaportal);
+
+                for (int candidate : sidesByPlane.get(areaportal.planenum)) {
+                    int apBrush = sideApBrushes[candidate];
+                    double newScore = VectorUtil.matchingAreaPercentage(
+                            areaportal,
+                            bsp.brushes.get(areaportalIBrushes.get(apBrush)),
+                            sidesOfBrush[candidate],
+                            bsp,
+                            windingFactory
+                    );
+                    bestScores[apBrush] = Math.max(bestScores[apBrush], newScore);
+                    candidateApBrushes.set(apBrush);
                 }
+            }
+
+            for (int apBrush = candidateApBrushes.nextSetBit(0); apBrush >= 0;
+                    apBrush = candidateApBrushes.nextSetBit(apBrush + 1)) {
+                var bestScore = bestScores[apBrush];
                 if (!Double.isFinite(bestScore)) {
                     assert false: "VectorUtil.matchingAreaPercentage returned NaN";
                     bestScore = 0;
                 }
-                scores[portal][apBrush] = bestScore;
+                scores.put(portal, apBrush, bestScore);
+                bestScores[apBrush] = 0;
             }
+            candidateApBrushes.clear();
         }
         
-        return scores;
+        return scores.build();
     }
 
     /**
@@ -197,9 +205,9 @@ public class AreaportalMapper {
      */
     private static int[] processMappingResult(
             HungarianAlgorithm.Result mappingResult,
-            double[][] scores,
+            SparseScores scores,
             List<Integer> areaportalIBrushes,
-            List<Map.Entry<Integer, List<Integer>>> areaportalsByPortalKey
+            PortalIndex portalIndex
     ) {
         var assignments = mappingResult.jobToWorker().clone();
         var groups = new HashSet<Set<Integer>>();
@@ -207,13 +215,13 @@ public class AreaportalMapper {
         outer:
         for (int job = 0; job < assignments.length; job++) {
             var portal = job; // because java sucks
-            if (assignments[portal] <= 0 || scores[portal][assignments[portal]] == 0)
+            if (assignments[portal] <= 0 || scores.get(portal, assignments[portal]) == 0)
                 continue;
             
             for (var group : groups) {
                 var canAddToGroup = group.stream()
-                        .allMatch(p -> scores[p][assignments[p]] == scores[portal][assignments[p]] 
-                                && scores[p][assignments[portal]] == scores[portal][assignments[portal]]);
+                        .allMatch(p -> scores.get(p, assignments[p]) == scores.get(portal, assignments[p])
+                                && scores.get(p, assignments[portal]) == scores.get(portal, assignments[portal]));
                 
                 if (canAddToGroup) {
                     group.add(portal);
@@ -229,7 +237,7 @@ public class AreaportalMapper {
                 continue;
             
             var sortedPortals = group.stream()
-                    .sorted(Comparator.comparing(job -> areaportalsByPortalKey.get(job).getKey()))
+                    .sorted(Comparator.comparing(portalIndex::getPortalKey))
                     .toList();
             var sortedApBrushes = sortedPortals.stream()
                     .map(job -> assignments[job])
@@ -0,0 +1,188 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Channel that hands written bytes over to a dedicated thread, which writes
+ * them to an output stream. Useful for slow streams like compressing ones, so
+ * that the compression overlaps with the work of the writing thread.
+ *
+ * The bytes are copied into a fixed amount of buffers. Writes block once all
+ * buffers are waiting to be written. Errors of the writer thread are thrown
+ * by the next write or by {@link #close()}. If the writer thread is
+ * interrupted, the channel fails as well and blocked writes are woken up.
+ */
+public class AsyncOutputChannel implements WritableByteChannel {
+
+    // marks the end of the data for the writer thread
+    private static final Chunk END = new Chunk(new byte[0]);
+
+    private final OutputStream out;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread thread;
+
+    private volatile IOException error;
+    private boolean open = true;
+
+    /**
+     * @param out stream to write to, closed along with this channel
+     * @param bufferSize size of each buffer
+     * @param bufferCount amount of buffers
+     * @param threadName name of the writer thread
+     */
+    public AsyncOutputChannel(OutputStream out, int bufferSize, int bufferCount, String threadName) {
+        if (bufferSize <= 0 || bufferCount <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size or count");
+        }
+
+        this.out = requireNonNull(out);
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new Chunk(new byte[bufferSize]));
+        }
+
+        thread = Thread.ofPlatform()
+                .name(threadName)
+                .daemon()
+                .start(this::run);
+    }
+
+    private void run() {
+        try {
+            for (Chunk chunk = filled.take(); chunk != END; chunk = filled.take()) {
+                // keep consuming after an error so that writers don't block
+                if (error == null) {
+                    try {
+                        out.write(chunk.data, 0, chunk.length);
+                    } catch (IOException ex) {
+                        error = ex;
+                    } catch (RuntimeException ex) {
+                        error = new IOException(ex);
+                    }
+                }
+
+                free.put(chunk);
+            }
+        } catch (InterruptedException ex) {
+            error = new InterruptedIOException("Writer thread interrupted");
+
+            // nobody takes the filled buffers anymore, so hand them back to
+            // wake up writers waiting for a free one
+            recycleFilled();
+        }
+    }
+
+    private void recycleFilled() {
+        for (Chunk chunk = filled.poll(); chunk != null; chunk = filled.poll()) {
+            if (chunk != END) {
+                free.offer(chunk);
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+
+        int written = 0;
+
+        while (src.hasRemaining()) {
+            checkError();
+
+            Chunk chunk;
+            try {
+                chunk = free.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+
+            if (error != null) {
+                free.offer(chunk);
+                checkError();
+            }
+
+            chunk.length = Math.min(src.remaining(), chunk.data.length);
+            src.get(chunk.data, 0, chunk.length);
+            written += chunk.length;
+
+            filled.add(chunk);
+        }
+
+        if (error != null && !thread.isAlive()) {
+            // the writer thread may have stopped before taking this chunk
+            recycleFilled();
+        }
+        checkError();
+
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Waits until all bytes have been written and closes the output stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+
+        open = false;
+
+        try (out) {
+            filled.add(END);
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        checkError();
+    }
+
+    private void checkError() throws IOException {
+        IOException ex = error;
+        if (ex != null) {
+            throw new IOException("Error in writer thread", ex);
+        }
+    }
+
+    private static class Chunk {
+
+        private final byte[] data;
+        private int length;
+
+        private Chunk(byte[] data) {
+            this.data = data;
+        }
+    }
+}
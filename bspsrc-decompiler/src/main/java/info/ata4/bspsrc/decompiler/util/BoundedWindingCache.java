@@ -0,0 +1,126 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * {@link WindingCache} with least recently used eviction, weighted by the
+ * amount of points of each winding.
+ *
+ * The keys are spread over several independently locked segments, each
+ * holding an equal share of the maximum weight. Windings are created outside
+ * of the locks, since creating one winding can require others from the same
+ * or another cache.
+ */
+class BoundedWindingCache implements WindingCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    BoundedWindingCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Invalid maximum weight: " + maxWeight);
+        }
+
+        long segmentWeight = Math.max(1, maxWeight / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentWeight);
+        }
+    }
+
+    @Override
+    public Winding get(long key, LongFunction<Winding> loader) {
+        Segment segment = segments[segmentIndex(key)];
+
+        Winding w;
+        synchronized (segment) {
+            w = segment.map.get(key);
+        }
+
+        if (w != null) {
+            hits.increment();
+            return w;
+        }
+
+        misses.increment();
+        w = loader.apply(key);
+
+        synchronized (segment) {
+            int evicted = segment.put(key, w);
+            if (evicted > 0) {
+                evictions.add(evicted);
+            }
+        }
+
+        return w;
+    }
+
+    @Override
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private static int segmentIndex(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 60) & (SEGMENTS - 1);
+    }
+
+    private static long weight(Winding w) {
+        return Math.max(1, w.size());
+    }
+
+    private static class Segment {
+
+        private final LinkedHashMap<Long, Winding> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * @return amount of evicted windings
+         */
+        private int put(long key, Winding w) {
+            Winding old = map.put(key, w);
+            if (old != null) {
+                weight -= weight(old);
+            }
+            weight += weight(w);
+
+            int evicted = 0;
+            Iterator<Map.Entry<Long, Winding>> it = map.entrySet().iterator();
+            while (weight > maxWeight && map.size() > 1 && it.hasNext()) {
+                Map.Entry<Long, Winding> eldest = it.next();
+                if (eldest.getKey() == key) {
+                    continue;
+                }
+
+                weight -= weight(eldest.getValue());
+                it.remove();
+                evicted++;
+            }
+
+            return evicted;
+        }
+    }
+}
@@ -11,18 +11,41 @@
 package info.ata4.bspsrc.decompiler.util;
 
 import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.BspGeometry;
 import info.ata4.bspsrc.lib.struct.DLeaf;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
 /**
  * BSP tree iterator to find the leaf brush/face index minima/maxima.
  * 
+ * The tree is walked with an explicit stack over flat copies of the node
+ * children and leaf ranges, so deep trees can't overflow the call stack.
+ * Nodes that were already visited in the current walk are skipped, which
+ * doesn't change the result, but stops at cycles in broken trees.
+ * 
  * Original class name: unmap.Treelimit
  *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class BspTreeStats {
 
-    private BspData bsp;
+    private final BspGeometry geom;
+
+    // children of node i are at [2 * i] and [2 * i + 1]
+    private final int[] nodeChildren;
+
+    // first leaf face, leaf face count, first leaf brush and leaf brush count
+    // of leaf i are at [4 * i] to [4 * i + 3]
+    private final int[] leafRanges;
+
+    // reused by every walk
+    private int[] stack = new int[64];
+    private final BitSet visited = new BitSet();
+
     private int bmin;   //min brush
     private int bmax;   //max brush
     private int fmin;   //min face
@@ -30,10 +53,83 @@ public class BspTreeStats {
     private int nmax;   //max node
 
     public BspTreeStats(BspData bsp) {
-        this.bsp = bsp;
+        this(bsp.geometry, nodeChildren(bsp), leafRanges(bsp));
+    }
+
+    private BspTreeStats(BspGeometry geom, int[] nodeChildren, int[] leafRanges) {
+        this.geom = geom;
+        this.nodeChildren = nodeChildren;
+        this.leafRanges = leafRanges;
         reset();
     }
 
+    /**
+     * Walks the trees of multiple head nodes, like the ones of all models, in
+     * parallel on the current fork-join pool.
+     * 
+     * @param bsp BSP data
+     * @param headnodes head node of each tree
+     * @return stats of each tree, in the order of the head nodes
+     */
+    public static List<BspTreeStats> walkAll(BspData bsp, int[] headnodes) {
+        int[] nodeChildren = nodeChildren(bsp);
+        int[] leafRanges = leafRanges(bsp);
+
+        return IntStream.range(0, headnodes.length)
+                .parallel()
+                .mapToObj(i -> {
+                    var stats = new BspTreeStats(bsp.geometry, nodeChildren, leafRanges);
+                    stats.walk(headnodes[i]);
+                    return stats;
+                })
+                .toList();
+    }
+
+    /**
+     * Walks the world tree, which starts at node 0, and the trees of all
+     * models with {@link #walkAll}. Model 0 is the worldspawn model, which
+     * normally starts at node 0 as well, so the world tree is only walked
+     * once then.
+     * 
+     * @param bsp BSP data
+     * @return stats of the world tree and of each model
+     */
+    public static ModelTrees walkModels(BspData bsp) {
+        int[] headnodes = bsp.models.stream()
+                .mapToInt(model -> model.headnode)
+                .toArray();
+        boolean worldIsModel0 = headnodes.length > 0 && headnodes[0] == 0;
+        if (!worldIsModel0) {
+            headnodes = Arrays.copyOf(headnodes, headnodes.length + 1);
+            headnodes[headnodes.length - 1] = 0;
+        }
+
+        List<BspTreeStats> trees = walkAll(bsp, headnodes);
+        BspTreeStats worldTree = trees.get(worldIsModel0 ? 0 : headnodes.length - 1);
+        return new ModelTrees(worldTree, trees.subList(0, bsp.models.size()));
+    }
+
+    private static int[] nodeChildren(BspData bsp) {
+        int[] children = new int[2 * bsp.nodes.size()];
+        for (int i = 0; i < bsp.nodes.size(); i++) {
+            children[2 * i] = bsp.nodes.get(i).children[0];
+            children[2 * i + 1] = bsp.nodes.get(i).children[1];
+        }
+        return children;
+    }
+
+    private static int[] leafRanges(BspData bsp) {
+        int[] ranges = new int[4 * bsp.leaves.size()];
+        for (int i = 0; i < bsp.leaves.size(); i++) {
+            DLeaf l = bsp.leaves.get(i);
+            ranges[4 * i] = l.fstleafface;
+            ranges[4 * i + 1] = l.numleafface;
+            ranges[4 * i + 2] = l.fstleafbrush;
+            ranges[4 * i + 3] = l.numleafbrush;
+        }
+        return ranges;
+    }
+
     public final void reset() {
         bmin = Integer.MAX_VALUE;
         bmax = -1;
@@ -43,31 +139,52 @@ public class BspTreeStats {
     }
 
     public void walk(int inode) {
-        // if positive, inode is a node index
-        // if negative, the value (-1 - child) is the index into the leaf array
-        if (inode < 0) {
-            int ileaf = -1 - inode;
-            DLeaf l = bsp.leaves.get(ileaf);
-
-            // scan leaf faces
-            for (int i = 0; i < l.numleafface; i++) {
-                int iface = bsp.leafFaces.get(l.fstleafface + i);
-                fmax = Math.max(fmax, iface);
-                fmin = Math.min(fmin, iface);
-            }
+        visited.clear();
 
-            // scan leaf brushes
-            for (int i = 0; i < l.numleafbrush; i++) {
-                int ibrush = bsp.leafBrushes.get(l.fstleafbrush + i);
-                bmax = Math.max(bmax, ibrush);
-                bmin = Math.min(bmin, ibrush);
-            }
-        } else {
-            nmax = Math.max(nmax, inode);
+        int size = 0;
+        stack[size++] = inode;
+
+        while (size > 0) {
+            inode = stack[--size];
 
-            // continue with child nodes
-            walk(bsp.nodes.get(inode).children[0]);
-            walk(bsp.nodes.get(inode).children[1]);
+            // if positive, inode is a node index
+            // if negative, the value (-1 - child) is the index into the leaf array
+            if (inode < 0) {
+                int ileaf = -1 - inode;
+                int fstleafface = leafRanges[4 * ileaf];
+                int numleafface = leafRanges[4 * ileaf + 1];
+                int fstleafbrush = leafRanges[4 * ileaf + 2];
+                int numleafbrush = leafRanges[4 * ileaf + 3];
+
+                // scan leaf faces
+                for (int i = 0; i < numleafface; i++) {
+                    int iface = geom.leafFace(fstleafface + i);
+                    fmax = Math.max(fmax, iface);
+                    fmin = Math.min(fmin, iface);
+                }
+
+                // scan leaf brushes
+                for (int i = 0; i < numleafbrush; i++) {
+                    int ibrush = geom.leafBrush(fstleafbrush + i);
+                    bmax = Math.max(bmax, ibrush);
+                    bmin = Math.min(bmin, ibrush);
+                }
+            } else {
+                // the stats of a subtree are the same on every visit
+                if (visited.get(inode)) {
+                    continue;
+                }
+                visited.set(inode);
+
+                nmax = Math.max(nmax, inode);
+
+                // continue with child nodes
+                if (size + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[size++] = nodeChildren[2 * inode + 1];
+                stack[size++] = nodeChildren[2 * inode];
+            }
         }
     }
 
@@ -90,4 +207,11 @@ public class BspTreeStats {
     public int getMaxNode() {
         return nmax;
     }
+
+    /**
+     * Stats of the world tree and of the tree of each model, see
+     * {@link #walkModels(BspData)}.
+     */
+    public record ModelTrees(BspTreeStats world, List<BspTreeStats> models) {
+    }
 }
@@ -0,0 +1,101 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Helpers for {@link CRC32} checksums of data that is hashed in pieces.
+ */
+public class Crc32Util {
+
+    // reversed CRC-32 polynomial, as used by CRC32
+    private static final long POLYNOMIAL = 0xedb88320L;
+
+    private Crc32Util() {
+    }
+
+    /**
+     * @param buffer data from its position to its limit, which stays unchanged
+     * @return CRC32 of the data
+     */
+    public static long crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+
+    /**
+     * Combines the checksums of two consecutive pieces of data into the
+     * checksum of both, like zlib's {@code crc32_combine}.
+     *
+     * @param crc1 CRC32 of the first piece
+     * @param crc2 CRC32 of the second piece
+     * @param length2 length of the second piece in bytes
+     * @return CRC32 of the first piece followed by the second piece
+     */
+    public static long combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+
+        // operator for one zero bit in odd
+        long[] odd = new long[32];
+        odd[0] = POLYNOMIAL;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = 1L << (n - 1);
+        }
+
+        // operators for two and four zero bits
+        long[] even = new long[32];
+        square(even, odd);
+        square(odd, even);
+
+        // apply length2 zero bytes to crc1, with the first square giving the
+        // operator for one zero byte (eight zero bits)
+        do {
+            square(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>>= 1;
+
+            if (length2 == 0) {
+                break;
+            }
+
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Mapping from non-negative int keys to int values, backed by a plain array
+ * that grows with the largest key. It replaces a {@code Map<Integer, Integer>}
+ * for keys that are dense indices, like face or brush indices, without boxing.
+ *
+ * The value -1 marks missing keys and can't be stored.
+ */
+public class IntTable {
+
+    public static final int MISSING = -1;
+
+    private int[] values;
+
+    public IntTable() {
+        this(16);
+    }
+
+    /**
+     * @param capacity expected largest key plus one
+     */
+    public IntTable(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * @return value of the key or {@link #MISSING} if there is none
+     */
+    public int get(int key) {
+        return key >= 0 && key < values.length ? values[key] : MISSING;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @return previous value of the key or {@link #MISSING} if there was none
+     */
+    public int put(int key, int value) {
+        Objects.checkIndex(key, Integer.MAX_VALUE);
+
+        if (value == MISSING) {
+            throw new IllegalArgumentException("Can't store " + MISSING);
+        }
+
+        if (key >= values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, (int) Math.min(Math.max(key + 1L, 2L * oldLength), Integer.MAX_VALUE));
+            Arrays.fill(values, oldLength, values.length, MISSING);
+        }
+
+        int previous = values[key];
+        values[key] = value;
+        return previous;
+    }
+}
@@ -14,7 +14,6 @@ import org.apache.logging.log4j.Logger;
 import java.util.*;
 
 import static info.ata4.bspsrc.common.util.Collectors.mode;
-import static info.ata4.bspsrc.decompiler.util.HungarianAlgorithm.hungarian;
 
 /**
  * Class for mapping occluder entities to their original brushes
@@ -28,12 +27,15 @@ public class OccluderMapper {
      * </p>
      * In contrast to the {@link AreaportalMapper}, this method will always manually map occluders to brushes.
      *
+     * @param worldTree stats of the walked world tree, see {@link BspTreeStats#walkModels(BspData)}
      * @return Occluder reallocation data
      */
     public static ReallocationData createReallocationData(
             BspData bsp,
             BspSourceConfig config,
-            WindingFactory windingFactory
+            WindingFactory windingFactory,
+            PortalIndex portalIndex,
+            BspTreeStats worldTree
     ) {
         if (!config.writeOccluders)
             return new ReallocationData(Map.of(), Map.of());
@@ -44,27 +46,25 @@ public class OccluderMapper {
         }
 
         L.info("Reallocating occluders...");
-        return manualMapping(bsp, windingFactory);
+        return manualMapping(bsp, windingFactory, portalIndex, worldTree);
     }
 
     /**
      * Maps all {@link DOccluderPolyData} to the likeliest brush which they originated from.
      * 
      * <p>This is done by calculating the amount of overlap between each occluder face with each brush side.
-     * A mapping is then created by applying the Hungarian method to assign each occluder to a brush.
+     * A mapping is then created by applying the Hungarian method to assign each occluder to a brush, see
+     * {@link SparseAssignment}.
      */
     private static ReallocationData manualMapping(
             BspData bsp,
-            WindingFactory windingFactory
+            WindingFactory windingFactory,
+            PortalIndex portalIndex,
+            BspTreeStats worldTree
     ) {
         // Occluder brushes are always non-world brushes.
         // We can't rely on texture data, and occluders don't have an equivalent flag like CONTENTS_AREAPORTAL
-        var firstNonWorldIBrush = getFirstNonWorldBrushId(bsp);
-        
-        var occluderPolyIndices = bsp.occluderDatas.stream()
-                .mapToInt(occluder -> occluder.polycount)
-                .toArray();
-        Arrays.parallelPrefix(occluderPolyIndices, Integer::sum);
+        var firstNonWorldIBrush = worldTree.getMaxBrushLeaf() + 1;
         
         var brushSideIndices = bsp.brushes.stream()
                 .skip(firstNonWorldIBrush)
@@ -72,13 +72,9 @@ public class OccluderMapper {
                 .toArray();
         Arrays.parallelPrefix(brushSideIndices, Integer::sum);
 
-        var scores = createScores(bsp, windingFactory, occluderPolyIndices, brushSideIndices, firstNonWorldIBrush);
-        var mappingResult = hungarian(
-                (j, w) -> scores[j][w],
-                occluderPolyIndices.length > 0 ? occluderPolyIndices[occluderPolyIndices.length - 1] : 0,
-                brushSideIndices.length > 0 ? brushSideIndices[brushSideIndices.length - 1] : 0
-        );
-        var collectBrushes = collectBrushes(bsp, mappingResult, scores, occluderPolyIndices, brushSideIndices,
+        var scores = createScores(bsp, windingFactory, portalIndex, brushSideIndices, firstNonWorldIBrush);
+        var mappingResult = SparseAssignment.solve(scores);
+        var collectBrushes = collectBrushes(mappingResult, scores, portalIndex, brushSideIndices,
                 firstNonWorldIBrush);
         
         var occluderToBrushes = new HashMap<Integer, Set<Integer>>();
@@ -128,22 +124,20 @@ public class OccluderMapper {
      * @return A map in the form of {@code Map<Brush Id, Map<BrushSide Id, OccluderPoly>>}
      */
     private static HashMap<Integer, Map<Integer, OccluderPoly>> collectBrushes(
-            BspData bsp,
             HungarianAlgorithm.Result mappingResult,
-            double[][] scores,
-            int[] occluderPolyIndices,
+            SparseScores scores,
+            PortalIndex portalIndex,
             int[] brushSideIndices,
             int firstNonWorldIBrush
     ) {
         var brushes = new HashMap<Integer, Map<Integer, OccluderPoly>>();
-        for (int iOccluder = 0; iOccluder < bsp.occluderDatas.size(); iOccluder++) {
-            var occluder = bsp.occluderDatas.get(iOccluder);
-            for (int sideOfOccluder = 0; sideOfOccluder < occluder.polycount; sideOfOccluder++) {
-                var offset = iOccluder > 0 ? occluderPolyIndices[iOccluder - 1] : 0;
-                var index = offset + sideOfOccluder;
+        for (int iOccluder = 0; iOccluder < portalIndex.getOccluderCount(); iOccluder++) {
+            var polyCount = portalIndex.getOccluderPolyCount(iOccluder);
+            for (int sideOfOccluder = 0; sideOfOccluder < polyCount; sideOfOccluder++) {
+                var index = portalIndex.getFlattenedOccluderPoly(iOccluder) + sideOfOccluder;
                 
                 var flattenedBrushSide = mappingResult.jobToWorker()[index];
-                if (flattenedBrushSide < 0 || scores[index][flattenedBrushSide] == 0) {
+                if (flattenedBrushSide < 0 || scores.get(index, flattenedBrushSide) == 0) {
                     L.warn("Couldn't reallocate side {} of occluder {}.", sideOfOccluder, iOccluder);
                     continue;
                 }
@@ -162,55 +156,62 @@ public class OccluderMapper {
 
     /**
      * Create the score matrix for the hungarian method. The score for a occluderface/brushside combination is defined as 
-     * the amount of overlap between their surfaces. They can be retrieved using scores[occluderface][brushside].
+     * the amount of overlap between their surfaces. They can be retrieved using scores.get(occluderface, brushside).
+     * 
+     * <p>Surfaces on different planes can't overlap, so only brush sides on the plane of the occluder face are
+     * compared and all other scores are left at 0.
      */
-    private static double[][] createScores(
+    private static SparseScores createScores(
             BspData bsp,
             WindingFactory windingFactory,
-            int[] occluderPolyIndices,
+            PortalIndex portalIndex,
             int[] brushSideIndices,
             int firstNonWorldIBrush
     ) {
-        int occluderSidesCount = occluderPolyIndices.length > 0 ? occluderPolyIndices[occluderPolyIndices.length - 1] : 0;
+        int occluderSidesCount = portalIndex.getTotalOccluderPolyCount();
         int brushSideCount = brushSideIndices.length > 0 ? brushSideIndices[brushSideIndices.length - 1] : 0;
 
-        var scores = new double[occluderSidesCount][brushSideCount];
-        for (int iOccluder = 0; iOccluder < bsp.occluderDatas.size(); iOccluder++) {
-            var occluder = bsp.occluderDatas.get(iOccluder);
-            for (int sideOfOccluder = 0; sideOfOccluder < occluder.polycount; sideOfOccluder++) {
-                var occluderPolyData = bsp.occluderPolyDatas.get(occluder.firstpoly + sideOfOccluder);
-                
-                for (int iBrush = firstNonWorldIBrush; iBrush < bsp.brushes.size(); iBrush++) {
-                    var brush = bsp.brushes.get(iBrush);
-                    for (int sideOfBrush = 0; sideOfBrush < brush.numside; sideOfBrush++) {
-                        var brushSide = bsp.brushSides.get(brush.fstside + sideOfBrush);
+        // brush and brush side of each flattened brush side
+        var sideBrushes = new int[brushSideCount];
+        var sidesOfBrush = new int[brushSideCount];
+        var sidePlanes = new int[brushSideCount];
+        int flattenedBrushSide = 0;
+        for (int iBrush = firstNonWorldIBrush; iBrush < bsp.brushes.size(); iBrush++) {
+            var brush = bsp.brushes.get(iBrush);
+            for (int sideOfBrush = 0; sideOfBrush < brush.numside; sideOfBrush++) {
+                sideBrushes[flattenedBrushSide] = iBrush;
+                sidesOfBrush[flattenedBrushSide] = sideOfBrush;
+                sidePlanes[flattenedBrushSide] = bsp.brushSides.get(brush.fstside + sideOfBrush).pnum;
+                flattenedBrushSide++;
+            }
+        }
+        var sidesByPlane = PlaneBuckets.build(sidePlanes);
 
-                        int brushIndex = iBrush - firstNonWorldIBrush;
-                        int flattenedOccluderPoly = (iOccluder > 0 ? occluderPolyIndices[iOccluder - 1] : 0) + sideOfOccluder;
-                        int flattenedBrushSide = (brushIndex > 0 ? brushSideIndices[brushIndex - 1] : 0) + sideOfBrush;
-                        double score = VectorUtil.matchingAreaPercentage(
-                                occluderPolyData,
-                                brush,
-                                brushSide,
-                                bsp,
-                                windingFactory
-                        );
-                        if (!Double.isFinite(score)) {
-                            assert false: "VectorUtil.matchingAreaPercentage returned NaN";
-                            score = 0;
-                        }
-                        scores[flattenedOccluderPoly][flattenedBrushSide] = score;
+        var scores = new SparseScores.Builder(occluderSidesCount, brushSideCount);
+        for (int iOccluder = 0; iOccluder < portalIndex.getOccluderCount(); iOccluder++) {
+            var firstPoly = portalIndex.getOccluderFirstPoly(iOccluder);
+            var polyCount = portalIndex.getOccluderPolyCount(iOccluder);
+            for (int sideOfOccluder = 0; sideOfOccluder < polyCount; sideOfOccluder++) {
+                var occluderPolyData = bsp.occluderPolyDatas.get(firstPoly + sideOfOccluder);
+                int flattenedOccluderPoly = portalIndex.getFlattenedOccluderPoly(iOccluder) + sideOfOccluder;
+                
+                for (int candidate : sidesByPlane.get(occluderPolyData.planenum)) {
+                    double score = VectorUtil.matchingAreaPercentage(
+                            occluderPolyData,
+                            bsp.brushes.get(sideBrushes[candidate]),
+                            sidesOfBrush[candidate],
+                            bsp,
+                            windingFactory
+                    );
+                    if (!Double.isFinite(score)) {
+                        assert false: "VectorUtil.matchingAreaPercentage returned NaN";
+                        score = 0;
                     }
+                    scores.put(flattenedOccluderPoly, candidate, score);
                 }
             }
         }
-        return scores;
-    }
-    
-    private static int getFirstNonWorldBrushId(BspData bsp) {
-        var tree = new BspTreeStats(bsp);
-        tree.walk(0);
-        return tree.getMaxBrushLeaf() + 1;
+        return scores.build();
     }
     
     private record OccluderPoly(
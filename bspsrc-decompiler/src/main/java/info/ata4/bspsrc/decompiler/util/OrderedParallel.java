@@ -0,0 +1,56 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Helper for running the expensive part of a decompiling step on multiple
+ * threads while keeping the VMF output identical to the serial path.
+ *
+ * Items are processed in batches. The items of a batch are prepared in
+ * parallel on the current fork-join pool, then the results are passed to the
+ * writing function one by one in the original item order on the calling
+ * thread. Preparing must therefore not touch the VMF writer, UIDs or any
+ * other state that depends on the output order.
+ */
+public class OrderedParallel {
+
+    // small enough to limit the amount of prepared data held in memory,
+    // large enough to keep all cores busy
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private OrderedParallel() {
+    }
+
+    public static <T, R> void forEach(List<T> items, Function<? super T, ? extends R> prepare,
+            BiConsumer<? super T, ? super R> write) {
+        forEach(items, DEFAULT_BATCH_SIZE, prepare, write);
+    }
+
+    public static <T, R> void forEach(List<T> items, int batchSize,
+            Function<? super T, ? extends R> prepare, BiConsumer<? super T, ? super R> write) {
+        for (int start = 0; start < items.size(); start += batchSize) {
+            List<T> batch = items.subList(start, Math.min(start + batchSize, items.size()));
+
+            // toList() keeps the encounter order of the batch
+            List<? extends R> prepared = batch.parallelStream()
+                    .map(prepare)
+                    .toList();
+
+            for (int i = 0; i < batch.size(); i++) {
+                write.accept(batch.get(i), prepared.get(i));
+            }
+        }
+    }
+}
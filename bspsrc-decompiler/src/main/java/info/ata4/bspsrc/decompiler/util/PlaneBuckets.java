@@ -0,0 +1,73 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+
+/**
+ * Groups items by the plane number they lie on. Two polygons can only
+ * overlap if they lie on the same plane, so this gives the candidates that
+ * are worth clipping against each other.
+ */
+public class PlaneBuckets {
+
+    private static final int[] EMPTY = new int[0];
+
+    // items on plane p are at [planeStarts[p], planeStarts[p + 1])
+    private final int[] planeStarts;
+    private final int[] items;
+
+    private PlaneBuckets(int[] planeStarts, int[] items) {
+        this.planeStarts = planeStarts;
+        this.items = items;
+    }
+
+    /**
+     * @param planes plane number of each item, items with negative plane
+     *        numbers are left out
+     */
+    public static PlaneBuckets build(int[] planes) {
+        int planeCount = Arrays.stream(planes).max().orElse(-1) + 1;
+
+        int[] planeStarts = new int[planeCount + 1];
+        for (int plane : planes) {
+            if (plane >= 0) {
+                planeStarts[plane + 1]++;
+            }
+        }
+        for (int i = 0; i < planeCount; i++) {
+            planeStarts[i + 1] += planeStarts[i];
+        }
+
+        // counting sort, which keeps the items of each plane in ascending order
+        int[] next = Arrays.copyOf(planeStarts, planeCount);
+        int[] items = new int[planeStarts[planeCount]];
+        for (int i = 0; i < planes.length; i++) {
+            if (planes[i] >= 0) {
+                items[next[planes[i]]++] = i;
+            }
+        }
+
+        return new PlaneBuckets(planeStarts, items);
+    }
+
+    /**
+     * @param plane plane number
+     * @return ascending indices of the items on that plane, empty if there
+     *         are none
+     */
+    public int[] get(int plane) {
+        if (plane < 0 || plane >= planeStarts.length - 1) {
+            return EMPTY;
+        }
+        return Arrays.copyOfRange(items, planeStarts[plane], planeStarts[plane + 1]);
+    }
+}
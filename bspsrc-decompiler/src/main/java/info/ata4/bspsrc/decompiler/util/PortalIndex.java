@@ -0,0 +1,179 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DAreaportal;
+import info.ata4.bspsrc.lib.struct.DOccluderData;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable lookup tables for linking areaportal and occluder entities to
+ * their geometry, built once per map.
+ *
+ * Areaportals are grouped by their portal key, with the keys in ascending
+ * order. Areaportals with the key 0 don't belong to any entity and are left
+ * out. Occluder polygons are additionally numbered consecutively over all
+ * occluders, which is called the flattened index here.
+ */
+public class PortalIndex {
+
+    // ascending, distinct portal keys != 0
+    private final int[] portalKeys;
+
+    // areaportal indices of portalKeys[i] are at [portalKeyStarts[i], portalKeyStarts[i + 1])
+    private final int[] portalKeyStarts;
+    private final List<Integer> areaportals;
+
+    // flattened index of the first polygon of each occluder, plus the total count
+    private final int[] occluderPolyStarts;
+    private final int[] occluderFirstPolys;
+
+    private PortalIndex(int[] portalKeys, int[] portalKeyStarts, List<Integer> areaportals,
+            int[] occluderPolyStarts, int[] occluderFirstPolys) {
+        this.portalKeys = portalKeys;
+        this.portalKeyStarts = portalKeyStarts;
+        this.areaportals = areaportals;
+        this.occluderPolyStarts = occluderPolyStarts;
+        this.occluderFirstPolys = occluderFirstPolys;
+    }
+
+    public static PortalIndex build(BspData bsp) {
+        // sort areaportal indices by key, keeping their order within a key
+        Integer[] sorted = new Integer[bsp.areaportals.size()];
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (bsp.areaportals.get(i).portalKey != 0) {
+                sorted[count++] = i;
+            }
+        }
+        sorted = Arrays.copyOf(sorted, count);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(portalKey(bsp, a), portalKey(bsp, b)));
+
+        int[] keys = new int[count];
+        int[] starts = new int[count + 1];
+        int keyCount = 0;
+        for (int i = 0; i < count; i++) {
+            int key = portalKey(bsp, sorted[i]);
+            if (keyCount == 0 || keys[keyCount - 1] != key) {
+                keys[keyCount] = key;
+                starts[keyCount] = i;
+                keyCount++;
+            }
+        }
+        starts[keyCount] = count;
+
+        int occluderCount = bsp.occluderDatas.size();
+        int[] polyStarts = new int[occluderCount + 1];
+        int[] firstPolys = new int[occluderCount];
+        for (int i = 0; i < occluderCount; i++) {
+            DOccluderData occluder = bsp.occluderDatas.get(i);
+            firstPolys[i] = occluder.firstpoly;
+            polyStarts[i + 1] = polyStarts[i] + occluder.polycount;
+        }
+
+        return new PortalIndex(
+                Arrays.copyOf(keys, keyCount),
+                Arrays.copyOf(starts, keyCount + 1),
+                List.of(sorted),
+                polyStarts,
+                firstPolys
+        );
+    }
+
+    private static int portalKey(BspData bsp, int iAreaportal) {
+        return bsp.areaportals.get(iAreaportal).portalKey;
+    }
+
+    /**
+     * @return amount of distinct portal keys
+     */
+    public int getPortalKeyCount() {
+        return portalKeys.length;
+    }
+
+    /**
+     * @param i position of the portal key, in ascending key order
+     * @return portal key at that position
+     */
+    public int getPortalKey(int i) {
+        return portalKeys[i];
+    }
+
+    /**
+     * @return all positive portal keys in ascending order
+     */
+    public List<Integer> getPositivePortalKeys() {
+        return Arrays.stream(portalKeys)
+                .filter(key -> key > 0)
+                .boxed()
+                .toList();
+    }
+
+    /**
+     * @param portalKey portal key
+     * @return ascending indices of the {@link DAreaportal}s with that key,
+     *         empty if there are none
+     */
+    public List<Integer> getAreaportals(int portalKey) {
+        int i = portalKey == 0 ? -1 : Arrays.binarySearch(portalKeys, portalKey);
+        return i < 0 ? List.of() : getAreaportalsAt(i);
+    }
+
+    /**
+     * @param i position of the portal key, in ascending key order
+     * @return ascending indices of the {@link DAreaportal}s with that key
+     */
+    public List<Integer> getAreaportalsAt(int i) {
+        return areaportals.subList(portalKeyStarts[i], portalKeyStarts[i + 1]);
+    }
+
+    /**
+     * @return amount of occluders
+     */
+    public int getOccluderCount() {
+        return occluderFirstPolys.length;
+    }
+
+    /**
+     * @param iOccluder occluder number
+     * @return index of the first polygon of the occluder in the occluder
+     *         polygon lump
+     */
+    public int getOccluderFirstPoly(int iOccluder) {
+        return occluderFirstPolys[iOccluder];
+    }
+
+    /**
+     * @param iOccluder occluder number
+     * @return amount of polygons of the occluder
+     */
+    public int getOccluderPolyCount(int iOccluder) {
+        return occluderPolyStarts[iOccluder + 1] - occluderPolyStarts[iOccluder];
+    }
+
+    /**
+     * @param iOccluder occluder number
+     * @return flattened index of the first polygon of the occluder
+     */
+    public int getFlattenedOccluderPoly(int iOccluder) {
+        return occluderPolyStarts[iOccluder];
+    }
+
+    /**
+     * @return amount of polygons over all occluders
+     */
+    public int getTotalOccluderPolyCount() {
+        return occluderPolyStarts[occluderPolyStarts.length - 1];
+    }
+}
@@ -0,0 +1,134 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Maximum weight matching for sparse, non-negative weights.
+ *
+ * Jobs and workers that are linked through non-zero weights form connected
+ * components, and the best matching of the whole graph is the union of the
+ * best matchings of its components. Each component is therefore solved on its
+ * own: components with a single job or a single worker simply pick their best
+ * edge, only the rest goes through the {@link HungarianAlgorithm}, on a dense
+ * matrix of just that component.
+ */
+public class SparseAssignment {
+
+    private SparseAssignment() {
+    }
+
+    /**
+     * Computes a maximum weight matching between the rows (jobs) and columns
+     * (workers) of the scores.
+     *
+     * @param scores non-negative weights between jobs and workers
+     * @return the assignment of each job to a worker, or -1 if the job isn't
+     *         assigned to a worker with a non-zero weight
+     */
+    public static HungarianAlgorithm.Result solve(SparseScores scores) {
+        int jobs = scores.getRowCount();
+        int workers = scores.getColumnCount();
+
+        // jobs are the elements [0, jobs), workers the elements [jobs, jobs + workers)
+        var components = new UnionFind(jobs + workers);
+        for (int job = 0; job < jobs; job++) {
+            for (int i = scores.getRowStart(job); i < scores.getRowEnd(job); i++) {
+                components.union(job, jobs + scores.getEntryColumn(i));
+            }
+        }
+
+        var jobToWorker = new int[jobs];
+        Arrays.fill(jobToWorker, -1);
+        var sum = new DoubleAdder();
+
+        // components are disjoint, so each one only writes its own jobs
+        components.groups().parallelStream()
+                .forEach(component -> sum.add(solveComponent(scores, component, jobToWorker)));
+
+        return new HungarianAlgorithm.Result(jobToWorker, sum.sum());
+    }
+
+    /**
+     * @param component ascending elements of the component, jobs first
+     * @return weight of the matching
+     */
+    private static double solveComponent(SparseScores scores, int[] component, int[] jobToWorker) {
+        int jobs = scores.getRowCount();
+
+        // the jobs come first, as they have lower element numbers
+        int jobCount = 0;
+        while (jobCount < component.length && component[jobCount] < jobs) {
+            jobCount++;
+        }
+        int workerCount = component.length - jobCount;
+
+        // lone job or worker without any weights
+        if (jobCount == 0 || workerCount == 0) {
+            return 0;
+        }
+
+        // one job: take its best worker
+        if (jobCount == 1) {
+            int job = component[0];
+            int best = -1;
+            for (int i = scores.getRowStart(job); i < scores.getRowEnd(job); i++) {
+                if (best < 0 || scores.getEntryValue(i) > scores.getEntryValue(best)) {
+                    best = i;
+                }
+            }
+            jobToWorker[job] = scores.getEntryColumn(best);
+            return scores.getEntryValue(best);
+        }
+
+        // one worker: give it to the best job
+        if (workerCount == 1) {
+            int worker = component[jobCount] - jobs;
+            int bestJob = -1;
+            double bestScore = 0;
+            for (int j = 0; j < jobCount; j++) {
+                double score = scores.get(component[j], worker);
+                if (score > bestScore) {
+                    bestJob = component[j];
+                    bestScore = score;
+                }
+            }
+            if (bestJob >= 0) {
+                jobToWorker[bestJob] = worker;
+            }
+            return bestScore;
+        }
+
+        // dense weights of the component
+        var weights = new double[jobCount][workerCount];
+        for (int j = 0; j < jobCount; j++) {
+            int job = component[j];
+            for (int i = scores.getRowStart(job); i < scores.getRowEnd(job); i++) {
+                int w = Arrays.binarySearch(component, jobCount, component.length, jobs + scores.getEntryColumn(i));
+                weights[j][w - jobCount] = scores.getEntryValue(i);
+            }
+        }
+
+        var result = HungarianAlgorithm.hungarian((j, w) -> weights[j][w], jobCount, workerCount);
+
+        double sum = 0;
+        for (int j = 0; j < jobCount; j++) {
+            int w = result.jobToWorker()[j];
+            if (w >= 0 && weights[j][w] != 0) {
+                jobToWorker[component[j]] = component[jobCount + w] - jobs;
+                sum += weights[j][w];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable score matrix that only stores the entries which aren't 0.
+ *
+ * The entries are stored row by row, with the columns of each row in
+ * ascending order, so looking up a single entry is a binary search within
+ * its row.
+ */
+public class SparseScores {
+
+    private final int rowCount;
+    private final int columnCount;
+
+    // entries of row i are at [rowStarts[i], rowStarts[i + 1])
+    private final int[] rowStarts;
+    private final int[] columns;
+    private final double[] values;
+
+    private SparseScores(int rowCount, int columnCount, int[] rowStarts, int[] columns, double[] values) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.rowStarts = rowStarts;
+        this.columns = columns;
+        this.values = values;
+    }
+
+    /**
+     * @return score at the given row and column, 0 if there is no entry
+     */
+    public double get(int row, int column) {
+        Objects.checkIndex(row, rowCount);
+        Objects.checkIndex(column, columnCount);
+
+        int i = Arrays.binarySearch(columns, rowStarts[row], rowStarts[row + 1], column);
+        return i < 0 ? 0 : values[i];
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return amount of stored entries
+     */
+    public int getEntryCount() {
+        return rowStarts[rowCount];
+    }
+
+    /**
+     * @return index of the first entry of the row
+     */
+    public int getRowStart(int row) {
+        return rowStarts[row];
+    }
+
+    /**
+     * @return index behind the last entry of the row
+     */
+    public int getRowEnd(int row) {
+        return rowStarts[row + 1];
+    }
+
+    /**
+     * @param entry entry index, see {@link #getRowStart(int)}
+     * @return column of the entry
+     */
+    public int getEntryColumn(int entry) {
+        return columns[entry];
+    }
+
+    /**
+     * @param entry entry index, see {@link #getRowStart(int)}
+     * @return score of the entry
+     */
+    public double getEntryValue(int entry) {
+        return values[entry];
+    }
+
+    /**
+     * Collects the entries of a {@link SparseScores} matrix. Entries have to
+     * be added row by row and with ascending columns within a row.
+     */
+    public static class Builder {
+
+        private final int rowCount;
+        private final int columnCount;
+
+        private final int[] rowStarts;
+        private int[] columns = new int[16];
+        private double[] values = new double[16];
+        private int size;
+
+        private int lastRow;
+        private int lastColumn = -1;
+
+        public Builder(int rowCount, int columnCount) {
+            this.rowCount = rowCount;
+            this.columnCount = columnCount;
+            this.rowStarts = new int[rowCount + 1];
+        }
+
+        /**
+         * Adds an entry. Entries with the score 0 are skipped.
+         *
+         * @throws IllegalArgumentException if the entry isn't behind the
+         *         previously added one
+         */
+        public Builder put(int row, int column, double value) {
+            Objects.checkIndex(row, rowCount);
+            Objects.checkIndex(column, columnCount);
+
+            if (row < lastRow || (row == lastRow && column <= lastColumn)) {
+                throw new IllegalArgumentException(String.format(
+                        "Entry (%d, %d) isn't behind entry (%d, %d)", row, column, lastRow, lastColumn));
+            }
+
+            // close all rows before this one
+            for (int i = lastRow + 1; i <= row; i++) {
+                rowStarts[i] = size;
+            }
+            lastRow = row;
+            lastColumn = column;
+
+            if (value == 0) {
+                return this;
+            }
+
+            if (size == columns.length) {
+                columns = Arrays.copyOf(columns, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            columns[size] = column;
+            values[size] = value;
+            size++;
+
+            return this;
+        }
+
+        public SparseScores build() {
+            for (int i = lastRow + 1; i <= rowCount; i++) {
+                rowStarts[i] = size;
+            }
+
+            return new SparseScores(
+                    rowCount,
+                    columnCount,
+                    rowStarts.clone(),
+                    Arrays.copyOf(columns, size),
+                    Arrays.copyOf(values, size)
+            );
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Disjoint-set structure over the elements {@code 0} to {@code size - 1},
+ * using union by size and path halving.
+ */
+public class UnionFind {
+
+    private final int[] parent;
+    private final int[] size;
+
+    public UnionFind(int size) {
+        this.parent = new int[size];
+        this.size = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            parent[i] = i;
+            this.size[i] = 1;
+        }
+    }
+
+    /**
+     * @param i element
+     * @return representative element of the set containing {@code i}
+     */
+    public int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Merges the sets containing the two elements.
+     *
+     * @return true if the elements were in different sets
+     */
+    public boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+
+        if (rootA == rootB) {
+            return false;
+        }
+
+        if (size[rootA] < size[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+        return true;
+    }
+
+    /**
+     * @return amount of elements
+     */
+    public int size() {
+        return parent.length;
+    }
+
+    /**
+     * Returns all sets, ordered by their smallest element. The elements of each
+     * set are sorted in ascending order.
+     *
+     * @return list of sets
+     */
+    public List<int[]> groups() {
+        int n = parent.length;
+
+        // map each root to its group, in order of the first member
+        int[] groupIndex = new int[n];
+        Arrays.fill(groupIndex, -1);
+        List<int[]> groups = new ArrayList<>();
+        int[] groupFill = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int root = find(i);
+            if (groupIndex[root] == -1) {
+                groupIndex[root] = groups.size();
+                groups.add(new int[size[root]]);
+            }
+
+            int group = groupIndex[root];
+            groups.get(group)[groupFill[group]++] = i;
+        }
+
+        return groups;
+    }
+}
@@ -7,15 +7,16 @@ public class VectorUtil {
     public static double matchingAreaPercentage(
             DOccluderPolyData occluderPolyData,
             DBrush brush,
-            DBrushSide brushSide,
+            int side,
             BspData bsp,
             WindingFactory windingFactory
     ) {
+        DBrushSide brushSide = bsp.brushSides.get(brush.fstside + side);
         if (occluderPolyData.planenum != brushSide.pnum)
             return 0;
 
         var w1 = windingFactory.fromOccluder(bsp, occluderPolyData);
-        var w2 = windingFactory.fromSide(bsp, brush, brushSide);
+        var w2 = windingFactory.fromSide(bsp, brush, side);
         var clippedWinding = w1.clipWinding(w2, bsp.planes.get(brushSide.pnum).normal.toDouble());
         return clippedWinding.getArea() / w1.getArea();
     }
@@ -23,15 +24,16 @@ public class VectorUtil {
     public static double matchingAreaPercentage(
             DAreaportal areaportal,
             DBrush brush,
-            DBrushSide brushSide,
+            int side,
             BspData bsp,
             WindingFactory windingFactory
     ) {
+        DBrushSide brushSide = bsp.brushSides.get(brush.fstside + side);
         if (areaportal.planenum != brushSide.pnum)
             return 0;
 
         var w1 = windingFactory.fromAreaportal(bsp, areaportal);
-        var w2 = windingFactory.fromSide(bsp, brush, brushSide);
+        var w2 = windingFactory.fromSide(bsp, brush, side);
         var clippedWinding = w1.clipWinding(w2, bsp.planes.get(brushSide.pnum).normal.toDouble());
         return clippedWinding.getArea() / w1.getArea();
     }
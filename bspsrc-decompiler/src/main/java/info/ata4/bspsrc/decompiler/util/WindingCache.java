@@ -0,0 +1,88 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Cache for windings that are identified by a {@code long} key, usually one
+ * or more packed lump indices. Implementations must be safe to use from
+ * multiple threads.
+ */
+public interface WindingCache {
+
+    /**
+     * Returns the cached winding for the key or creates, caches and returns it
+     * using the loader. The loader may be called more than once for the same
+     * key if multiple threads miss at the same time.
+     *
+     * @param key winding key
+     * @param loader function to create the winding on a miss
+     * @return winding for the key
+     */
+    Winding get(long key, LongFunction<Winding> loader);
+
+    /**
+     * @return current hit, miss and eviction counts
+     */
+    Stats getStats();
+
+    /**
+     * @param maxWeight maximum total amount of winding points to keep
+     * @return a cache evicting the least recently used windings once the total
+     *         amount of points exceeds {@code maxWeight}
+     */
+    static WindingCache bounded(long maxWeight) {
+        return new BoundedWindingCache(maxWeight);
+    }
+
+    /**
+     * @return a cache that never evicts anything
+     */
+    static WindingCache unbounded() {
+        return new BoundedWindingCache(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return a cache that doesn't store anything and always calls the loader
+     */
+    static WindingCache disabled() {
+        var misses = new LongAdder();
+
+        return new WindingCache() {
+            @Override
+            public Winding get(long key, LongFunction<Winding> loader) {
+                misses.increment();
+                return loader.apply(key);
+            }
+
+            @Override
+            public Stats getStats() {
+                return new Stats(0, misses.sum(), 0);
+            }
+        };
+    }
+
+    record Stats(long hits, long misses, long evictions) {
+
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "%d hits, %d misses, %d evictions (%.1f%% hit rate)"
+                    .formatted(hits, misses, evictions, hitRate() * 100);
+        }
+    }
+}
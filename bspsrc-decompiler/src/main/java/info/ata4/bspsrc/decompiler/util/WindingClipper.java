@@ -0,0 +1,262 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+
+import static info.ata4.bspsrc.decompiler.util.Winding.*;
+
+/**
+ * Clips windings in reusable primitive buffers instead of creating a new
+ * {@link Winding} and new vertices for each clipping plane.
+ *
+ * A clipper is loaded with a winding, clipped any number of times and then
+ * converted back with {@link #toWinding()}. The results are identical to the
+ * corresponding {@link Winding} methods.
+ *
+ * Clippers are not thread-safe, use {@link #get()} to get one for the current
+ * thread. They must not be held across calls that might use the clipper of
+ * the same thread as well.
+ */
+public final class WindingClipper {
+
+    private static final ThreadLocal<WindingClipper> LOCAL = ThreadLocal.withInitial(WindingClipper::new);
+
+    // x, y, z per vertex
+    private double[] points = new double[3 * 16];
+    private double[] pointsNew = new double[3 * 16];
+    private double[] dists = new double[16 + 1];
+    private int[] sides = new int[16 + 1];
+    private int size;
+
+    // winding the clipper was loaded from and whether it has been changed since
+    private Winding source;
+    private boolean modified;
+
+    private WindingClipper() {
+    }
+
+    /**
+     * @return the clipper for the current thread
+     */
+    public static WindingClipper get() {
+        return LOCAL.get();
+    }
+
+    public WindingClipper load(Winding w) {
+        size = w.size();
+        points = ensureCapacity(points, 3 * size);
+
+        for (int i = 0; i < size; i++) {
+            Vector3d v = w.get(i);
+            points[3 * i] = v.x();
+            points[3 * i + 1] = v.y();
+            points[3 * i + 2] = v.z();
+        }
+
+        source = w;
+        modified = false;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Same as {@link Winding#clipEpsilon(Vector3d, double, double, boolean)}.
+     */
+    public WindingClipper clip(double nx, double ny, double nz, double dist, double eps, boolean back) {
+        if (dists.length < size + 1) {
+            dists = new double[2 * size + 1];
+            sides = new int[2 * size + 1];
+        }
+
+        int countFront = 0;
+        int countBack = 0;
+        int countOn = 0;
+
+        // determine sides for each point
+        for (int i = 0; i < size; i++) {
+            // same evaluation order as Vector3d.dot() to get identical results
+            double dot = 0.0;
+            dot += points[3 * i] * nx;
+            dot += points[3 * i + 1] * ny;
+            dot += points[3 * i + 2] * nz;
+            dot -= dist;
+
+            dists[i] = dot;
+
+            if (dot > eps) {
+                sides[i] = SIDE_FRONT;
+                countFront++;
+            } else if (dot < -eps) {
+                sides[i] = SIDE_BACK;
+                countBack++;
+            } else {
+                sides[i] = SIDE_ON;
+                countOn++;
+            }
+        }
+
+        sides[size] = sides[0];
+        dists[size] = dists[0];
+
+        if (countFront == 0) {
+            // no vertices in front - all behind clip plane
+            if (!back) {
+                if (countOn == 0) {
+                    clear();
+                    return this;
+                }
+            } else {
+                return this;
+            }
+        }
+        if (countBack == 0) {
+            // no vertices in back - all in front of clip plane
+            if (back) {
+                if (countOn == 0) {
+                    clear();
+                    return this;
+                }
+            } else {
+                return this;
+            }
+        }
+
+        // each vertex adds at most itself and one split point
+        pointsNew = ensureCapacity(pointsNew, 6 * size);
+        int sizeNew = 0;
+
+        for (int i = 0; i < size; i++) {
+            int p1 = 3 * i;
+
+            if (sides[i] == SIDE_ON) {
+                copyPoint(p1, sizeNew++);
+                continue;
+            }
+
+            if (sides[i] == SIDE_FRONT && !back) {
+                copyPoint(p1, sizeNew++);
+            }
+
+            if (sides[i] == SIDE_BACK && back) {
+                copyPoint(p1, sizeNew++);
+            }
+
+            if (sides[i + 1] == SIDE_ON || sides[i + 1] == sides[i]) {
+                continue;
+            }
+
+            // crossing the clip plane between this vertex and the next
+            int p2 = i == size - 1 ? 0 : p1 + 3;
+            double dot = dists[i] / (dists[i] - dists[i + 1]);
+
+            int o = 3 * sizeNew++;
+            pointsNew[o] = splitComponent(nx, dist, points[p1], points[p2], dot);
+            pointsNew[o + 1] = splitComponent(ny, dist, points[p1 + 1], points[p2 + 1], dot);
+            pointsNew[o + 2] = splitComponent(nz, dist, points[p1 + 2], points[p2 + 2], dot);
+        }
+
+        swap(sizeNew);
+        return this;
+    }
+
+    /**
+     * Same as {@link Winding#removeDegenerated()}.
+     */
+    public WindingClipper removeDegenerated() {
+        pointsNew = ensureCapacity(pointsNew, 3 * size);
+        int sizeNew = 0;
+
+        for (int i = 0; i < size; i++) {
+            int p1 = 3 * i;
+            int p2 = 3 * ((i + 1) % size);
+
+            double dx = points[p1] - points[p2];
+            double dy = points[p1 + 1] - points[p2 + 1];
+            double dz = points[p1 + 2] - points[p2 + 2];
+
+            // same evaluation order as Vector3d.length()
+            double len = 0.0;
+            len += dx * dx;
+            len += dy * dy;
+            len += dz * dz;
+
+            if (Math.sqrt(len) > EPS_DEGEN) {
+                copyPoint(p1, sizeNew++);
+            }
+        }
+
+        if (sizeNew != size) {
+            swap(sizeNew);
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the current winding, which is the loaded winding itself if it
+     *         hasn't been changed
+     */
+    public Winding toWinding() {
+        if (!modified) {
+            return source;
+        }
+
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        Vector3d[] verts = new Vector3d[size];
+        for (int i = 0; i < size; i++) {
+            verts[i] = new Vector3d(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+        }
+
+        return new Winding(verts);
+    }
+
+    private static double splitComponent(double n, double dist, double v1, double v2, double dot) {
+        // avoid round off error when possible
+        if (n == 1) {
+            return dist;
+        } else if (n == -1) {
+            return -dist;
+        } else {
+            return v1 + dot * (v2 - v1);
+        }
+    }
+
+    private void copyPoint(int src, int dstIndex) {
+        int dst = 3 * dstIndex;
+        pointsNew[dst] = points[src];
+        pointsNew[dst + 1] = points[src + 1];
+        pointsNew[dst + 2] = points[src + 2];
+    }
+
+    private void swap(int sizeNew) {
+        double[] tmp = points;
+        points = pointsNew;
+        pointsNew = tmp;
+        size = sizeNew;
+        modified = true;
+    }
+
+    private void clear() {
+        size = 0;
+        modified = true;
+    }
+
+    private static double[] ensureCapacity(double[] array, int capacity) {
+        return array.length >= capacity ? array : new double[Math.max(capacity, 2 * array.length)];
+    }
+}
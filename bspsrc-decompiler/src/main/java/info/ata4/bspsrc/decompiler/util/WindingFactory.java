@@ -15,29 +15,51 @@ import info.ata4.bspsrc.lib.vector.Vector3d;
 import info.ata4.bspsrc.lib.vector.VectorXf;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * Factory methods for winding objects.
+ * Factory methods for winding objects. The caches are thread-safe and bounded
+ * by default, so a factory can be shared by threads building brushes in
+ * parallel.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class WindingFactory {
 
-    private final Map<DFace, Winding> faceCache = new HashMap<>();
-    private final Map<Map.Entry<DBrush, DBrushSide>, Winding> brushSideCache = new HashMap<>();
-    private final Map<DAreaportal, Winding> areaportalCache = new HashMap<>();
-    private final Map<DOccluderPolyData, Winding> occluderCache = new HashMap<>();
-    private final Map<DPlane, Winding> planeCache = new HashMap<>();
+    // default maximum amount of winding points per cache
+    public static final long DEFAULT_CACHE_WEIGHT = 1 << 20;
+
+    // keyed by the lump indices the windings are built from, see the
+    // from* methods
+    private final WindingCache faceCache;
+    private final WindingCache brushSideCache;
+    private final WindingCache areaportalCache;
+    private final WindingCache occluderCache;
+    private final WindingCache planeCache;
 
     public final int maxLen;
     public final int maxCoord;
 
     public WindingFactory(int coordSize) {
+        this(coordSize, () -> WindingCache.bounded(DEFAULT_CACHE_WEIGHT));
+    }
+
+    /**
+     * @param coordSize maximum map coordinate
+     * @param cacheSupplier creates the cache for each kind of winding
+     */
+    public WindingFactory(int coordSize, Supplier<WindingCache> cacheSupplier) {
         maxCoord = coordSize;
         maxLen = (int)Math.ceil(Math.sqrt(3) * coordSize);
+
+        faceCache = cacheSupplier.get();
+        brushSideCache = cacheSupplier.get();
+        areaportalCache = cacheSupplier.get();
+        occluderCache = cacheSupplier.get();
+        planeCache = cacheSupplier.get();
     }
 
     public static WindingFactory forAppId(int appId) {
@@ -56,54 +78,29 @@ public class WindingFactory {
      * @return Winding for the face
      */
     public Winding fromFace(BspData bsp, DFace face) {
-        if (faceCache.containsKey(face)) {
-            return faceCache.get(face);
-        }
+        // the winding only depends on the face's surface edges
+        return faceCache.get(packKey(face.fstedge, face.numedge), key -> buildFace(bsp, face));
+    }
 
-        var verts = new ArrayList<Vector3d>();
+    private Winding buildFace(BspData bsp, DFace face) {
+        var geom = bsp.geometry;
+        var verts = new ArrayList<Vector3d>(face.numedge);
 
         for (int i = 0; i < face.numedge; i++) {
-            int v;
-            int sedge = bsp.surfEdges.get(face.fstedge + i);
-
-            if (sedge < 0) {
-                // backwards wound edge
-                v = bsp.edges.get(-sedge).v[1];
-            } else {
-                // forwards wound edge
-                v = bsp.edges.get(sedge).v[0];
-            }
-
-            verts.add(bsp.verts.get(v).point.toDouble());
+            // handles backwards wound edges
+            int v = geom.surfEdgeVert(face.fstedge + i);
+            verts.add(new Vector3d(geom.vertX(v), geom.vertY(v), geom.vertZ(v)));
         }
 
-        Winding w = new Winding(verts);
-
-        faceCache.put(face, w);
-
-        return w;
+        return new Winding(verts);
     }
 
-    /**
-     * Constructs a winding from a brush, for a brush side
-     * 
-     * Equals the brush side part of CreateBrushWindings() in brushbsp.cpp
-     *
-     * @param bsp BSP data
-     * @param brush Brush
-     * @param bside Brush side
-     * @return Winding for the brush side
-     */
-    public Winding fromSide(BspData bsp, DBrush brush, DBrushSide bside) {
-        var key = Map.entry(brush, bside);
-        if (brushSideCache.containsKey(key)) {
-            return brushSideCache.get(key);
-        }
-
-        int iplane = bside.pnum;
-        boolean hasSide = false;
+    private Winding buildSide(BspData bsp, DBrush brush, int side) {
+        var geom = bsp.geometry;
+        int iplane = bsp.brushSides.get(brush.fstside + side).pnum;
 
-        Winding w = fromPlane(bsp.planes.get(iplane));
+        // clip in place instead of creating a new winding for each plane
+        var clipper = WindingClipper.get().load(fromPlane(bsp, iplane));
 
         // clip to all other planes
         for (int i = 0; i < brush.numside; i++) {
@@ -111,8 +108,7 @@ public class WindingFactory {
             DBrushSide bside2 = bsp.brushSides.get(ibside2);
 
             // don't clip plane to itself
-            if (bside2 == bside) {
-                hasSide = true;
+            if (i == side) {
                 continue;
             }
 
@@ -123,21 +119,18 @@ public class WindingFactory {
 
             // remove everything behind the plane
             int iplane2 = bside2.pnum;
-            DPlane plane = bsp.planes.get(iplane2);
-            DPlane flipPlane = new DPlane();
-            flipPlane.normal = plane.normal.scalar(-1);
-            flipPlane.dist = -plane.dist;
-            w = w.clipPlane(flipPlane, false);
+            clipper.clip(
+                    -geom.planeNormalX(iplane2),
+                    -geom.planeNormalY(iplane2),
+                    -geom.planeNormalZ(iplane2),
+                    -geom.planeDist(iplane2),
+                    Winding.EPS_SPLIT,
+                    false
+            );
         }
 
-        if (!hasSide) {
-            throw new IllegalArgumentException("Brush side is not part of brush!");
-        }
-
-        brushSideCache.put(key, w);
-
         // return the clipped winding
-        return w;
+        return clipper.toWinding();
     }
 
     /**
@@ -151,23 +144,25 @@ public class WindingFactory {
      * @return Winding for the brush side
      */
     public Winding fromSide(BspData bsp, DBrush brush, int side) {
-        int ibside = brush.fstside + side;
-        DBrushSide bside = bsp.brushSides.get(ibside);
-        return fromSide(bsp, brush, bside);
-    }
-
-    public Winding fromAreaportal(BspData bsp, DAreaportal ap) {
-        if (areaportalCache.containsKey(ap)) {
-            return areaportalCache.get(ap);
+        if (side < 0 || side >= brush.numside) {
+            throw new IllegalArgumentException("Brush side is not part of brush!");
         }
 
-        Winding w = bsp.clipPortalVerts.subList(ap.firstClipPortalVert, ap.firstClipPortalVert + ap.clipPortalVerts).stream()
-                .map(dVertex -> dVertex.point.toDouble())
-                .collect(Collectors.collectingAndThen(Collectors.toList(), Winding::new));
+        // the winding only depends on the brush's sides and the side to build,
+        // which fit into one key unless the brush has an absurd amount of sides
+        if (brush.numside > 0xffff) {
+            return buildSide(bsp, brush, side);
+        }
 
-        areaportalCache.put(ap, w);
+        long key = packKey(brush.fstside, brush.numside << 16 | side);
+        return brushSideCache.get(key, k -> buildSide(bsp, brush, side));
+    }
 
-        return w;
+    public Winding fromAreaportal(BspData bsp, DAreaportal ap) {
+        return areaportalCache.get(packKey(ap.firstClipPortalVert, ap.clipPortalVerts), key ->
+                bsp.clipPortalVerts.subList(ap.firstClipPortalVert, ap.firstClipPortalVert + ap.clipPortalVerts).stream()
+                        .map(dVertex -> dVertex.point.toDouble())
+                        .collect(Collectors.collectingAndThen(Collectors.toList(), Winding::new)));
     }
 
     /**
@@ -178,22 +173,43 @@ public class WindingFactory {
      * @return Winding for the occluder
      */
     public Winding fromOccluder(BspData bsp, DOccluderPolyData opd) {
-        if (occluderCache.containsKey(opd)) {
-            return occluderCache.get(opd);
-        }
+        return occluderCache.get(packKey(opd.firstvertexindex, opd.vertexcount), key -> buildOccluder(bsp, opd));
+    }
 
-        var verts = new ArrayList<Vector3d>();
+    private Winding buildOccluder(BspData bsp, DOccluderPolyData opd) {
+        var geom = bsp.geometry;
+        var verts = new ArrayList<Vector3d>(opd.vertexcount);
 
         for (int k = 0; k < opd.vertexcount; k++) {
             int pvi = bsp.occluderVerts.get(opd.firstvertexindex + k);
-            verts.add(bsp.verts.get(pvi).point.toDouble());
+            verts.add(new Vector3d(geom.vertX(pvi), geom.vertY(pvi), geom.vertZ(pvi)));
         }
 
-        Winding w = new Winding(verts);
+        return new Winding(verts);
+    }
 
-        occluderCache.put(opd, w);
+    /**
+     * Constructs a huge square winding from a plane
+     *
+     * @param bsp BSP data
+     * @param iplane plane index
+     * @return Winding for the plane
+     */
+    public Winding fromPlane(BspData bsp, int iplane) {
+        return planeCache.get(iplane, key -> {
+            var geom = bsp.geometry;
+            var normal = new Vector3d(geom.planeNormalX(iplane), geom.planeNormalY(iplane), geom.planeNormalZ(iplane));
+            return fromPlane(normal, geom.planeDist(iplane));
+        });
+    }
 
-        return w;
+    /**
+     * Constructs a huge square winding from a plane. The result is not cached.
+     *
+     * @param pl plane
+     */
+    public Winding fromPlane(DPlane pl) {
+        return fromPlane(pl.normal.toDouble(), pl.dist);
     }
 
     /**
@@ -201,15 +217,10 @@ public class WindingFactory {
      * 
      * Equals BaseWindingForPlane() in polylib.cpp
      * 
-     * @param pl plane
+     * @param plNormal plane normal
+     * @param plDist plane distance
      */
-    public Winding fromPlane(DPlane pl) {
-        if (planeCache.containsKey(pl)) {
-            return planeCache.get(pl);
-        }
-        
-        var plNormal = pl.normal.toDouble();
-
+    private Winding fromPlane(Vector3d plNormal, double plDist) {
         // find the dominant axis of plane normal
         double dmax = -1.0;
         int idir = -1;
@@ -227,7 +238,7 @@ public class WindingFactory {
 
         // didn't find one (null or NaN'ed vector)
         if (idir == -1) {
-            throw new RuntimeException("Plane " + pl + ": bad normal");
+            throw new RuntimeException("Plane " + plNormal + ", " + plDist + ": bad normal");
         }
 
         // this will be the "upwards" pointing vector
@@ -252,7 +263,7 @@ public class WindingFactory {
         vup = vup.normalize();
 
         // the vector from origin perpendicularly touching plane
-        Vector3d org = plNormal.scalar(pl.dist);
+        Vector3d org = plNormal.scalar(plDist);
 
         // this is the "rightwards" pointing vector
         Vector3d vrt = vup.cross(plNormal);
@@ -260,7 +271,7 @@ public class WindingFactory {
         vup = vup.scalar(maxLen);
         vrt = vrt.scalar(maxLen);
 
-        var verts = new ArrayList<Vector3d>();
+        var verts = new ArrayList<Vector3d>(4);
 
         // move diagonally away from org to create the corner verts
         verts.add(org.sub(vrt).add(vup)); // left up
@@ -268,11 +279,24 @@ public class WindingFactory {
         verts.add(org.add(vrt).sub(vup)); // right down
         verts.add(org.sub(vrt).sub(vup)); // left down
 
-        Winding w = new Winding(verts);
+        return new Winding(verts);
+    }
 
-        planeCache.put(pl, w);
+    private static long packKey(int hi, int lo) {
+        return (long) hi << 32 | (lo & 0xffffffffL);
+    }
 
-        return w;
+    /**
+     * @return hit, miss and eviction counts of each cache by winding type
+     */
+    public Map<String, WindingCache.Stats> getCacheStats() {
+        var stats = new LinkedHashMap<String, WindingCache.Stats>();
+        stats.put("face", faceCache.getStats());
+        stats.put("brush side", brushSideCache.getStats());
+        stats.put("areaportal", areaportalCache.getStats());
+        stats.put("occluder", occluderCache.getStats());
+        stats.put("plane", planeCache.getStats());
+        return stats;
     }
 
     /**
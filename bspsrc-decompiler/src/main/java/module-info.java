@@ -1,6 +1,4 @@
 module info.ata4.bspsrc.decompiler {
-    requires java.desktop; // TODO: this is a really heavy dependency just so we can use java.awt.Color
-
     requires info.ata4.bspsrc.common;
     requires info.ata4.bspsrc.lib;
     requires org.apache.logging.log4j;
@@ -0,0 +1,110 @@
+package info.ata4.bspsrc.decompiler;
+
+import info.ata4.bspsrc.decompiler.modules.texture.TextureAxis;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Test VmfWriter")
+public class VmfWriterTests {
+
+    private static String write(int doubleScale, Consumer<VmfWriter> action) {
+        var sw = new StringWriter();
+        try (var writer = new VmfWriter(new PrintWriter(sw), doubleScale, 4, 4)) {
+            action.accept(writer);
+        }
+        return sw.toString();
+    }
+
+    @Test
+    @DisplayName("Formats numbers like DecimalFormat")
+    void formatsNumbers() {
+        var rnd = new Random(42);
+        double[] values = new double[30000];
+        double[] fixed = {0, -0.0, 0.5, -0.5, 0.125, 2.5, 1e-9, -1e-9, 0.1 + 0.2, 1e14 + 0.5, 1e20, 16384, -16384.0625};
+        System.arraycopy(fixed, 0, values, 0, fixed.length);
+
+        for (int places = 1; places <= 8; places++) {
+            for (int i = fixed.length; i < values.length; i++) {
+                // mix coordinates with values on or near rounding ties
+                values[i] = switch (i % 3) {
+                    case 0 -> (rnd.nextDouble() - 0.5) * 32768;
+                    case 1 -> Math.round(rnd.nextDouble() * 1e6) / 1e6 + 0.5 / Math.pow(10, places);
+                    default -> (rnd.nextDouble() - 0.5) * 2;
+                };
+            }
+
+            var format = new DecimalFormat("0." + "#".repeat(places), new DecimalFormatSymbols(Locale.ENGLISH));
+            var expected = new StringBuilder();
+            for (double value : values) {
+                expected.append("\"k\" \"").append(format.format(value)).append("\"\r\n");
+            }
+
+            assertEquals(expected.toString(), write(places, w -> {
+                for (double value : values) {
+                    w.put("k", value);
+                }
+            }));
+        }
+    }
+
+    @Test
+    @DisplayName("Writes sections and values")
+    void writesSections() {
+        String vmf = write(4, w -> {
+            w.start("world");
+            w.put("id", 1);
+            w.put("ids", 1, -2, 3);
+            w.put("name", "café");
+            w.start("side");
+            w.put("plane", new Vector3d(0, 0, 1), new Vector3d(1.5, 0, 1), new Vector3d(0, -1, 1));
+            w.put("uaxis", new TextureAxis(1, 0, 0, 16, 0.25));
+            w.put("origin", new Vector3d(0.00001, 2, -3.25), 2);
+            w.end("side");
+            w.end("world");
+        });
+
+        assertEquals("""
+                world\r
+                {\r
+                \t"id" "1"\r
+                \t"ids" "1 -2 3"\r
+                \t"name" "caf?"\r
+                \tside\r
+                \t{\r
+                \t\t"plane" "(0 0 1) (1.5 0 1) (0 -1 1)"\r
+                \t\t"uaxis" "[1 0 0 16] 0.25"\r
+                \t\t"origin" "[0 2 -3.25]"\r
+                \t}\r
+                }\r
+                """, vmf);
+    }
+
+    @Test
+    @DisplayName("Writes to channels in chunks")
+    void writesChannel() {
+        var out = new ByteArrayOutputStream();
+        try (var writer = new VmfWriter(Channels.newChannel(out), 4, 4, 4)) {
+            for (int i = 0; i < 100000; i++) {
+                writer.put("k", i + 0.5);
+            }
+        }
+
+        String vmf = out.toString(StandardCharsets.US_ASCII);
+        assertEquals(100000, vmf.lines().count());
+        assertEquals("\"k\" \"99999.5\"", vmf.lines().reduce((a, b) -> b).orElseThrow());
+    }
+}
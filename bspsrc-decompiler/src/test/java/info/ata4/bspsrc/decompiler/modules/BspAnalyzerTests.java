@@ -0,0 +1,332 @@
+package info.ata4.bspsrc.decompiler.modules;
+
+import info.ata4.bspsrc.decompiler.modules.geom.BrushBounds;
+import info.ata4.bspsrc.decompiler.modules.texture.TextureSource;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.exceptions.BspException;
+import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.struct.BrushFlag;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import info.ata4.bspsrc.lib.struct.DBrushSide;
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.struct.DStruct;
+import info.ata4.bspsrc.lib.struct.DTexData;
+import info.ata4.bspsrc.lib.struct.DTexInfo;
+import info.ata4.bspsrc.lib.struct.SurfaceFlag;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import info.ata4.io.DataWriter;
+import info.ata4.io.DataWriters;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test BspAnalyzer")
+public class BspAnalyzerTests {
+
+    private static final int BSP_ID = 0x50534256; // "VBSP"
+    private static final int VERSION = 20;
+    private static final int HEADER_SIZE = 1036;
+    private static final int HEADER_LUMPS = 64;
+
+    private static final String ENTITIES = """
+            {
+            "classname" "worldspawn"
+            }
+            {
+            "classname" "func_button"
+            "targetname" "12"
+            "no_decomp" "1"
+            "model" "models/props/crate.mdl"
+            "sound" "Buttons.Press"
+            }
+            {
+            "classname" "ambient_generic"
+            "targetname" "34"
+            "message" "ambient/wind.wav"
+            }
+            {
+            "classname" "env_soundscape"
+            "soundscape" "Town.Street"
+            }
+            {
+            "classname" "info_particle_system"
+            "effect_name" "fire_small"
+            }
+            {
+            "classname" "infodecal"
+            "texture" "materials/decals/lambda.vmt"
+            }
+            """;
+
+    // box sizes, the first three make up the protector prefab
+    private static final float[][] BRUSH_SIZES = {{1, 4, 9}, {4, 9, 1}, {9, 1, 4}, {16, 16, 16}};
+
+    private static final List<String> TEXTURES = List.of("TOOLS/TOOLSNODRAW", "tools/locked");
+
+    private static ByteBuffer structs(List<? extends DStruct> structs) throws IOException {
+        int size = structs.stream().mapToInt(DStruct::getSize).sum();
+        var bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        DataWriter out = DataWriters.forByteBuffer(bb);
+        for (DStruct struct : structs) {
+            struct.write(out);
+        }
+        return bb.flip();
+    }
+
+    private static ByteBuffer pakfile(String... names) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            for (String name : names) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.getBytes(StandardCharsets.US_ASCII));
+                zip.closeEntry();
+            }
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static Map<LumpType, ByteBuffer> createLumps() throws IOException {
+        var planes = new ArrayList<DPlane>();
+        var brushes = new ArrayList<DBrush>();
+        var brushSides = new ArrayList<DBrushSide>();
+
+        // axis aligned boxes at the origin, the last one with the nodraw texture
+        for (int i = 0; i < BRUSH_SIZES.length; i++) {
+            var brush = new DBrush();
+            brush.fstside = brushSides.size();
+            brush.numside = 6;
+            brush.contents = EnumSet.of(BrushFlag.CONTENTS_SOLID);
+            brushes.add(brush);
+
+            for (int axis = 0; axis < 3; axis++) {
+                for (int sign = 1; sign >= -1; sign -= 2) {
+                    float[] normal = new float[3];
+                    normal[axis] = sign;
+
+                    var plane = new DPlane();
+                    plane.normal = new Vector3f(normal[0], normal[1], normal[2]);
+                    plane.dist = sign > 0 ? BRUSH_SIZES[i][axis] : 0;
+                    plane.type = axis;
+
+                    var side = new DBrushSide();
+                    side.pnum = planes.size();
+                    side.texinfo = i < 3 ? 1 : 0;
+
+                    planes.add(plane);
+                    brushSides.add(side);
+                }
+            }
+        }
+
+        var texinfos = new ArrayList<DTexInfo>();
+        var texdatas = new ArrayList<DTexData>();
+        var stringTable = ByteBuffer.allocate(4 * TEXTURES.size()).order(ByteOrder.LITTLE_ENDIAN);
+        var stringData = new ByteArrayOutputStream();
+        for (String texture : TEXTURES) {
+            var texinfo = new DTexInfo();
+            texinfo.flags = EnumSet.noneOf(SurfaceFlag.class);
+            texinfo.texdata = texdatas.size();
+            texinfos.add(texinfo);
+
+            var texdata = new DTexData();
+            texdata.reflectivity = new Vector3f(0, 0, 0);
+            texdata.texname = texdatas.size();
+            texdatas.add(texdata);
+
+            stringTable.putInt(stringData.size());
+            stringData.writeBytes(texture.getBytes(StandardCharsets.US_ASCII));
+            stringData.write(0);
+        }
+
+        var lumps = new EnumMap<LumpType, ByteBuffer>(LumpType.class);
+        lumps.put(LumpType.LUMP_ENTITIES, ByteBuffer.wrap((ENTITIES + "\0").getBytes(StandardCharsets.US_ASCII)));
+        lumps.put(LumpType.LUMP_PLANES, structs(planes));
+        lumps.put(LumpType.LUMP_BRUSHES, structs(brushes));
+        lumps.put(LumpType.LUMP_BRUSHSIDES, structs(brushSides));
+        lumps.put(LumpType.LUMP_TEXINFO, structs(texinfos));
+        lumps.put(LumpType.LUMP_TEXDATA, structs(texdatas));
+        lumps.put(LumpType.LUMP_TEXDATA_STRING_TABLE, stringTable.flip());
+        lumps.put(LumpType.LUMP_TEXDATA_STRING_DATA, ByteBuffer.wrap(stringData.toByteArray()));
+        lumps.put(LumpType.LUMP_LIGHTING, ByteBuffer.allocate(4));
+        lumps.put(LumpType.LUMP_GAME_LUMP, ByteBuffer.allocate(4));
+        lumps.put(LumpType.LUMP_PAKFILE, pakfile(
+                "stale.txt",
+                BspProtection.BSPPROTECT_FILE,
+                "materials/maps/test/sp_hdr_0.vhv"
+        ));
+        return lumps;
+    }
+
+    private static Path writeBsp(Map<LumpType, ByteBuffer> lumps) throws IOException {
+        int size = HEADER_SIZE + lumps.values().stream().mapToInt(ByteBuffer::remaining).sum();
+        var bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(BSP_ID);
+        bb.putInt(VERSION);
+
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < HEADER_LUMPS; i++) {
+            ByteBuffer data = lumps.get(LumpType.get(i, VERSION));
+            int length = data != null ? data.remaining() : 0;
+
+            bb.putInt(length > 0 ? offset : 0);
+            bb.putInt(length);
+            bb.putInt(0);
+            bb.putInt(0);
+
+            if (length > 0) {
+                bb.put(offset, data, data.position(), length);
+                offset += length;
+            }
+        }
+        bb.putInt(1); // map revision
+
+        Path file = Files.createTempFile("analyzer", ".bsp");
+        Files.write(file, bb.array());
+        return file;
+    }
+
+    private static BspFileReader openBsp(Path file) throws IOException, BspException {
+        var bspFile = new BspFile();
+        bspFile.load(file, false);
+        return new BspFileReader(bspFile);
+    }
+
+    private static BspProtection createProtection(BspFileReader reader) {
+        var brushBounds = new BrushBounds(WindingFactory.forAppId(reader.getBspFile().getAppId()));
+        return new BspProtection(reader, brushBounds, new TextureSource(reader));
+    }
+
+    private static List<Object> results(BspProtection prot, BspCompileParams cparams, BspDependencies deps) {
+        return List.of(
+                prot.getProtectionMethods(),
+                List.of(prot.hasEntityFlag(), prot.hasTextureFlag(), prot.hasBrushFlag(),
+                        prot.hasEncryptedEntities(), prot.hasObfuscatedEntities(), prot.hasModifiedTexinfo()),
+                Arrays.stream(prot.getProtectedBrushes()).boxed().toList(),
+                prot.getProtectedEntities().stream().map(Entity::getClassName).toList(),
+                cparams.getVbspParams(),
+                cparams.getVvisParams(),
+                cparams.getVradParams(),
+                List.of(cparams.isVvisRun(), cparams.isVradRun()),
+                deps.getMaterials(),
+                deps.getModels(),
+                deps.getSoundFiles(),
+                deps.getSoundScripts(),
+                deps.getSoundscapes(),
+                deps.getParticles()
+        );
+    }
+
+    @Test
+    @DisplayName("Single pass finds the same as the separate checks")
+    void matchesSeparateChecks() throws Exception {
+        Path file = writeBsp(createLumps());
+        try {
+            // every check on its own, with its own passes
+            var serialReader = openBsp(file);
+            var serialProt = createProtection(serialReader);
+            var serialCparams = new BspCompileParams(serialReader);
+            var serialDeps = new BspDependencies(serialReader);
+            assertTrue(serialProt.check());
+
+            // all checks in one BspAnalyzer run
+            var reader = openBsp(file);
+            var prot = createProtection(reader);
+            var cparams = new BspCompileParams(reader);
+            var deps = new BspDependencies(reader);
+            new BspAnalyzer(reader)
+                    .add(cparams)
+                    .add(prot)
+                    .add(deps)
+                    .run();
+
+            assertEquals(results(serialProt, serialCparams, serialDeps), results(prot, cparams, deps));
+
+            // make sure the checks actually found something
+            assertTrue(prot.hasEntityFlag());
+            assertTrue(prot.hasTextureFlag());
+            assertTrue(prot.hasBrushFlag());
+            assertTrue(prot.hasEncryptedEntities());
+            assertTrue(prot.hasObfuscatedEntities());
+            assertFalse(prot.hasModifiedTexinfo());
+            assertArrayEquals(new int[] {0, 1, 2}, prot.getProtectedBrushes());
+            assertEquals(List.of("func_button"),
+                    prot.getProtectedEntities().stream().map(Entity::getClassName).toList());
+
+            assertEquals(List.of("-onlyents/-keepstalezip"), cparams.getVbspParams());
+            assertFalse(cparams.isVvisRun());
+            assertEquals(List.of("-ldr", "-StaticPropLighting"), cparams.getVradParams());
+
+            assertEquals(Set.of(
+                    "materials/tools/toolsnodraw.vmt",
+                    "materials/tools/locked.vmt",
+                    "materials/decals/lambda.vmt"
+            ), deps.getMaterials());
+            assertEquals(Set.of("models/props/crate.mdl"), deps.getModels());
+            assertEquals(Set.of("sound/ambient/wind.wav"), deps.getSoundFiles());
+            assertEquals(Set.of("Buttons.Press"), deps.getSoundScripts());
+            assertEquals(Set.of("Town.Street"), deps.getSoundscapes());
+            assertEquals(Set.of("fire_small"), deps.getParticles());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Unreadable pakfile resets the pakfile results")
+    void unreadablePakfile() throws Exception {
+        var lumps = createLumps();
+        lumps.put(LumpType.LUMP_PAKFILE, ByteBuffer.wrap("not a zip file".getBytes(StandardCharsets.US_ASCII)));
+
+        Path file = writeBsp(lumps);
+        try {
+            var reader = openBsp(file);
+            var prot = createProtection(reader);
+            var cparams = new BspCompileParams(reader);
+            var pakfileRead = new boolean[] {true};
+            new BspAnalyzer(reader)
+                    .add(cparams)
+                    .add(prot)
+                    .add(new BspAnalysis() {
+                        @Override
+                        public Set<Source> getSources() {
+                            return EnumSet.of(Source.PAKFILE);
+                        }
+
+                        @Override
+                        public void finish(boolean read) {
+                            pakfileRead[0] = read;
+                        }
+                    })
+                    .run();
+
+            assertFalse(pakfileRead[0]);
+            assertFalse(prot.hasEncryptedEntities());
+            assertTrue(prot.hasBrushFlag());
+            assertEquals(List.of(), cparams.getVbspParams());
+            assertEquals(List.of("-ldr"), cparams.getVradParams());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package info.ata4.bspsrc.decompiler.modules.geom;
+
+import info.ata4.bspsrc.decompiler.util.Winding;
+import info.ata4.bspsrc.decompiler.util.WindingFactory;
+import info.ata4.bspsrc.lib.BspFile;
+import info.ata4.bspsrc.lib.BspFileReader;
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DBrush;
+import info.ata4.bspsrc.lib.struct.DBrushSide;
+import info.ata4.bspsrc.lib.struct.DEdge;
+import info.ata4.bspsrc.lib.struct.DFace;
+import info.ata4.bspsrc.lib.struct.DPlane;
+import info.ata4.bspsrc.lib.struct.DVertex;
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test BrushSideFaceMapper")
+public class BrushSideFaceMapperTests {
+
+    private static final int BSP_ID = 0x50534256; // "VBSP"
+    private static final int VERSION = 20;
+    private static final int HEADER_SIZE = 1036;
+
+    // sides of the boxes, see TestMap.box
+    private static final int SIDES = 6;
+    private static final int TOP = 4;
+
+    /**
+     * Brushes and faces, which are put into the BspData directly instead of
+     * being read from lumps.
+     */
+    private static class TestMap {
+
+        final BspData bsp = new BspData();
+        final WindingFactory windingFactory = new WindingFactory(32768);
+
+        final List<DPlane> planes = new ArrayList<>();
+        final List<DBrush> brushes = new ArrayList<>();
+        final List<DBrushSide> brushSides = new ArrayList<>();
+        final List<DVertex> verts = new ArrayList<>();
+        final List<DEdge> edges = new ArrayList<>();
+        final List<Integer> surfEdges = new ArrayList<>();
+        final List<DFace> faces = new ArrayList<>();
+        final List<DFace> origFaces = new ArrayList<>();
+
+        private final Map<String, Integer> planeIndices = new HashMap<>();
+
+        TestMap() {
+            bsp.planes = planes;
+            bsp.brushes = brushes;
+            bsp.brushSides = brushSides;
+            bsp.verts = verts;
+            bsp.edges = edges;
+            bsp.surfEdges = surfEdges;
+            bsp.faces = faces;
+            bsp.origFaces = origFaces;
+        }
+
+        int plane(int axis, int sign, float dist) {
+            return planeIndices.computeIfAbsent(axis + " " + sign + " " + dist, key -> {
+                float[] normal = new float[3];
+                normal[axis] = sign;
+
+                var plane = new DPlane();
+                plane.normal = new Vector3f(normal[0], normal[1], normal[2]);
+                plane.dist = dist;
+                plane.type = axis;
+                planes.add(plane);
+                return planes.size() - 1;
+            });
+        }
+
+        /**
+         * Adds an axis aligned box, with the sides +x, -x, +y, -y, +z, -z.
+         *
+         * @return brush index
+         */
+        int box(float[] min, float[] max, int texinfo) {
+            var brush = new DBrush();
+            brush.fstside = brushSides.size();
+            brush.numside = SIDES;
+            brushes.add(brush);
+
+            for (int axis = 0; axis < 3; axis++) {
+                for (int sign = 1; sign >= -1; sign -= 2) {
+                    var side = new DBrushSide();
+                    side.pnum = plane(axis, sign, sign > 0 ? max[axis] : -min[axis]);
+                    side.texinfo = texinfo;
+                    brushSides.add(side);
+                }
+            }
+
+            return brushes.size() - 1;
+        }
+
+        Winding sideWinding(int brushSideI) {
+            DBrush brush = brushes.stream()
+                    .filter(b -> brushSideI >= b.fstside && brushSideI < b.fstside + b.numside)
+                    .findFirst()
+                    .orElseThrow();
+            return windingFactory.fromSide(bsp, brush, brushSideI - brush.fstside);
+        }
+
+        /**
+         * @return face with the same key as the brushside and the given winding
+         */
+        DFace face(Winding winding, int brushSideI, int origFaceI) {
+            var face = new DFace();
+            face.pnum = brushSides.get(brushSideI).pnum;
+            face.texinfo = brushSides.get(brushSideI).texinfo;
+            face.dispInfo = -1;
+            face.origFace = origFaceI;
+            face.fstedge = surfEdges.size();
+            face.numedge = winding.size();
+
+            int firstVert = verts.size();
+            for (int i = 0; i < winding.size(); i++) {
+                Vector3d point = winding.get(i);
+
+                var vert = new DVertex();
+                vert.point = new Vector3f((float) point.x(), (float) point.y(), (float) point.z());
+                verts.add(vert);
+
+                var edge = new DEdge();
+                edge.v[0] = firstVert + i;
+                edge.v[1] = firstVert + (i + 1) % winding.size();
+                surfEdges.add(edges.size());
+                edges.add(edge);
+            }
+
+            return face;
+        }
+
+        DFace sideFace(int brushSideI, int origFaceI) {
+            return face(sideWinding(brushSideI), brushSideI, origFaceI);
+        }
+    }
+
+    private static Path writeEmptyBsp() throws Exception {
+        var bb = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(BSP_ID);
+        bb.putInt(VERSION);
+        bb.putInt(HEADER_SIZE - 4, 1); // map revision
+
+        Path file = Files.createTempFile("mapper", ".bsp");
+        Files.write(file, bb.array());
+        return file;
+    }
+
+    private static BrushSideFaceMapper load(Path file, TestMap map) throws Exception {
+        var bspFile = new BspFile();
+        bspFile.load(file, false);
+
+        var mapper = new BrushSideFaceMapper(new BspFileReader(bspFile, map.bsp), map.windingFactory);
+        mapper.load();
+        return mapper;
+    }
+
+    private static float[] vec(float x, float y, float z) {
+        return new float[] {x, y, z};
+    }
+
+    @Test
+    @DisplayName("Matches brushsides in many groups to identical original faces")
+    void exactMatches() throws Exception {
+        var map = new TestMap();
+
+        // boxes in a row, so the top, bottom and y sides share planes, and
+        // with four textures, so there are several groups per plane
+        for (int i = 0; i < 64; i++) {
+            map.box(vec(32 * i, 0, 0), vec(32 * i + 16, 16, 16), i % 4);
+        }
+
+        // one original face per brushside, in reverse order
+        int brushSideCount = map.brushSides.size();
+        for (int brushSideI = brushSideCount - 1; brushSideI >= 0; brushSideI--) {
+            map.origFaces.add(map.sideFace(brushSideI, 0));
+        }
+
+        Path file = writeEmptyBsp();
+        try {
+            var mapper = load(file, map);
+
+            for (int brushSideI = 0; brushSideI < brushSideCount; brushSideI++) {
+                int origFaceI = brushSideCount - 1 - brushSideI;
+                assertEquals(Optional.of(origFaceI), mapper.getOrigFaceIndex(brushSideI));
+                assertArrayEquals(new int[] {brushSideI}, mapper.getBrushSideIndices(origFaceI));
+            }
+
+            assertEquals(Optional.empty(), mapper.getOrigFaceIndex(brushSideCount));
+            assertArrayEquals(new int[] {}, mapper.getBrushSideIndices(brushSideCount));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Competing identical original faces go to the brushes in order")
+    void competingExactMatches() throws Exception {
+        Path file = writeEmptyBsp();
+        try {
+            for (int run = 0; run < 10; run++) {
+                var map = new TestMap();
+
+                // three identical boxes, but only two copies of each original face
+                for (int i = 0; i < 3; i++) {
+                    map.box(vec(0, 0, 0), vec(16, 16, 16), 0);
+                }
+                for (int side = 0; side < SIDES; side++) {
+                    map.origFaces.add(map.sideFace(side, 0));
+                    map.origFaces.add(map.sideFace(side, 0));
+                }
+
+                var mapper = load(file, map);
+
+                for (int side = 0; side < SIDES; side++) {
+                    assertEquals(Optional.of(2 * side), mapper.getOrigFaceIndex(side));
+                    assertEquals(Optional.of(2 * side + 1), mapper.getOrigFaceIndex(SIDES + side));
+                    assertEquals(Optional.empty(), mapper.getOrigFaceIndex(2 * SIDES + side));
+
+                    assertArrayEquals(new int[] {side}, mapper.getBrushSideIndices(2 * side));
+                    assertArrayEquals(new int[] {SIDES + side}, mapper.getBrushSideIndices(2 * side + 1));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Merged original faces go to the highest overlapping one")
+    void competingMergedMatches() throws Exception {
+        Path file = writeEmptyBsp();
+        try {
+            for (int run = 0; run < 10; run++) {
+                var map = new TestMap();
+
+                // two boxes next to each other, with one merged original face on top
+                int boxA = map.box(vec(0, 0, 0), vec(16, 16, 16), 0);
+                int boxB = map.box(vec(16, 0, 0), vec(32, 16, 16), 0);
+                int topA = map.brushes.get(boxA).fstside + TOP;
+                int topB = map.brushes.get(boxB).fstside + TOP;
+
+                var merged = new Winding(List.of(
+                        new Vector3d(0, 0, 16),
+                        new Vector3d(32, 0, 16),
+                        new Vector3d(32, 16, 16),
+                        new Vector3d(0, 16, 16)
+                ));
+                map.origFaces.add(map.face(merged, topA, 0));
+                map.origFaces.add(map.face(merged, topA, 0));
+
+                // the top of A overlaps faces of both original faces
+                map.faces.add(map.sideFace(topA, 0));
+                map.faces.add(map.sideFace(topB, 0));
+                map.faces.add(map.sideFace(topA, 1));
+
+                var mapper = load(file, map);
+
+                assertEquals(Optional.of(1), mapper.getOrigFaceIndex(topA));
+                assertEquals(Optional.of(0), mapper.getOrigFaceIndex(topB));
+                assertArrayEquals(new int[] {topB}, mapper.getBrushSideIndices(0));
+                assertArrayEquals(new int[] {topA}, mapper.getBrushSideIndices(1));
+
+                // the other sides don't have any faces
+                for (int brushSideI = 0; brushSideI < map.brushSides.size(); brushSideI++) {
+                    if (brushSideI != topA && brushSideI != topB) {
+                        assertEquals(Optional.empty(), mapper.getOrigFaceIndex(brushSideI));
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
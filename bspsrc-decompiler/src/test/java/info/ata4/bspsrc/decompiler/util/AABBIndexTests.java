@@ -0,0 +1,66 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test AABBIndex")
+public class AABBIndexTests {
+
+    private static AABB box(Random rnd, double maxSize) {
+        var min = new Vector3d(rnd.nextDouble() * 4096, rnd.nextDouble() * 4096, rnd.nextDouble() * 1024);
+        var size = new Vector3d(rnd.nextDouble() * maxSize, rnd.nextDouble() * maxSize, rnd.nextDouble() * maxSize);
+        return new AABB(min, min.add(size));
+    }
+
+    @Test
+    @DisplayName("Finds the same boxes as a linear search")
+    void matchesLinearSearch() {
+        var rnd = new Random(42);
+        List<AABB> boxes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // mostly small boxes and a few that span many cells
+            boxes.add(box(rnd, i % 100 == 0 ? 2048 : 64));
+        }
+        boxes.add(AABB.ZERO);
+
+        var index = new AABBIndex(AABBIndex.cellSizeFor(boxes, 2));
+        for (int i = 0; i < boxes.size(); i++) {
+            index.add(i, boxes.get(i));
+        }
+        assertEquals(boxes.size() - 1, index.size());
+
+        for (int q = 0; q < 200; q++) {
+            AABB query = box(rnd, q % 50 == 0 ? 4096 : 128).expand(1);
+
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < boxes.size(); i++) {
+                if (query.intersectsWith(boxes.get(i))) {
+                    expected.add(i);
+                }
+            }
+
+            var found = new TreeSet<Integer>();
+            index.forEachIntersecting(query, id -> assertTrue(found.add(id), "reported twice: " + id));
+
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    @DisplayName("Empty boxes intersect nothing")
+    void emptyBoxes() {
+        var index = new AABBIndex(16);
+        index.add(0, new AABB(new Vector3d(0, 0, 0), new Vector3d(8, 8, 8)));
+
+        index.forEachIntersecting(AABB.ZERO, id -> fail("found " + id));
+        index.forEachIntersecting(AABB.ZERO.expand(1), id -> fail("found " + id));
+    }
+}
@@ -0,0 +1,116 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test AsyncOutputChannel")
+public class AsyncOutputChannelTests {
+
+    @Test
+    @DisplayName("Writes all bytes in order")
+    void writesInOrder() throws IOException {
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+
+        var out = new ByteArrayOutputStream();
+        try (var channel = new AsyncOutputChannel(new GZIPOutputStream(out), 1000, 3, "test writer")) {
+            // chunks that don't line up with the buffers
+            for (int i = 0; i < data.length; i += 777) {
+                channel.write(ByteBuffer.wrap(data, i, Math.min(777, data.length - i)));
+            }
+        }
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Reports errors of the writer thread")
+    void reportsErrors() throws IOException {
+        var out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        var channel = new AsyncOutputChannel(out, 16, 2, "test writer");
+
+        // thrown by a later write or by close, depending on the writer thread
+        var ex = assertThrows(IOException.class, () -> {
+            try (channel) {
+                channel.write(ByteBuffer.wrap(new byte[64]));
+            }
+        });
+        assertEquals("disk full", ex.getCause().getMessage());
+        assertThrows(ClosedChannelException.class, () -> channel.write(ByteBuffer.wrap(new byte[1])));
+    }
+
+    @Test
+    @DisplayName("Wakes up blocked writes when the writer thread is interrupted")
+    void interruptedWriter() throws InterruptedException {
+        var writing = new CountDownLatch(1);
+        var release = new AtomicBoolean();
+        var out = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writing.countDown();
+                while (!release.get()) {
+                    Thread.onSpinWait();
+                }
+            }
+        };
+
+        var channel = new AsyncOutputChannel(out, 16, 2, "interrupted test writer");
+        var error = new AtomicReference<Throwable>();
+
+        // needs more buffers than there are, so it blocks while the writer thread is stuck
+        var producer = new Thread(() -> {
+            try {
+                channel.write(ByteBuffer.wrap(new byte[256]));
+            } catch (Throwable ex) {
+                error.set(ex);
+            }
+        });
+        producer.start();
+
+        writing.await();
+        while (producer.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+
+        Thread writer = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("interrupted test writer"))
+                .findFirst()
+                .orElseThrow();
+        writer.interrupt();
+        release.set(true);
+
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertInstanceOf(IOException.class, error.get());
+        assertInstanceOf(InterruptedIOException.class, error.get().getCause());
+        assertThrows(IOException.class, channel::close);
+    }
+}
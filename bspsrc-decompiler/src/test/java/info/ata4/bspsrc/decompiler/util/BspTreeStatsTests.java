@@ -0,0 +1,180 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DLeaf;
+import info.ata4.bspsrc.lib.struct.DModel;
+import info.ata4.bspsrc.lib.struct.DNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test BspTreeStats")
+public class BspTreeStatsTests {
+
+    private static BspData createBsp() {
+        var bsp = new BspData();
+        bsp.nodes = new ArrayList<DNode>();
+        bsp.leaves = new ArrayList<DLeaf>();
+        bsp.models = new ArrayList<DModel>();
+        bsp.leafFaces = new ArrayList<>();
+        bsp.leafBrushes = new ArrayList<>();
+        return bsp;
+    }
+
+    /**
+     * @param children node or leaf children, leaves as -1 - leaf index
+     */
+    @SuppressWarnings("unchecked")
+    private static void addNode(BspData bsp, int child0, int child1) {
+        var node = new DNode();
+        node.children[0] = child0;
+        node.children[1] = child1;
+        ((List<DNode>) bsp.nodes).add(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addLeaf(BspData bsp, List<Integer> faces, List<Integer> brushes) {
+        var leaf = new DLeaf();
+        leaf.fstleafface = bsp.leafFaces.size();
+        leaf.numleafface = faces.size();
+        leaf.fstleafbrush = bsp.leafBrushes.size();
+        leaf.numleafbrush = brushes.size();
+        bsp.leafFaces.addAll(faces);
+        bsp.leafBrushes.addAll(brushes);
+        ((List<DLeaf>) bsp.leaves).add(leaf);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addModel(BspData bsp, int headnode) {
+        var model = new DModel();
+        model.headnode = headnode;
+        ((List<DModel>) bsp.models).add(model);
+    }
+
+    /**
+     * World tree with the nodes 0 and 1 and the leaves 0 to 2, and a second
+     * tree with node 2 and the leaves 3 and 4.
+     */
+    private static BspData createTrees() {
+        var bsp = createBsp();
+        addNode(bsp, 1, -1);
+        addNode(bsp, -2, -3);
+        addNode(bsp, -4, -5);
+
+        addLeaf(bsp, List.of(5, 2), List.of(7));
+        addLeaf(bsp, List.of(9), List.of(3, 4));
+        addLeaf(bsp, List.of(), List.of(1));
+        addLeaf(bsp, List.of(11), List.of(8, 10));
+        addLeaf(bsp, List.of(12), List.of());
+        return bsp;
+    }
+
+    private static void assertStats(int bmin, int bmax, int fmin, int fmax, int nmax, BspTreeStats stats) {
+        assertEquals(bmin, stats.getMinBrushLeaf(), "min brush");
+        assertEquals(bmax, stats.getMaxBrushLeaf(), "max brush");
+        assertEquals(fmin, stats.getMinFaceLeaf(), "min face");
+        assertEquals(fmax, stats.getMaxFaceLeaf(), "max face");
+        assertEquals(nmax, stats.getMaxNode(), "max node");
+    }
+
+    @Test
+    @DisplayName("Finds minima and maxima of a tree")
+    void walk() {
+        var stats = new BspTreeStats(createTrees());
+
+        stats.walk(0);
+        assertStats(1, 7, 2, 9, 1, stats);
+
+        stats.reset();
+        stats.walk(2);
+        assertStats(8, 10, 11, 12, 2, stats);
+
+        // a single leaf as the head
+        stats.reset();
+        stats.walk(-3);
+        assertStats(1, 1, Integer.MAX_VALUE, -1, -1, stats);
+    }
+
+    @Test
+    @DisplayName("Walking all trees finds the same as walking each tree")
+    void walkAll() {
+        var bsp = createTrees();
+
+        List<BspTreeStats> trees = BspTreeStats.walkAll(bsp, new int[] {2, 0, 1});
+        assertEquals(3, trees.size());
+        assertStats(8, 10, 11, 12, 2, trees.get(0));
+        assertStats(1, 7, 2, 9, 1, trees.get(1));
+        assertStats(1, 4, 9, 9, 1, trees.get(2));
+    }
+
+    @Test
+    @DisplayName("Walks the world tree once, unless it isn't model 0")
+    void walkModels() {
+        var bsp = createTrees();
+        addModel(bsp, 0);
+        addModel(bsp, 2);
+
+        var trees = BspTreeStats.walkModels(bsp);
+        assertEquals(2, trees.models().size());
+        assertSame(trees.models().get(0), trees.world());
+        assertStats(1, 7, 2, 9, 1, trees.world());
+        assertStats(8, 10, 11, 12, 2, trees.models().get(1));
+
+        bsp.models = new ArrayList<DModel>();
+        addModel(bsp, 2);
+
+        trees = BspTreeStats.walkModels(bsp);
+        assertEquals(1, trees.models().size());
+        assertNotSame(trees.models().get(0), trees.world());
+        assertStats(1, 7, 2, 9, 1, trees.world());
+        assertStats(8, 10, 11, 12, 2, trees.models().get(0));
+    }
+
+    @Test
+    @DisplayName("Revisited nodes and cycles don't change the result")
+    void revisitedNodes() {
+        var bsp = createBsp();
+
+        // node 1 is reached twice from node 0 and links back to node 0
+        addNode(bsp, 1, 1);
+        addNode(bsp, 0, -1);
+        addLeaf(bsp, List.of(4), List.of(6));
+
+        var stats = new BspTreeStats(bsp);
+        stats.walk(0);
+        assertStats(6, 6, 4, 4, 1, stats);
+
+        // the visited nodes are forgotten between walks
+        stats.walk(1);
+        assertStats(6, 6, 4, 4, 1, stats);
+    }
+
+    @Test
+    @DisplayName("Walks trees deeper than the call stack")
+    void deepTree() {
+        int depth = 200_000;
+        var bsp = createBsp();
+
+        // node i has node i + 1 and leaf i as children, the last node has two leaves
+        for (int i = 0; i < depth - 1; i++) {
+            addNode(bsp, i + 1, -1 - i);
+        }
+        addNode(bsp, -depth, -1 - depth);
+
+        for (int i = 0; i <= depth; i++) {
+            addLeaf(bsp, List.of(2 * i), List.of(i));
+        }
+
+        var stats = new BspTreeStats(bsp);
+        stats.walk(0);
+        assertStats(0, depth, 0, 2 * depth, depth - 1, stats);
+
+        var trees = BspTreeStats.walkAll(bsp, new int[] {0, depth / 2});
+        assertStats(0, depth, 0, 2 * depth, depth - 1, trees.get(0));
+        assertStats(depth / 2, depth, depth, 2 * depth, depth - 1, trees.get(1));
+    }
+}
@@ -0,0 +1,63 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test Crc32Util")
+public class Crc32UtilTests {
+
+    @Test
+    @DisplayName("Hashes the remaining bytes without moving the position")
+    void crc() {
+        byte[] data = "123456789".getBytes();
+        var bb = ByteBuffer.wrap(data);
+
+        assertEquals(0xcbf43926L, Crc32Util.crc(bb));
+        assertEquals(0, bb.position());
+
+        bb.position(9);
+        assertEquals(0L, Crc32Util.crc(bb));
+    }
+
+    @Test
+    @DisplayName("Combines checksums of consecutive pieces")
+    void combine() {
+        var random = new Random(42);
+        byte[] data = new byte[100_000];
+        random.nextBytes(data);
+
+        var whole = new CRC32();
+        whole.update(data);
+
+        for (int i = 0; i < 50; i++) {
+            int cut1 = random.nextInt(data.length + 1);
+            int cut2 = cut1 + random.nextInt(data.length - cut1 + 1);
+
+            long crc = 0;
+            crc = Crc32Util.combine(crc, crc(data, 0, cut1), cut1);
+            crc = Crc32Util.combine(crc, crc(data, cut1, cut2), cut2 - cut1);
+            crc = Crc32Util.combine(crc, crc(data, cut2, data.length), data.length - cut2);
+
+            assertEquals(whole.getValue(), crc);
+        }
+    }
+
+    @Test
+    @DisplayName("Ignores empty pieces")
+    void combineEmpty() {
+        assertEquals(0x12345678L, Crc32Util.combine(0x12345678L, 0, 0));
+        assertEquals(0xcbf43926L, Crc32Util.combine(0, 0xcbf43926L, 9));
+    }
+
+    private static long crc(byte[] data, int from, int to) {
+        var crc = new CRC32();
+        crc.update(data, from, to - from);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,37 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test IntTable")
+public class IntTableTests {
+
+    @Test
+    @DisplayName("Stores values and grows with the keys")
+    void putGet() {
+        var table = new IntTable(2);
+
+        assertEquals(IntTable.MISSING, table.put(0, 7));
+        assertEquals(IntTable.MISSING, table.put(1000, 3));
+        assertEquals(7, table.put(0, 8));
+
+        assertEquals(8, table.get(0));
+        assertEquals(3, table.get(1000));
+        assertEquals(IntTable.MISSING, table.get(999));
+        assertEquals(IntTable.MISSING, table.get(5000));
+        assertEquals(IntTable.MISSING, table.get(-1));
+        assertTrue(table.containsKey(1000));
+        assertFalse(table.containsKey(1));
+    }
+
+    @Test
+    @DisplayName("Rejects negative keys and the missing value")
+    void invalid() {
+        var table = new IntTable();
+
+        assertThrows(IndexOutOfBoundsException.class, () -> table.put(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> table.put(0, IntTable.MISSING));
+    }
+}
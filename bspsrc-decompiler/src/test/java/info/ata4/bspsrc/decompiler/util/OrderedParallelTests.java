@@ -0,0 +1,29 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Test OrderedParallel")
+public class OrderedParallelTests {
+
+    @Test
+    @DisplayName("Writes results in item order")
+    void writesInOrder() {
+        List<Integer> items = IntStream.range(0, 10_000).boxed().toList();
+        List<String> written = new ArrayList<>();
+
+        OrderedParallel.forEach(items, 100, i -> "item" + i, (i, result) -> {
+            assertEquals("item" + i, result);
+            written.add(result);
+        });
+
+        List<String> expected = items.stream().map(i -> "item" + i).toList();
+        assertEquals(expected, written);
+    }
+}
@@ -0,0 +1,23 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test PlaneBuckets")
+public class PlaneBucketsTests {
+
+    @Test
+    @DisplayName("Groups items by plane in ascending order")
+    void get() {
+        var buckets = PlaneBuckets.build(new int[] {3, 0, 3, -1, 5, 3});
+
+        assertArrayEquals(new int[] {1}, buckets.get(0));
+        assertArrayEquals(new int[] {}, buckets.get(1));
+        assertArrayEquals(new int[] {0, 2, 5}, buckets.get(3));
+        assertArrayEquals(new int[] {4}, buckets.get(5));
+        assertArrayEquals(new int[] {}, buckets.get(6));
+        assertArrayEquals(new int[] {}, buckets.get(-1));
+    }
+}
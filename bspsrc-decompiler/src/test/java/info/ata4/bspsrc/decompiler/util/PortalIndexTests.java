@@ -0,0 +1,69 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.struct.BspData;
+import info.ata4.bspsrc.lib.struct.DAreaportal;
+import info.ata4.bspsrc.lib.struct.DOccluderData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DisplayName("Test PortalIndex")
+public class PortalIndexTests {
+
+    private static BspData createBsp(int[] portalKeys, int[] polyCounts) {
+        var bsp = new BspData();
+        bsp.areaportals = Arrays.stream(portalKeys)
+                .mapToObj(key -> {
+                    var ap = new DAreaportal();
+                    ap.portalKey = key;
+                    return ap;
+                })
+                .toList();
+
+        int firstPoly = 0;
+        var occluders = new ArrayList<DOccluderData>();
+        for (int polyCount : polyCounts) {
+            var occluder = new DOccluderData();
+            occluder.firstpoly = firstPoly;
+            occluder.polycount = polyCount;
+            occluders.add(occluder);
+            firstPoly += polyCount;
+        }
+        bsp.occluderDatas = occluders;
+        return bsp;
+    }
+
+    @Test
+    @DisplayName("Groups areaportals by portal key")
+    void groupsAreaportals() {
+        var index = PortalIndex.build(createBsp(new int[] {0, 3, 1, 3, 0, 1, -2}, new int[0]));
+
+        assertEquals(3, index.getPortalKeyCount());
+        assertEquals(-2, index.getPortalKey(0));
+        assertEquals(List.of(2, 5), index.getAreaportals(1));
+        assertEquals(List.of(1, 3), index.getAreaportals(3));
+        assertEquals(List.of(6), index.getAreaportalsAt(0));
+        assertEquals(List.of(), index.getAreaportals(0));
+        assertEquals(List.of(), index.getAreaportals(2));
+        assertEquals(List.of(1, 3), index.getPositivePortalKeys());
+    }
+
+    @Test
+    @DisplayName("Numbers occluder polygons consecutively")
+    void flattensOccluderPolys() {
+        var index = PortalIndex.build(createBsp(new int[0], new int[] {2, 0, 3}));
+
+        assertEquals(3, index.getOccluderCount());
+        assertEquals(5, index.getTotalOccluderPolyCount());
+        assertEquals(2, index.getFlattenedOccluderPoly(1));
+        assertEquals(2, index.getFlattenedOccluderPoly(2));
+        assertEquals(0, index.getOccluderPolyCount(1));
+        assertEquals(3, index.getOccluderPolyCount(2));
+        assertEquals(2, index.getOccluderFirstPoly(2));
+    }
+}
@@ -0,0 +1,68 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test SparseAssignment")
+public class SparseAssignmentTests {
+
+    @Test
+    @DisplayName("Solves single job and single worker components directly")
+    void trivialComponents() {
+        var scores = new SparseScores.Builder(4, 5)
+                .put(0, 1, 0.5)
+                .put(0, 3, 0.75)
+                .put(2, 2, 0.25)
+                .put(3, 2, 0.5)
+                .build();
+
+        var result = SparseAssignment.solve(scores);
+
+        assertArrayEquals(new int[] {3, -1, -1, 2}, result.jobToWorker());
+        assertEquals(1.25, result.sum());
+    }
+
+    @Test
+    @DisplayName("Finds matchings as good as the dense Hungarian method")
+    void matchesDense() {
+        var random = new Random(42);
+
+        for (int n = 0; n < 200; n++) {
+            int jobs = 1 + random.nextInt(12);
+            int workers = 1 + random.nextInt(12);
+
+            var dense = new double[jobs][workers];
+            var builder = new SparseScores.Builder(jobs, workers);
+            for (int j = 0; j < jobs; j++) {
+                for (int w = 0; w < workers; w++) {
+                    if (random.nextInt(5) == 0) {
+                        dense[j][w] = random.nextInt(4) / 4.0;
+                        builder.put(j, w, dense[j][w]);
+                    }
+                }
+            }
+
+            var expected = HungarianAlgorithm.hungarian((j, w) -> dense[j][w], jobs, workers);
+            var result = SparseAssignment.solve(builder.build());
+
+            var used = new boolean[workers];
+            double sum = 0;
+            for (int j = 0; j < jobs; j++) {
+                int w = result.jobToWorker()[j];
+                if (w >= 0) {
+                    assertFalse(used[w]);
+                    assertTrue(dense[j][w] > 0);
+                    used[w] = true;
+                    sum += dense[j][w];
+                }
+            }
+
+            assertEquals(expected.sum(), sum, 1e-9);
+            assertEquals(expected.sum(), result.sum(), 1e-9);
+        }
+    }
+}
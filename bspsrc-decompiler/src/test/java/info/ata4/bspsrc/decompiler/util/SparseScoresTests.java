@@ -0,0 +1,43 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test SparseScores")
+public class SparseScoresTests {
+
+    @Test
+    @DisplayName("Returns stored entries and 0 everywhere else")
+    void get() {
+        var scores = new SparseScores.Builder(4, 3)
+                .put(0, 1, 0.5)
+                .put(0, 2, 0.25)
+                .put(2, 0, 0)
+                .put(2, 2, 1)
+                .build();
+
+        assertEquals(4, scores.getRowCount());
+        assertEquals(3, scores.getColumnCount());
+        assertEquals(3, scores.getEntryCount());
+
+        assertEquals(0, scores.get(0, 0));
+        assertEquals(0.5, scores.get(0, 1));
+        assertEquals(0.25, scores.get(0, 2));
+        assertEquals(0, scores.get(1, 1));
+        assertEquals(0, scores.get(2, 0));
+        assertEquals(1, scores.get(2, 2));
+        assertEquals(0, scores.get(3, 2));
+    }
+
+    @Test
+    @DisplayName("Rejects entries out of order or out of bounds")
+    void order() {
+        var builder = new SparseScores.Builder(2, 2).put(1, 0, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.put(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.put(0, 1, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> builder.put(1, 2, 1));
+    }
+}
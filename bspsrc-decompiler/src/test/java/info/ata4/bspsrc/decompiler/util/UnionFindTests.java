@@ -0,0 +1,32 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test UnionFind")
+public class UnionFindTests {
+
+    @Test
+    @DisplayName("Groups connected elements in order")
+    void groups() {
+        var uf = new UnionFind(6);
+
+        assertTrue(uf.union(4, 1));
+        assertTrue(uf.union(5, 3));
+        assertTrue(uf.union(1, 5));
+        assertFalse(uf.union(3, 4));
+
+        assertEquals(uf.find(1), uf.find(3));
+        assertNotEquals(uf.find(0), uf.find(2));
+
+        List<int[]> groups = uf.groups();
+        assertEquals(3, groups.size());
+        assertArrayEquals(new int[] {0}, groups.get(0));
+        assertArrayEquals(new int[] {1, 3, 4, 5}, groups.get(1));
+        assertArrayEquals(new int[] {2}, groups.get(2));
+    }
+}
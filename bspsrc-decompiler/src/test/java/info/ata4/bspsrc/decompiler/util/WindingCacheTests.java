@@ -0,0 +1,57 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test WindingCache")
+public class WindingCacheTests {
+
+    private static Winding triangle(long key) {
+        return new Winding(List.of(
+                new Vector3d(key, 0, 0),
+                new Vector3d(0, key, 0),
+                new Vector3d(0, 0, key)
+        ));
+    }
+
+    @Test
+    @DisplayName("Counts hits and misses")
+    void hitsAndMisses() {
+        WindingCache cache = WindingCache.unbounded();
+
+        Winding w = cache.get(1, WindingCacheTests::triangle);
+        assertSame(w, cache.get(1, key -> fail("loaded cached winding")));
+        cache.get(2, WindingCacheTests::triangle);
+
+        assertEquals(new WindingCache.Stats(1, 2, 0), cache.getStats());
+    }
+
+    @Test
+    @DisplayName("Evicts by weight")
+    void evicts() {
+        // 16 segments with 3 points each, so each segment holds one triangle
+        WindingCache cache = WindingCache.bounded(16 * 3);
+
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(triangle(key), cache.get(key, WindingCacheTests::triangle));
+        }
+
+        WindingCache.Stats stats = cache.getStats();
+        assertEquals(1000, stats.misses());
+        assertTrue(stats.evictions() >= 1000 - 16, "too few evictions: " + stats);
+    }
+
+    @Test
+    @DisplayName("Disabled cache always loads")
+    void disabled() {
+        WindingCache cache = WindingCache.disabled();
+
+        assertNotSame(cache.get(1, WindingCacheTests::triangle), cache.get(1, WindingCacheTests::triangle));
+        assertEquals(new WindingCache.Stats(0, 2, 0), cache.getStats());
+    }
+}
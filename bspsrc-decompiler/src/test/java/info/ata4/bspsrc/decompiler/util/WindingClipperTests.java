@@ -0,0 +1,87 @@
+package info.ata4.bspsrc.decompiler.util;
+
+import info.ata4.bspsrc.lib.vector.Vector3d;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test WindingClipper")
+public class WindingClipperTests {
+
+    // 2x2 square around the origin on the z = 0 plane
+    private static final Winding SQUARE = new Winding(List.of(
+            new Vector3d(-1, 1, 0),
+            new Vector3d(1, 1, 0),
+            new Vector3d(1, -1, 0),
+            new Vector3d(-1, -1, 0)
+    ));
+
+    @Test
+    @DisplayName("Clips to the front of a plane")
+    void clipFront() {
+        Winding w = SQUARE.clipEpsilon(new Vector3d(1, 0, 0), 0, Winding.EPS_SPLIT, false);
+
+        assertEquals(List.of(
+                new Vector3d(0, 1, 0),
+                new Vector3d(1, 1, 0),
+                new Vector3d(1, -1, 0),
+                new Vector3d(0, -1, 0)
+        ), List.copyOf(w));
+    }
+
+    @Test
+    @DisplayName("Clips to the back of a plane")
+    void clipBack() {
+        Winding w = SQUARE.clipEpsilon(new Vector3d(0.6, 0.8, 0), 0.5, Winding.EPS_SPLIT, true);
+
+        assertEquals(5, w.size());
+        for (Vector3d v : w) {
+            assertTrue(v.dot(new Vector3d(0.6, 0.8, 0)) - 0.5 <= Winding.EPS_SPLIT);
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps or drops windings on one side")
+    void oneSided() {
+        assertSame(SQUARE, SQUARE.clipEpsilon(new Vector3d(1, 0, 0), -2, Winding.EPS_SPLIT, false));
+        assertTrue(SQUARE.clipEpsilon(new Vector3d(1, 0, 0), 2, Winding.EPS_SPLIT, false).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Clips repeatedly in place")
+    void clipRepeatedly() {
+        Winding w = WindingClipper.get()
+                .load(SQUARE)
+                .clip(1, 0, 0, 0, Winding.EPS_SPLIT, false)
+                .clip(0, 1, 0, 0, Winding.EPS_SPLIT, false)
+                .toWinding();
+
+        Winding expected = SQUARE
+                .clipEpsilon(new Vector3d(1, 0, 0), 0, Winding.EPS_SPLIT, false)
+                .clipEpsilon(new Vector3d(0, 1, 0), 0, Winding.EPS_SPLIT, false);
+
+        assertEquals(expected, w);
+        assertEquals(4, w.size());
+    }
+
+    @Test
+    @DisplayName("Removes degenerated vertices")
+    void removeDegenerated() {
+        Winding w = new Winding(List.of(
+                new Vector3d(0, 0, 0),
+                new Vector3d(0.05, 0, 0),
+                new Vector3d(1, 0, 0),
+                new Vector3d(0, 1, 0)
+        ));
+
+        assertEquals(List.of(
+                new Vector3d(0.05, 0, 0),
+                new Vector3d(1, 0, 0),
+                new Vector3d(0, 1, 0)
+        ), List.copyOf(w.removeDegenerated()));
+        assertSame(SQUARE, SQUARE.removeDegenerated());
+    }
+}
@@ -27,13 +27,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static info.ata4.bspsrc.lib.app.SourceAppId.*;
 import static info.ata4.io.Seekable.Origin.CURRENT;
@@ -66,6 +71,9 @@ public class BspFile {
     // BSP source file
     private Path file;
 
+    // data of the whole file as stored on disk, null if unavailable
+    private ByteBuffer fileBuffer;
+
     // BSP name, usually the file name without ".bsp"
     private String name;
 
@@ -95,12 +103,39 @@ public class BspFile {
      * @throws IOException if the file can't be opened or read
      */
     public void load(Path file, boolean memMapping) throws BspException, IOException {
+        load(file, memMapping ? ByteBufferUtils.openReadOnly(file) : ByteBufferUtils.load(file));
+    }
+
+    /**
+     * Opens the BSP file and loads its headers and lumps. The file is mapped
+     * to memory within the given arena, so the mapping is released when the
+     * arena is closed instead of when the buffers are garbage collected. The
+     * lumps can't be accessed anymore after closing the arena.
+     *
+     * @param file BSP file to open
+     * @param arena arena that controls the lifetime of the mapping, must be
+     *              shared if the lumps are read by multiple threads
+     * @throws IOException if the file can't be opened or read
+     */
+    public void load(Path file, Arena arena) throws BspException, IOException {
+        ByteBuffer bb;
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            bb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size(), arena).asByteBuffer();
+        }
+
+        load(file, bb);
+    }
+
+    private void load(Path file, ByteBuffer bb) throws BspException, IOException {
         this.file = file;
         this.name = PathUtil.nameWithoutExtension(file).orElse(null);
 
         L.debug("Loading headers from {}", name);
 
-        ByteBuffer bb = createBuffer(memMapping);
+        // checkHeader() resets it if the data is decrypted
+        fileBuffer = bb.asReadOnlyBuffer();
+
+        bb = checkHeader(bb);
 
         L.trace("Endianness: {}", bo);
 
@@ -171,6 +206,8 @@ public class BspFile {
 
         L.debug("Saving headers to {}", name);
 
+        fileBuffer = null;
+
         // update game lump buffer
         saveGameLumps();
 
@@ -187,22 +224,15 @@ public class BspFile {
     }
 
     /**
-     * Creates a byte buffer for the BSP file, checks its ident, detects its
-     * endianness and performs other low-level I/O operations if required.
+     * Checks the ident of the BSP file buffer, detects its endianness and
+     * performs other low-level I/O operations if required.
      * 
-     * @param memMapping true if the map should be loaded as a memory-mapped file
-     * @throws IOException if the buffer couldn't be created
+     * @param bb buffer of the whole BSP file
+     * @return buffer to read the headers and lumps from, positioned after the ident
+     * @throws IOException if the file couldn't be reloaded
      * @throws BspException if the header or file format is invalid
      */
-    private ByteBuffer createBuffer(boolean memMapping) throws IOException, BspException {
-        ByteBuffer bb;
-
-        if (memMapping) {
-            bb = ByteBufferUtils.openReadOnly(file);
-        } else {
-            bb = ByteBufferUtils.load(file);
-        }
-
+    private ByteBuffer checkHeader(ByteBuffer bb) throws IOException, BspException {
         if (bb.capacity() < 4) {
             throw new BspException("Invalid or missing header");
         }
@@ -265,8 +295,11 @@ public class BspFile {
 
             L.debug("Found Tactical Intervention XOR encryption using the key \"{}\"", new String(mapKey));
 
+            // the data won't match the file anymore
+            fileBuffer = null;
+
             // fully reload the map into memory if that isn't the case already
-            if (memMapping || bb.isReadOnly()) {
+            if (bb.isDirect() || bb.isReadOnly()) {
                 bb = ByteBufferUtils.load(file);
             }
 
@@ -361,16 +394,16 @@ public class BspFile {
             if (appId == LEFT_4_DEAD_2) {
                 bb.putInt(lump.getVersion());
                 bb.putInt(lump.getOffset());
-                bb.putInt(lump.getLength());
+                bb.putInt(lump.getRawLength());
             } else {
                 bb.putInt(lump.getOffset());
-                bb.putInt(lump.getLength());
+                bb.putInt(lump.getRawLength());
                 bb.putInt(lump.getVersion());
             }
 
             bb.putInt(lump.getFourCC());
 
-            if (lump.getLength() == 0) {
+            if (lump.getRawLength() == 0) {
                 continue;
             }
 
@@ -380,7 +413,7 @@ public class BspFile {
             }
 
             // write buffer data
-            ByteBuffer lbb = lump.getBuffer();
+            ByteBuffer lbb = lump.getRawBuffer();
 
             bb.mark();
             bb.position(lump.getOffset());
@@ -535,7 +568,7 @@ public class BspFile {
                     int nextOfs = in.readInt();
                     if (nextOfs == 0) {
                         // no next entry, assume end of game lump
-                        nextOfs = lump.getOffset() + lump.getLength();
+                        nextOfs = lump.getOffset() + lump.getRawLength();
                     }
                     len = nextOfs - ofs;
                     in.seek(-12, CURRENT);
@@ -609,7 +642,7 @@ public class BspFile {
         // get total game lump data size
         int dataSize = 0;
         for (GameLump gl : gameLumps) {
-            dataSize += gl.getLength();
+            dataSize += gl.getRawLength();
         }
 
         try {
@@ -624,7 +657,7 @@ public class BspFile {
 
             for (GameLump gl : gameLumps) {
                 gl.setOffset(offset);
-                offset += gl.getLength();
+                offset += gl.getRawLength();
 
                 // write header
                 out.writeInt(gl.getFourCC());
@@ -636,12 +669,12 @@ public class BspFile {
                     out.writeUnsignedShort(gl.getVersion());
                 }
                 out.writeInt(gl.getOffset());
-                out.writeInt(gl.getLength());
+                out.writeInt(gl.getRawLength());
 
                 // write buffer data
                 bb.mark();
                 bb.position(gl.getOffset());
-                bb.put(gl.getBuffer());
+                bb.put(gl.getRawBuffer());
                 bb.reset();
             }
 
@@ -665,11 +698,11 @@ public class BspFile {
 
         for (Lump lump : lumps) {
             // set offset of empty lumps to 0
-            if (lump.getLength() == 0) {
+            if (lump.getRawLength() == 0) {
                 lump.setOffset(0);
             } else {
                 lump.setOffset(offset);
-                offset += lump.getLength();
+                offset += lump.getRawLength();
             }
         }
 
@@ -803,19 +836,20 @@ public class BspFile {
     }
 
     /**
-     * Uncompresses all compressed lumps.
+     * Uncompresses all compressed lumps. The lumps are independent of each
+     * other and are uncompressed concurrently.
      */
     public void uncompress() {
-        if (hasCompressedLumps())
-            L.info("Uncompressing lumps");
+        List<AbstractLump> compressedLumps = Stream.<AbstractLump>concat(lumps.stream(), gameLumps.stream())
+                .filter(AbstractLump::isCompressed)
+                .toList();
 
-        for (Lump l : lumps) {
-            l.uncompress();
-        }
+        if (compressedLumps.isEmpty())
+            return;
 
-        for (GameLump gl : gameLumps) {
-            gl.uncompress();
-        }
+        L.info("Uncompressing lumps");
+
+        compressedLumps.parallelStream().forEach(AbstractLump::uncompress);
     }
 
     /**
@@ -894,6 +928,18 @@ public class BspFile {
         return file;
     }
 
+    /**
+     * Returns a read-only buffer of the whole BSP file as stored on disk. The
+     * lumps are views of the same data, unless they were loaded from lump
+     * files or the file is encrypted.
+     *
+     * @return file data, or an empty optional if the loaded data doesn't match
+     *         the file or if the map was saved
+     */
+    public Optional<ByteBuffer> getFileBuffer() {
+        return Optional.ofNullable(fileBuffer).map(ByteBuffer::duplicate);
+    }
+
     /**
      * Returns the BSP version
      *
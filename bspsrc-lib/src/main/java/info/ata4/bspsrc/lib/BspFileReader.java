@@ -12,6 +12,7 @@ package info.ata4.bspsrc.lib;
 
 import info.ata4.bspsrc.lib.app.SourceAppDB;
 import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.io.LazyDStructList;
 import info.ata4.bspsrc.lib.io.lumpreader.*;
 import info.ata4.bspsrc.lib.lump.AbstractLump;
 import info.ata4.bspsrc.lib.lump.GameLump;
@@ -43,15 +44,45 @@ public class BspFileReader {
     private final BspFile bspFile;
     private final BspData bspData;
 
-    public BspFileReader(BspFile bspFile, BspData bspData) {
+    // geometry lumps are read into primitive arrays if set
+    private final ColumnarGeometry columnarGeometry;
+
+    // struct lumps are decoded on access if set
+    private boolean lazyStructs;
+    private int lazyStructCacheSize = LazyDStructList.CACHE_ALL;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param bspFile loaded BSP file
+     * @param bspData data structure to read the lumps into
+     * @param columnar if true, the vertex, plane, edge, surface edge, leaf face
+     *                 and leaf brush lumps are stored in a {@link ColumnarGeometry}
+     *                 instead of struct objects, which saves a lot of memory on
+     *                 large maps
+     */
+    public BspFileReader(BspFile bspFile, BspData bspData, boolean columnar) {
         this.bspFile = bspFile;
         this.bspData = bspData;
 
         if (bspFile.getFile() == null)
             throw new IllegalArgumentException("BSP file is unloaded");
 
-        // uncompress all lumps first
-        bspFile.uncompress();
+        if (columnar) {
+            if (!(bspData.geometry instanceof ColumnarGeometry)) {
+                bspData.geometry = new ColumnarGeometry();
+            }
+            columnarGeometry = (ColumnarGeometry) bspData.geometry;
+        } else {
+            columnarGeometry = null;
+        }
+
+        // compressed lumps are uncompressed on demand in readAbstractLump,
+        // unless uncompressAll is called first
+    }
+
+    public BspFileReader(BspFile bspFile, BspData bspData) {
+        this(bspFile, bspData, false);
     }
 
     public BspFileReader(BspFile bspFile) {
@@ -63,9 +94,22 @@ public class BspFileReader {
     }
 
     /**
-     * Loads all supported lumps
+     * Uncompresses all compressed lumps up front and concurrently, see
+     * {@link BspFile#uncompress()}. Otherwise, each lump is uncompressed on its
+     * own when it's read and released again afterwards, which only pays off if
+     * just a few lumps are needed.
+     */
+    public void uncompressAll() {
+        bspFile.uncompress();
+    }
+
+    /**
+     * Loads all supported lumps. As nearly every lump is read, the compressed
+     * lumps are uncompressed concurrently first.
      */
     public void loadAll() {
+        uncompressAll();
+
         loadEntities();
         loadVertices();
         loadEdges();
@@ -100,7 +144,14 @@ public class BspFileReader {
             return;
         }
 
-        bspData.planes = readDStructChunksLump(LumpType.LUMP_PLANES, DPlane::new);
+        if (columnarGeometry != null) {
+            PlaneArrayLumpReader.PlaneData planeData = readLump(LumpType.LUMP_PLANES, new PlaneArrayLumpReader());
+            columnarGeometry.planes = planeData.planes();
+            columnarGeometry.planeTypes = planeData.types();
+            bspData.planes = columnarGeometry.planeList();
+        } else {
+            bspData.planes = readDStructChunksLump(LumpType.LUMP_PLANES, DPlane::new);
+        }
         L.debug(String.format("%d planes", bspData.planes.size()));
     }
 
@@ -141,7 +192,12 @@ public class BspFileReader {
             return;
         }
 
-        bspData.verts = readDStructChunksLump(LumpType.LUMP_VERTEXES, DVertex::new);
+        if (columnarGeometry != null) {
+            columnarGeometry.verts = readLump(LumpType.LUMP_VERTEXES, new FloatArrayLumpReader());
+            bspData.verts = columnarGeometry.vertList();
+        } else {
+            bspData.verts = readDStructChunksLump(LumpType.LUMP_VERTEXES, DVertex::new);
+        }
         L.debug(String.format("%d vertices", bspData.verts.size()));
     }
 
@@ -159,6 +215,15 @@ public class BspFileReader {
             return;
         }
 
+        if (columnarGeometry != null) {
+            // same layout as the structs, but with unsigned shorts or integers
+            boolean ushort = appId() != VINDICTUS && appId() != STRATA_SOURCE;
+            columnarGeometry.edges = readLump(LumpType.LUMP_EDGES, new IntArrayLumpReader(ushort));
+            bspData.edges = columnarGeometry.edgeList();
+            L.debug(String.format("%d edges", bspData.edges.size()));
+            return;
+        }
+
         Supplier<? extends DEdge> struct;
 
 	    if (appId() == VINDICTUS) {
@@ -241,7 +306,12 @@ public class BspFileReader {
             return;
         }
 
-        bspData.surfEdges = readLump(LumpType.LUMP_SURFEDGES, new IntegerChunksLumpReader());
+        if (columnarGeometry != null) {
+            columnarGeometry.surfEdges = readLump(LumpType.LUMP_SURFEDGES, new IntArrayLumpReader(false));
+            bspData.surfEdges = columnarGeometry.surfEdgeList();
+        } else {
+            bspData.surfEdges = readLump(LumpType.LUMP_SURFEDGES, new IntegerChunksLumpReader());
+        }
         L.debug(String.format("%d surface edges", bspData.surfEdges.size()));
     }
 
@@ -453,6 +523,14 @@ public class BspFileReader {
             return;
         }
 
+        if (columnarGeometry != null) {
+            boolean ushort = appId() != VINDICTUS && appId() != STRATA_SOURCE;
+            columnarGeometry.leafFaces = readLump(LumpType.LUMP_LEAFFACES, new IntArrayLumpReader(ushort));
+            bspData.leafFaces = columnarGeometry.leafFaceList();
+            L.debug(String.format("%d leaf faces", bspData.leafFaces.size()));
+            return;
+        }
+
         LumpReader<List<Integer>> lumpReader;
         if (appId() == VINDICTUS || appId() == STRATA_SOURCE) {
             lumpReader = new IntegerChunksLumpReader();
@@ -469,6 +547,14 @@ public class BspFileReader {
             return;
         }
 
+        if (columnarGeometry != null) {
+            boolean ushort = appId() != VINDICTUS && appId() != STRATA_SOURCE;
+            columnarGeometry.leafBrushes = readLump(LumpType.LUMP_LEAFBRUSHES, new IntArrayLumpReader(ushort));
+            bspData.leafBrushes = columnarGeometry.leafBrushList();
+            L.debug(String.format("%d leaf brushes", bspData.leafBrushes.size()));
+            return;
+        }
+
         LumpReader<List<Integer>> lumpReader;
         if (appId() == VINDICTUS || appId() == STRATA_SOURCE) {
             lumpReader = new IntegerChunksLumpReader();
@@ -661,6 +747,14 @@ public class BspFileReader {
             LumpType lumpType,
             Function<? super Integer, Supplier<? extends T>> dStructSupplierCreator
     ) {
+        if (lazyStructs) {
+            return readLump(
+                    lumpType,
+                    lumpVersion -> new LazyDStructLumpReader<>(dStructSupplierCreator.apply(lumpVersion), lazyStructCacheSize),
+                    Collections::emptyList
+            );
+        }
+
         return readLump(
                 lumpType,
                 lumpVersion -> new DStructChunksLumpReader<>(dStructSupplierCreator.apply(lumpVersion)),
@@ -756,12 +850,20 @@ public class BspFileReader {
 
         L.debug(String.format("Reading %s", lump));
 
+        boolean compressed = lump.isCompressed();
+
         T returnData;
         try {
             returnData = lumpReader.read(lump.getBuffer());
         } catch (Exception e) {
             L.warn(String.format("An error occurred while trying to read lump %s", lump), e);
             returnData = lumpReader.defaultData();
+        } finally {
+            // the lump isn't needed anymore once its data has been read, so
+            // don't keep a second, uncompressed copy of it around
+            if (compressed) {
+                lump.releaseUncompressed();
+            }
         }
 
         L.debug(String.format("Finished reading %s", lump));
@@ -775,4 +877,31 @@ public class BspFileReader {
     public BspData getData() {
         return bspData;
     }
+
+    /**
+     * Enables or disables lazy decoding of struct lumps loaded after this call.
+     * <p>
+     * If enabled, lumps are returned as read-only {@link LazyDStructList}s, which decode
+     * each struct from the lump buffer when it is first accessed. This is useful for
+     * analysis that only touches a fraction of a lump. Note that read errors are then
+     * thrown on access instead of being logged while loading.
+     *
+     * @param lazyStructs true to decode structs on access
+     * @param cacheSize cache size for the lazy lists, see {@link LazyDStructList}
+     */
+    public void setLazyStructs(boolean lazyStructs, int cacheSize) {
+        this.lazyStructs = lazyStructs;
+        this.lazyStructCacheSize = cacheSize;
+    }
+
+    public boolean isLazyStructs() {
+        return lazyStructs;
+    }
+
+    /**
+     * @return true if the geometry lumps are read into a {@link ColumnarGeometry}
+     */
+    public boolean isColumnar() {
+        return columnarGeometry != null;
+    }
 }
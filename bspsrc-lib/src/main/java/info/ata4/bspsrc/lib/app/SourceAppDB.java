@@ -16,19 +16,26 @@ import org.apache.logging.log4j.Logger;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Source engine application database handler.
+ * <p>
+ * The instance is created on first use and indexes the apps once, so that
+ * {@link #find} only has to score the apps that match the version, an entity
+ * class or the file name of a map. It can be used by multiple threads.
  * 
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class SourceAppDB {
 
     private static final Logger L = LogManager.getLogger();
-    private static SourceAppDB instance;
 
-    private final List<SourceApp> appList = Arrays.asList(
+    // versions with precomputed version scores
+    private static final int INDEXED_VERSIONS = 64;
+
+    private final List<SourceApp> appList = List.of(
             AlienSwarmDef.APP,
             BlackMesaDef.APP,
             BladeSymphonyDef.APP,
@@ -67,12 +74,51 @@ public class SourceAppDB {
             ZombiePanicSourceDef.APP
     );
 
+    // app indices by entity class name
+    private final Map<String, int[]> appsByEntity = new HashMap<>();
+
+    // score for the version check of each app, by BSP version
+    private final float[][] versionScores = new float[INDEXED_VERSIONS][];
+
+    // matches any file name that one of the apps' patterns matches
+    private final Pattern anyFilePattern;
+
+    private final Map<Integer, SourceApp> appsById = new HashMap<>();
+
+    private static class Holder {
+        private static final SourceAppDB INSTANCE = new SourceAppDB();
+    }
+
     public static SourceAppDB getInstance() {
-        if (instance == null) {
-            instance = new SourceAppDB();
+        return Holder.INSTANCE;
+    }
+
+    private SourceAppDB() {
+        Map<String, List<Integer>> appLists = new HashMap<>();
+        StringJoiner filePatterns = new StringJoiner("|");
+
+        for (int i = 0; i < appList.size(); i++) {
+            SourceApp app = appList.get(i);
+
+            for (String entity : app.getEntities()) {
+                appLists.computeIfAbsent(entity, key -> new ArrayList<>()).add(i);
+            }
+
+            if (app.getFilePattern() != null) {
+                filePatterns.add("(?:" + app.getFilePattern().pattern() + ")");
+            }
+
+            appsById.putIfAbsent(app.getAppId(), app);
+        }
+
+        appLists.forEach((entity, apps) -> appsByEntity.put(entity,
+                apps.stream().mapToInt(Integer::intValue).toArray()));
+
+        for (int version = 0; version < INDEXED_VERSIONS; version++) {
+            versionScores[version] = calculateVersionScores(version);
         }
 
-        return instance;
+        anyFilePattern = filePatterns.length() > 0 ? Pattern.compile(filePatterns.toString()) : null;
     }
 
     /**
@@ -85,31 +131,68 @@ public class SourceAppDB {
      * @return
      */
     public int find(String bspName, int bspVersion, Set<String> classNames) {
-        record SourceAppScore(
-                SourceApp app,
-                float score
-        ) {}
+        float[] scores = bspVersion >= 0 && bspVersion < INDEXED_VERSIONS
+                ? versionScores[bspVersion].clone()
+                : calculateVersionScores(bspVersion);
 
-        return appList.stream()
-                .map(app -> new SourceAppScore(app, calculateAppScore(app, bspName, bspVersion, classNames)))
-                .peek(appScore -> L.debug(String.format("App %s has score %f", appScore.app().getName(), appScore.score())))
-                .max(Comparator.comparing(SourceAppScore::score))
-                .filter(appScore -> appScore.score() >= 0)
-                .map(SourceAppScore::app)
-                .map(SourceApp::getAppId)
-                .orElse(SourceAppId.UNKNOWN);
+        // count matched entity classes, only apps with matches get points
+        int[] entityMatches = new int[appList.size()];
+        for (String className : classNames) {
+            int[] apps = appsByEntity.get(className);
+            if (apps != null) {
+                for (int app : apps) {
+                    entityMatches[app]++;
+                }
+            }
+        }
+
+        // the individual patterns are only checked if any of them matches
+        String name = bspName == null ? null : bspName.toLowerCase(Locale.ROOT);
+        boolean anyNameMatch = name != null
+                && anyFilePattern != null
+                && anyFilePattern.matcher(name).find();
+
+        for (int i = 0; i < scores.length; i++) {
+            SourceApp app = appList.get(i);
+
+            if (entityMatches[i] > 0) {
+                scores[i] += entityMatches[i] / (float) app.getEntities().size() * app.getPointsEntities();
+            }
+
+            if (anyNameMatch && app.getFilePattern() != null && app.getFilePattern().matcher(name).find()) {
+                scores[i] += app.getPointsFilePattern();
+            }
+        }
+
+        // the first app with the highest score wins
+        int best = -1;
+        for (int i = 0; i < scores.length; i++) {
+            if (L.isDebugEnabled()) {
+                L.debug(String.format("App %s has score %f", appList.get(i).getName(), scores[i]));
+            }
+
+            if (best == -1 || scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+
+        if (best == -1 || scores[best] < 0) {
+            return SourceAppId.UNKNOWN;
+        }
+
+        return appList.get(best).getAppId();
     }
 
-    private float calculateAppScore(SourceApp app, String bspName, int bspVersion, Set<String> classNames) {
-        return (app.checkVersion(bspVersion).orElse(true) ? 0 : Float.NEGATIVE_INFINITY)
-                + (app.checkEntities(classNames).orElse(0f) * app.getPointsEntities())
-                + (app.checkName(bspName).orElse(false) ? app.getPointsFilePattern() : 0);
+    private float[] calculateVersionScores(int bspVersion) {
+        float[] scores = new float[appList.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = appList.get(i).checkVersion(bspVersion).orElse(true) ? 0 : Float.NEGATIVE_INFINITY;
+        }
+        return scores;
     }
 
     public Optional<String> getName(int appId) {
-        return appList.stream()
-                .filter(app -> app.getAppId() == appId)
-                .findAny()
+        return Optional.ofNullable(appsById.get(appId))
                 .map(SourceApp::getName);
     }
 
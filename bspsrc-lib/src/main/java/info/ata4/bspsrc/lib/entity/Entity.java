@@ -23,13 +23,24 @@ import java.util.Map.Entry;
  * KeyValue lists, one for normal, unique key-values and one for I/O that may
  * contain duplicates.
  *
+ * The unique key-values are stored compactly as parallel arrays of key ids
+ * and values in insertion order, with the key ids taken from a
+ * {@link EntityKeyDictionary} that is usually shared by all entities of a map.
+ *
  * @author Nico Bergemann <barracuda415 at yahoo.de>
  */
 public class Entity {
 
     private static final Logger L = LogManager.getLogger();
 
-    private Map<String, String> keyValue = new LinkedHashMap<>();
+    private static final int[] NO_IDS = new int[0];
+    private static final String[] NO_VALUES = new String[0];
+
+    private final EntityKeyDictionary keys;
+    private int[] keyIds = NO_IDS;
+    private String[] values = NO_VALUES;
+    private int size;
+
     private List<KeyValue> keyValueIO = new ArrayList<>();
     private String className;
 
@@ -39,6 +50,8 @@ public class Entity {
      * @param className entity class name, must not be null or empty
      */
     public Entity(String className) {
+        keys = new EntityKeyDictionary();
+
         if (className == null) {
             throw new NullPointerException();
         }
@@ -56,6 +69,22 @@ public class Entity {
      * @param kvList raw key-value list
      */
     public Entity(List<KeyValue> kvList) {
+        this(kvList, new EntityKeyDictionary());
+    }
+
+    /**
+     * Creates a new entity from a list of raw key-values, using a shared key
+     * dictionary.
+     *
+     * @param kvList raw key-value list
+     * @param keys dictionary for the keys of this entity
+     */
+    public Entity(List<KeyValue> kvList, EntityKeyDictionary keys) {
+        this.keys = Objects.requireNonNull(keys);
+
+        keyIds = new int[kvList.size()];
+        values = new String[kvList.size()];
+
         for (KeyValue kv : kvList) {
             String key = kv.getKey();
             String value = kv.getValue();
@@ -73,7 +102,7 @@ public class Entity {
             if (EntityIO.isEntityIO(kv)) {
                 keyValueIO.add(kv);
             } else {
-                keyValue.put(key, value);
+                setValue(key, value);
             }
         }
 
@@ -89,27 +118,107 @@ public class Entity {
     }
 
     public Set<String> getKeys() {
-        return keyValue.keySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new ValueIterator<>() {
+                    @Override
+                    String get(int i) {
+                        return keys.keyOf(keyIds[i]);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String key && hasKey(key);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public Collection<String> getValues() {
-        return keyValue.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new ValueIterator<>() {
+                    @Override
+                    String get(int i) {
+                        return values[i];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public Set<Entry<String, String>> getEntrySet() {
-        return keyValue.entrySet();
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new ValueIterator<>() {
+                    @Override
+                    Entry<String, String> get(int i) {
+                        return new EntityEntry(i);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public boolean hasKey(String key) {
-        return keyValue.containsKey(key);
+        return indexOf(keys.idOf(key)) >= 0;
     }
 
     public String getValue(String key) {
-        return keyValue.get(key);
+        return getValue(keys.idOf(key));
+    }
+
+    /**
+     * Returns the value for a key by its id, which is faster than looking up
+     * the key by name.
+     *
+     * @param keyId key id, for example {@link EntityKeyDictionary#ORIGIN}
+     * @return value of the key or {@code null} if the key is not set
+     */
+    public String getValue(int keyId) {
+        int i = indexOf(keyId);
+        return i < 0 ? null : values[i];
     }
 
     public void setValue(String key, Object value) {
-        keyValue.put(key, String.valueOf(value));
+        String str = String.valueOf(value);
+        int keyId = keys.add(key);
+
+        // replace existing value in place, like a LinkedHashMap
+        int i = indexOf(keyId);
+        if (i >= 0) {
+            values[i] = str;
+            return;
+        }
+
+        if (size == keyIds.length) {
+            int capacity = Math.max(4, 2 * size);
+            keyIds = Arrays.copyOf(keyIds, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        keyIds[size] = keyId;
+        values[size] = str;
+        size++;
     }
 
     public void setValue(KeyValue kv) {
@@ -117,11 +226,15 @@ public class Entity {
     }
 
     public void removeValue(String key) {
-        keyValue.remove(key);
+        int i = indexOf(keys.idOf(key));
+        if (i >= 0) {
+            removeAt(i);
+        }
     }
 
     public void clear() {
-        keyValue.clear();
+        Arrays.fill(values, 0, size, null);
+        size = 0;
         keyValueIO.clear();
     }
 
@@ -134,7 +247,7 @@ public class Entity {
     }
 
     public String getTargetName() {
-        return getValue("targetname");
+        return getValue(EntityKeyDictionary.TARGETNAME);
     }
 
     public void setTargetName(String value) {
@@ -142,8 +255,10 @@ public class Entity {
     }
 
     public Vector3f getVector3f(String key) {
-        String str = getValue(key);
+        return toVector3f(getValue(key));
+    }
 
+    private static Vector3f toVector3f(String str) {
         if (str == null) {
             return null;
         }
@@ -168,7 +283,7 @@ public class Entity {
     }
 
     public Vector3f getOrigin() {
-        return getVector3f("origin");
+        return toVector3f(getValue(EntityKeyDictionary.ORIGIN));
     }
 
     public void setOrigin(Vector3f origin) {
@@ -176,7 +291,7 @@ public class Entity {
     }
 
     public Vector3f getAngles() {
-        Vector3f a = getVector3f("angles");
+        Vector3f a = toVector3f(getValue(EntityKeyDictionary.ANGLES));
 
         if (a == null) {
             return null;
@@ -205,7 +320,7 @@ public class Entity {
      * assigned or -2 if this entity is a prop.
      */
     public int getModelNum() {
-        String model = getValue("model");
+        String model = getValue(EntityKeyDictionary.MODEL);
 
         if (model == null) {
             // no model
@@ -238,8 +353,9 @@ public class Entity {
     public void dump(PrintStream ps) {
         ps.println(getClassName() + ":");
 
-        for (String key : keyValue.keySet()) {
-            String value = keyValue.get(key);
+        for (int i = 0; i < size; i++) {
+            String key = keys.keyOf(keyIds[i]);
+            String value = values[i];
             if (key.equals("classname")) {
                 continue;
             }
@@ -264,4 +380,107 @@ public class Entity {
     public String toString() {
         return getClassName() + (getTargetName() == null ? "" : " (" + getTargetName() + ")");
     }
+
+    private int indexOf(int keyId) {
+        if (keyId < 0) {
+            return -1;
+        }
+
+        // entities have few keys, a linear search is fastest
+        for (int i = 0; i < size; i++) {
+            if (keyIds[i] == keyId) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void removeAt(int i) {
+        int moved = size - i - 1;
+        System.arraycopy(keyIds, i + 1, keyIds, i, moved);
+        System.arraycopy(values, i + 1, values, i, moved);
+        values[--size] = null;
+    }
+
+    /**
+     * Iterator over the key-values in insertion order that supports removal.
+     */
+    private abstract class ValueIterator<T> implements Iterator<T> {
+
+        private int next;
+        private int last = -1;
+
+        abstract T get(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    /**
+     * Key-value entry that writes value changes through to the entity.
+     */
+    private class EntityEntry implements Entry<String, String> {
+
+        private final int index;
+
+        private EntityEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return keys.keyOf(keyIds[index]);
+        }
+
+        @Override
+        public String getValue() {
+            return values[index];
+        }
+
+        @Override
+        public String setValue(String value) {
+            String old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Entry<?, ?> e
+                    && getKey().equals(e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
 }
@@ -0,0 +1,119 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.lib.entity;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Numbers the distinct keys of entities, so that entities can store their
+ * key-values as parallel arrays of key ids and values. Usually shared by all
+ * entities of a map.
+ *
+ * Frequently accessed keys have fixed ids, which are the same in every
+ * dictionary. Lookups are thread-safe.
+ */
+public class EntityKeyDictionary {
+
+    public static final int ORIGIN = 0;
+    public static final int ANGLES = 1;
+    public static final int MODEL = 2;
+    public static final int TARGETNAME = 3;
+
+    private static final String[] FIXED_KEYS = {"origin", "angles", "model", "targetname"};
+
+    // ids of all other keys, created on demand
+    private volatile Map<String, Integer> ids;
+    private volatile String[] keys = FIXED_KEYS;
+
+    /**
+     * @param key entity key
+     * @return id of the key, or -1 if the key isn't part of this dictionary
+     */
+    public int idOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+
+        int id = fixedIdOf(key);
+        if (id >= 0) {
+            return id;
+        }
+
+        Map<String, Integer> map = ids;
+        if (map == null) {
+            return -1;
+        }
+
+        Integer other = map.get(key);
+        return other == null ? -1 : other;
+    }
+
+    /**
+     * Returns the id of a key, adding it to the dictionary if necessary.
+     *
+     * @param key entity key
+     * @return id of the key
+     */
+    public int add(String key) {
+        int id = idOf(key);
+        return id >= 0 ? id : addSync(key);
+    }
+
+    private synchronized int addSync(String key) {
+        requireNonNull(key);
+
+        if (ids == null) {
+            ids = new ConcurrentHashMap<>();
+        }
+
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        // publish the key before its id
+        String[] newKeys = Arrays.copyOf(keys, keys.length + 1);
+        newKeys[keys.length] = key;
+        keys = newKeys;
+        ids.put(key, keys.length - 1);
+
+        return keys.length - 1;
+    }
+
+    /**
+     * @param id key id
+     * @return key with that id
+     */
+    public String keyOf(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return amount of keys, including the fixed ones
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    private static int fixedIdOf(String key) {
+        return switch (key) {
+            case "origin" -> ORIGIN;
+            case "angles" -> ANGLES;
+            case "model" -> MODEL;
+            case "targetname" -> TARGETNAME;
+            default -> -1;
+        };
+    }
+}
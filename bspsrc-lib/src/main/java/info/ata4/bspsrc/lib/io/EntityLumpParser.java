@@ -0,0 +1,326 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import info.ata4.bspsrc.lib.entity.EntityKeyDictionary;
+import info.ata4.bspsrc.lib.entity.KeyValue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Entity lump parser that works directly on the lump buffer. Produces the same
+ * entities as {@link EntityInputStream}, including its handling of escaped
+ * quotes and its recovery from syntax errors, but scans strings eight bytes at
+ * a time and shares the instances of repeated keys and class names. All
+ * entities of the lump share one {@link EntityKeyDictionary}.
+ *
+ * Entities are parsed on demand while iterating. The position of the buffer
+ * passed to the constructor is not changed.
+ */
+public class EntityLumpParser implements Iterator<Entity> {
+
+    private static final Logger L = LogManager.getLogger();
+
+    // longer strings are not interned
+    private static final int MAX_INTERN_LENGTH = 64;
+
+    private static final long QUOTES = 0x2222222222222222L;
+    private static final long BACKSLASHES = 0x5c5c5c5c5c5c5c5cL;
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+    private final ByteBuffer buf;
+    private final int start;
+    private final int limit;
+    private final boolean allowEsc;
+    private int pos;
+
+    private Entity next;
+    private boolean eof;
+
+    // reused for every entity, the entity copies the key-values
+    private final List<KeyValue> keyValues = new ArrayList<>();
+    private final EntityKeyDictionary keys = new EntityKeyDictionary();
+    private byte[] scratch = new byte[512];
+
+    // open addressing hash set of interned strings
+    private String[] interned = new String[256];
+    private int internedCount;
+
+    /**
+     * @param buffer entity lump data, read from its position to its limit
+     * @param allowEsc if {@code true}, quotes preceded by a backslash are
+     *                 part of the string, like in {@link EntityInputStream#setAllowEscSeq(boolean)}
+     */
+    public EntityLumpParser(ByteBuffer buffer, boolean allowEsc) {
+        // little endian, so the first byte of a word is the least significant
+        this.buf = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.start = buf.position();
+        this.limit = buf.limit();
+        this.allowEsc = allowEsc;
+        this.pos = start;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !eof) {
+            next = readEntity();
+            eof = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Entity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Entity entity = next;
+        next = null;
+        return entity;
+    }
+
+    private Entity readEntity() {
+        boolean section = false;
+        boolean esc = false;
+        String key = null;
+
+        keyValues.clear();
+
+        try {
+            while (pos < limit) {
+                switch (buf.get(pos++)) {
+                    case '"' -> {
+                        if (!section) {
+                            throw new ParseException("String in unopened section");
+                        }
+
+                        // ignore '"' if the previous character was '\'
+                        if (esc) {
+                            esc = false;
+                            continue;
+                        }
+
+                        int from = pos;
+                        int end = findStringEnd(from);
+                        if (end < 0) {
+                            // unterminated string, like an unterminated section
+                            pos = limit;
+                            return null;
+                        }
+                        pos = end + 1;
+
+                        if (key == null) {
+                            key = intern(from, end - from);
+                        } else {
+                            // class names repeat as often as keys
+                            String value = key.equals("classname")
+                                    ? intern(from, end - from)
+                                    : string(from, end - from);
+
+                            // ignore empty keys
+                            if (key.isEmpty()) {
+                                L.debug("Skipped value \"{}\" with empty key at {}", value, pos - start);
+                            } else {
+                                keyValues.add(new KeyValue(key, value));
+                            }
+
+                            key = null;
+                        }
+                    }
+
+                    case '{' -> {
+                        if (section) {
+                            throw new ParseException("Opened unclosed section");
+                        }
+                        section = true;
+                    }
+
+                    case '}' -> {
+                        if (!section) {
+                            throw new ParseException("Closed unopened section");
+                        }
+                        return new Entity(keyValues, keys);
+                    }
+
+                    case '\\' -> {
+                        if (allowEsc) {
+                            // ignore the next '"'
+                            esc = true;
+                        }
+                    }
+
+                    default -> {
+                        // whitespace and other characters outside strings
+                    }
+                }
+            }
+        } catch (ParseException ex) {
+            L.warn(String.format("%s at %d", ex.message, pos - start));
+
+            // skip rest of this section by reading until EOF or '}'
+            while (pos < limit && buf.get(pos++) != '}');
+
+            // return what we've got so far
+            return new Entity(keyValues, keys);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the index of the quote that terminates the string starting at
+     * the given index, or -1 if the string isn't terminated.
+     */
+    private int findStringEnd(int from) {
+        boolean esc = false;
+
+        for (int i = findSpecial(from); i < limit; i = findSpecial(i + 1)) {
+            if (buf.get(i) == '"') {
+                if (!esc) {
+                    return i;
+                }
+                esc = false;
+            } else {
+                esc = true;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the index of the next quote or, if escape sequences are allowed,
+     * backslash, or the limit if there is none.
+     */
+    private int findSpecial(int from) {
+        int i = from;
+
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buf.getLong(i);
+            long matches = matchBytes(word, QUOTES);
+            if (allowEsc) {
+                matches |= matchBytes(word, BACKSLASHES);
+            }
+            if (matches != 0) {
+                return i + (Long.numberOfTrailingZeros(matches) >>> 3);
+            }
+        }
+
+        for (; i < limit; i++) {
+            byte b = buf.get(i);
+            if (b == '"' || (allowEsc && b == '\\')) {
+                return i;
+            }
+        }
+
+        return limit;
+    }
+
+    /**
+     * Returns a word with the highest bit set in every byte of the given word
+     * that equals the corresponding byte of the pattern.
+     */
+    private static long matchBytes(long word, long pattern) {
+        long x = word ^ pattern;
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    private String string(int from, int length) {
+        if (buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + from, length, ISO_8859_1);
+        }
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        buf.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, ISO_8859_1);
+    }
+
+    private String intern(int from, int length) {
+        if (length > MAX_INTERN_LENGTH) {
+            return string(from, length);
+        }
+
+        // same as String.hashCode() for Latin-1 strings
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + (buf.get(from + i) & 0xff);
+        }
+
+        int mask = interned.length - 1;
+        int slot = hash & mask;
+        for (String s = interned[slot]; s != null; s = interned[slot]) {
+            if (s.hashCode() == hash && equals(s, from, length)) {
+                return s;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String s = string(from, length);
+        interned[slot] = s;
+
+        if (++internedCount > interned.length / 2) {
+            rehash();
+        }
+
+        return s;
+    }
+
+    private boolean equals(String s, int from, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != (char) (buf.get(from + i) & 0xff)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = interned;
+        interned = new String[2 * old.length];
+
+        int mask = interned.length - 1;
+        for (String s : old) {
+            if (s != null) {
+                int slot = s.hashCode() & mask;
+                while (interned[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                interned[slot] = s;
+            }
+        }
+    }
+
+    private static class ParseException extends Exception {
+        private final String message;
+
+        public ParseException(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.struct.DStruct;
+import info.ata4.io.DataReader;
+import info.ata4.io.DataReaders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Read-only list of {@link DStruct}s that are decoded on demand from a lump buffer,
+ * instead of reading all of them up front.
+ * <p>
+ * Each element is located at {@code index * getSize()} in the buffer. Decoded elements can
+ * optionally be cached:
+ * <ul>
+ *     <li>{@link #CACHE_ALL} keeps every decoded element, so repeated calls to {@link #get(int)}
+ *     return the same instance. This is required when the elements are used as map keys or
+ *     compared by identity.</li>
+ *     <li>{@code 0} disables caching, every call decodes a new instance.</li>
+ *     <li>any other positive value keeps up to that many recently used elements.</li>
+ * </ul>
+ *
+ * @param <T> the {@link DStruct} type
+ */
+public class LazyDStructList<T extends DStruct> extends AbstractList<T> implements RandomAccess {
+
+	public static final int CACHE_ALL = -1;
+
+	private final ByteBuffer buffer;
+	private final Supplier<? extends T> dStructSupplier;
+	private final int structSize;
+	private final int size;
+
+	// used with CACHE_ALL
+	private final AtomicReferenceArray<T> cache;
+	// used with a bounded cache size
+	private final Map<Integer, T> lruCache;
+
+	/**
+	 * @param buffer the lump buffer, its remaining bytes must be a multiple of the struct size
+	 * @param dStructSupplier supplier for empty {@link DStruct} instances
+	 * @param cacheSize {@link #CACHE_ALL}, {@code 0} or the maximum amount of cached elements
+	 *
+	 * @throws IOException if the buffer size isn't a multiple of the struct size
+	 */
+	public LazyDStructList(ByteBuffer buffer, Supplier<? extends T> dStructSupplier, int cacheSize)
+			throws IOException {
+
+		if (cacheSize < CACHE_ALL) {
+			throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+		}
+
+		this.dStructSupplier = requireNonNull(dStructSupplier);
+		this.structSize = dStructSupplier.get().getSize();
+		this.buffer = buffer.slice().order(buffer.order());
+
+		if (structSize <= 0 || this.buffer.remaining() % structSize != 0) {
+			throw new IOException(String.format(
+					"Lump size %d is not a multiple of struct size %d",
+					this.buffer.remaining(),
+					structSize
+			));
+		}
+
+		this.size = this.buffer.remaining() / structSize;
+		this.cache = cacheSize == CACHE_ALL ? new AtomicReferenceArray<>(size) : null;
+		this.lruCache = cacheSize > 0 ? new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+				return size() > cacheSize;
+			}
+		} : null;
+	}
+
+	@Override
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+
+		if (cache != null) {
+			T dStruct = cache.get(index);
+			if (dStruct == null) {
+				// another thread might have been faster, keep the first instance
+				T decoded = decode(index);
+				dStruct = cache.compareAndExchange(index, null, decoded);
+				if (dStruct == null) {
+					dStruct = decoded;
+				}
+			}
+			return dStruct;
+		}
+
+		if (lruCache != null) {
+			synchronized (lruCache) {
+				return lruCache.computeIfAbsent(index, this::decode);
+			}
+		}
+
+		return decode(index);
+	}
+
+	private T decode(int index) {
+		ByteBuffer slice = buffer.slice(index * structSize, structSize).order(buffer.order());
+		DataReader reader = DataReaders.forByteBuffer(slice);
+
+		try {
+			return DataReaderUtil.readDStruct(reader, dStructSupplier.get());
+		} catch (IOException e) {
+			throw new UncheckedIOException(String.format("Can't read struct %d", index), e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+}
@@ -65,9 +65,22 @@ public class LzmaUtil {
             L.warn("Difference in LZMA data length: found {} bytes, expected {}", lzmaSizeBuf, lzmaSize);
         }
 
+        if (actualSize < 0) {
+            throw new IOException("Invalid uncompressed size: " + actualSize);
+        }
+
         try (LZMAInputStream lzmaIn = new LZMAInputStream(new ByteBufferInputStream(bbc), actualSize, probByte, dictSize)) {
             lzmaIn.enableRelaxedEndCondition();
-            return ByteBuffer.wrap(lzmaIn.readAllBytes()).order(bo);
+
+            // decompress straight into a buffer of the final size
+            byte[] data = new byte[actualSize];
+            int read = lzmaIn.readNBytes(data, 0, actualSize);
+
+            if (read != actualSize) {
+                L.warn("Difference in uncompressed LZMA data length: found {} bytes, expected {}", read, actualSize);
+            }
+
+            return ByteBuffer.wrap(data, 0, read).slice().order(bo);
         }
     }
 
@@ -120,6 +133,18 @@ public class LzmaUtil {
         return bb.remaining() >= HEADER_SIZE && bb.getInt() == LZMA_ID;
     }
 
+    /**
+     * @param buffer compressed buffer, see {@link #isCompressed(ByteBuffer)}
+     * @return uncompressed size stored in the header
+     */
+    public static int getUncompressedSize(ByteBuffer buffer) {
+        ByteBuffer bb = buffer.duplicate();
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+
+        // stored right behind LZMA_ID
+        return bb.getInt(4);
+    }
+
     public static LZMAInputStream fromZipEntry(InputStream rawInputStream, long uncompressedSize) throws IOException {
         // Lzma compressed zip is not supported by common-compress, so we do it manually
         // View https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT for specifications
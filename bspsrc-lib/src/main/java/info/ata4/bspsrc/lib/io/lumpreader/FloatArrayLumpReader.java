@@ -0,0 +1,21 @@
+package info.ata4.bspsrc.lib.io.lumpreader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lump reader for lumps consisting of floats only, read into a flat array
+ */
+public class FloatArrayLumpReader implements LumpReader<float[]> {
+
+	@Override
+	public float[] read(ByteBuffer buffer) {
+		float[] values = new float[buffer.remaining() / Float.BYTES];
+		buffer.asFloatBuffer().get(values);
+		return values;
+	}
+
+	@Override
+	public float[] defaultData() {
+		return new float[0];
+	}
+}
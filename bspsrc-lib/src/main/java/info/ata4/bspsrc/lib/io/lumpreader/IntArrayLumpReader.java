@@ -0,0 +1,40 @@
+package info.ata4.bspsrc.lib.io.lumpreader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lump reader for lumps consisting of integers or unsigned shorts only, read
+ * into a flat int array
+ */
+public class IntArrayLumpReader implements LumpReader<int[]> {
+
+	private final boolean unsignedShorts;
+
+	/**
+	 * @param unsignedShorts {@code true} if the lump contains unsigned shorts
+	 *                       instead of integers
+	 */
+	public IntArrayLumpReader(boolean unsignedShorts) {
+		this.unsignedShorts = unsignedShorts;
+	}
+
+	@Override
+	public int[] read(ByteBuffer buffer) {
+		if (!unsignedShorts) {
+			int[] values = new int[buffer.remaining() / Integer.BYTES];
+			buffer.asIntBuffer().get(values);
+			return values;
+		}
+
+		int[] values = new int[buffer.remaining() / Short.BYTES];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Short.toUnsignedInt(buffer.getShort());
+		}
+		return values;
+	}
+
+	@Override
+	public int[] defaultData() {
+		return new int[0];
+	}
+}
@@ -0,0 +1,43 @@
+package info.ata4.bspsrc.lib.io.lumpreader;
+
+import info.ata4.bspsrc.lib.io.LazyDStructList;
+import info.ata4.bspsrc.lib.struct.DStruct;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lump reader for lumps consisting of {@link DStruct}s, that returns a {@link LazyDStructList}
+ * decoding the structs on access instead of reading all of them at once.
+ *
+ * @param <T> the {@link DStruct} type
+ */
+public class LazyDStructLumpReader<T extends DStruct> implements LumpReader<List<T>> {
+
+	private final Supplier<? extends T> dStructSupplier;
+	private final int cacheSize;
+
+	/**
+	 * @param dStructSupplier supplier for empty {@link DStruct} instances
+	 * @param cacheSize see {@link LazyDStructList#LazyDStructList(ByteBuffer, Supplier, int)}
+	 */
+	public LazyDStructLumpReader(Supplier<? extends T> dStructSupplier, int cacheSize) {
+		this.dStructSupplier = requireNonNull(dStructSupplier);
+		this.cacheSize = cacheSize;
+	}
+
+	@Override
+	public List<T> read(ByteBuffer buffer) throws IOException {
+		return new LazyDStructList<>(buffer, dStructSupplier, cacheSize);
+	}
+
+	@Override
+	public List<T> defaultData() {
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,43 @@
+package info.ata4.bspsrc.lib.io.lumpreader;
+
+import info.ata4.bspsrc.lib.lump.LumpType;
+import info.ata4.bspsrc.lib.struct.DPlane;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lump reader for {@link LumpType#LUMP_PLANES}, reading the {@link DPlane}
+ * fields into flat arrays
+ */
+public class PlaneArrayLumpReader implements LumpReader<PlaneArrayLumpReader.PlaneData> {
+
+	private static final int PLANE_SIZE = 20;
+
+	@Override
+	public PlaneData read(ByteBuffer buffer) {
+		int numPlanes = buffer.remaining() / PLANE_SIZE;
+		float[] planes = new float[numPlanes * 4];
+		int[] types = new int[numPlanes];
+
+		for (int i = 0; i < numPlanes; i++) {
+			planes[i * 4] = buffer.getFloat();
+			planes[i * 4 + 1] = buffer.getFloat();
+			planes[i * 4 + 2] = buffer.getFloat();
+			planes[i * 4 + 3] = buffer.getFloat();
+			types[i] = buffer.getInt();
+		}
+
+		return new PlaneData(planes, types);
+	}
+
+	@Override
+	public PlaneData defaultData() {
+		return new PlaneData(new float[0], new int[0]);
+	}
+
+	/**
+	 * @param planes normal x, y, z and distance per plane
+	 * @param types type per plane
+	 */
+	public record PlaneData(float[] planes, int[] types) {}
+}
@@ -30,11 +30,21 @@ public abstract class AbstractLump {
 
     private static final Logger L = LogManager.getLogger();
 
-    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private volatile ByteBuffer buffer = ByteBuffer.allocate(0);
     private int offset;
     private int version = 0;
     private int fourCC = 0;
-    private boolean compressed = false;
+    private volatile boolean compressed = false;
+
+    // size of the data once uncompressed, taken from the LZMA header
+    private volatile int uncompressedLength;
+
+    // uncompressed data of a compressed lump, kept after the first access
+    private ByteBuffer uncompressedBuffer;
+
+    // true once the uncompressed data was handed out for writing, so it
+    // can't be released anymore
+    private boolean uncompressedModified;
 
     public int getOffset() {
         return offset;
@@ -51,34 +61,78 @@ public abstract class AbstractLump {
      * @return lump length
      */
     public int getLength() {
+        return compressed ? uncompressedLength : buffer.limit();
+    }
+
+    /**
+     * Returns the number of bytes of this lump as it is currently stored,
+     * which is the size of the compressed data if the lump is compressed.
+     *
+     * @return stored lump length
+     */
+    public int getRawLength() {
         return buffer.limit();
     }
 
     /**
      * Returns a view of the buffer for this lump.
      * Changes to it are reflected in the lumps buffer.
+     * <p>
+     * If the lump is compressed, it is uncompressed on the first access and
+     * the result is kept until {@link #releaseUncompressed()} is called.
+     * Changes to the uncompressed data aren't written back to the
+     * compressed data, and changes made through this view are lost on
+     * release. Use {@link #getOutputStream()} to change a compressed lump.
      * 
      * @return byte buffer of this lump
      */
     public ByteBuffer getBuffer() {
-        return buffer.duplicate().order(buffer.order());
+        ByteBuffer bb = compressed ? uncompressOnAccess() : buffer;
+        return bb.duplicate().order(bb.order());
+    }
+
+    /**
+     * Returns a view of the buffer for this lump as it is currently stored,
+     * which is the compressed data if the lump is compressed.
+     *
+     * @return byte buffer of this lump
+     */
+    public ByteBuffer getRawBuffer() {
+        ByteBuffer bb = buffer;
+        return bb.duplicate().order(bb.order());
     }
 
     /**
      * Set data is the data between current position of this buffer and its limit
      * @param buf
      */
-    public void setBuffer(ByteBuffer buf) {
+    public synchronized void setBuffer(ByteBuffer buf) {
         buffer = buf.duplicate().order(buf.order());
-        setCompressed(LzmaUtil.isCompressed(buffer));
+        uncompressedBuffer = null;
+        uncompressedModified = false;
+
+        boolean lzma = LzmaUtil.isCompressed(buffer);
+        uncompressedLength = lzma ? LzmaUtil.getUncompressedSize(buffer) : buffer.limit();
+        setCompressed(lzma);
     }
 
     public InputStream getInputStream() {
         return new ByteBufferInputStream(getBuffer());
     }
 
-    public OutputStream getOutputStream() {
-        return new ByteBufferOutputStream(getBuffer());
+    /**
+     * Returns a stream that writes into the buffer of this lump. If the lump
+     * is compressed, it writes into the uncompressed data, which is then kept
+     * and no longer released by {@link #releaseUncompressed()}.
+     *
+     * @return output stream for this lump
+     */
+    public synchronized OutputStream getOutputStream() {
+        ByteBuffer bb = getBuffer();
+        if (uncompressedBuffer != null) {
+            uncompressedModified = true;
+        }
+        return new ByteBufferOutputStream(bb);
     }
 
     public void setVersion(int vers) {
@@ -97,16 +151,21 @@ public abstract class AbstractLump {
         this.fourCC = fourCC;
     }
 
+    /**
+     * @return true if the lump is stored compressed, regardless of whether
+     *         its uncompressed data is currently kept
+     */
     public boolean isCompressed() {
         return compressed;
     }
 
-    public void compress() {
+    public synchronized void compress() {
         if (compressed) {
             return;
         }
 
         try {
+            uncompressedLength = buffer.limit();
             buffer = LzmaUtil.compress(buffer);
         } catch (IOException ex) {
             L.error("Couldn't compress lump " + this, ex);
@@ -115,20 +174,61 @@ public abstract class AbstractLump {
         setCompressed(true);
     }
 
-    public void uncompress() {
+    public synchronized void uncompress() {
         if (!compressed) {
             return;
         }
 
-        try {
-            buffer = LzmaUtil.uncompress(buffer);
-        } catch (IOException ex) {
-            L.error("Couldn't uncompress lump " + this, ex);
-        }
+        buffer = uncompressOnAccess();
+        uncompressedBuffer = null;
+        uncompressedModified = false;
+        uncompressedLength = buffer.limit();
 
         setCompressed(false);
     }
 
+    /**
+     * @return uncompressed data of this lump, which is decoded on the first
+     *         call only
+     */
+    private synchronized ByteBuffer uncompressOnAccess() {
+        if (!compressed) {
+            return buffer;
+        }
+
+        if (uncompressedBuffer == null) {
+            try {
+                uncompressedBuffer = LzmaUtil.uncompress(buffer);
+            } catch (IOException ex) {
+                L.error("Couldn't uncompress lump " + this, ex);
+
+                // fall back to the stored data
+                return buffer;
+            }
+        }
+
+        return uncompressedBuffer;
+    }
+
+    /**
+     * Releases the uncompressed data of a compressed lump that was
+     * uncompressed by {@link #getBuffer()}, so it can be garbage collected
+     * once all views of it are gone. The lump is uncompressed again on the
+     * next access. Uncompressed data that was written to through
+     * {@link #getOutputStream()} is kept, any other changes are lost.
+     *
+     * @return true if uncompressed data was released
+     */
+    public synchronized boolean releaseUncompressed() {
+        if (uncompressedBuffer == null || uncompressedModified) {
+            return false;
+        }
+
+        uncompressedBuffer = null;
+
+        return true;
+    }
+
     protected void setCompressed(boolean compressed) {
         this.compressed = compressed;
     }
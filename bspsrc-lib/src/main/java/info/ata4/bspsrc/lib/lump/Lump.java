@@ -60,6 +60,6 @@ public class Lump extends AbstractLump {
     @Override
     public void setCompressed(boolean compressed) {
         super.setCompressed(compressed);
-        setFourCC(compressed ? getLength() : 0);
+        setFourCC(compressed ? getRawLength() : 0);
     }
 }
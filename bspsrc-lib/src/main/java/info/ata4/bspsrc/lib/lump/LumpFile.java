@@ -109,23 +109,23 @@ public class LumpFile {
 
         L.debug("Saving lump header to {}", file.getFileName());
 
-        int size = HEADER_SIZE + lump.getLength();
+        int size = HEADER_SIZE + lump.getRawLength();
 
         ByteBuffer bb = ByteBufferUtils.openReadWrite(file, 0, size);
 
-        bb.order(lump.getBuffer().order());
+        bb.order(lump.getRawBuffer().order());
 
         // header
         bb.putInt(HEADER_SIZE);
         bb.putInt(lump.getIndex());
         bb.putInt(lump.getVersion());
-        bb.putInt(lump.getLength());
+        bb.putInt(lump.getRawLength());
         bb.putInt(mapRev);
 
         L.debug("Saving lump data to {}", file.getFileName());
 
         // lump data
-        bb.put(lump.getBuffer());
+        bb.put(lump.getRawBuffer());
     }
 
     public Lump getLump() {
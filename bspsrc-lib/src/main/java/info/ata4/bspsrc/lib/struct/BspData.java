@@ -65,4 +65,8 @@ public class BspData {
     public List<String> texnames;
     public Set<LevelFlag> mapFlags;
 
+    // index-based access to the geometry lumps, replaced with a
+    // ColumnarGeometry when reading them as primitive arrays
+    public BspGeometry geometry = new ListGeometry(this);
+
 }
@@ -0,0 +1,75 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.lib.struct;
+
+/**
+ * Index-based access to the vertex, plane, edge, surface edge, leaf face and
+ * leaf brush lumps, without going through their struct objects.
+ *
+ * Which implementation is used depends on how the lumps were read, see
+ * {@link ColumnarGeometry}. All methods expect the corresponding lump to be
+ * loaded.
+ */
+public interface BspGeometry {
+
+    int numVerts();
+
+    float vertX(int ivert);
+
+    float vertY(int ivert);
+
+    float vertZ(int ivert);
+
+    int numPlanes();
+
+    float planeNormalX(int iplane);
+
+    float planeNormalY(int iplane);
+
+    float planeNormalZ(int iplane);
+
+    float planeDist(int iplane);
+
+    int numEdges();
+
+    /**
+     * Returns a vertex index of an edge.
+     *
+     * @param iedge edge index
+     * @param end 0 for the start vertex, 1 for the end vertex
+     * @return vertex index
+     */
+    int edgeVert(int iedge, int end);
+
+    int numSurfEdges();
+
+    int surfEdge(int isurfedge);
+
+    /**
+     * Returns the first vertex of a surface edge in the winding order of
+     * its face, taking backwards wound edges into account.
+     *
+     * @param isurfedge surface edge index
+     * @return vertex index
+     */
+    default int surfEdgeVert(int isurfedge) {
+        int sedge = surfEdge(isurfedge);
+        return sedge < 0 ? edgeVert(-sedge, 1) : edgeVert(sedge, 0);
+    }
+
+    int numLeafFaces();
+
+    int leafFace(int ileafface);
+
+    int numLeafBrushes();
+
+    int leafBrush(int ileafbrush);
+}
@@ -51,4 +51,50 @@ public class Color32 {
         a = (value >> 24) & 0xFF;
         rgba = value;
     }
+
+    /**
+     * Creates an opaque color from the HSB color model, with the same result as
+     * {@code java.awt.Color.getHSBColor}.
+     *
+     * @param hue hue, the fractional part is used
+     * @param saturation saturation, 0-1
+     * @param brightness brightness, 0-1
+     * @return new color
+     */
+    public static Color32 fromHSB(float hue, float saturation, float brightness) {
+        if (saturation == 0) {
+            int v = component(brightness);
+            return new Color32(v, v, v, 0xFF);
+        }
+
+        float h = (hue - (float) Math.floor(hue)) * 6.0f;
+        float f = h - (float) Math.floor(h);
+        float p = brightness * (1.0f - saturation);
+        float q = brightness * (1.0f - saturation * f);
+        float t = brightness * (1.0f - (saturation * (1.0f - f)));
+
+        return switch ((int) h) {
+            case 0 -> new Color32(component(brightness), component(t), component(p), 0xFF);
+            case 1 -> new Color32(component(q), component(brightness), component(p), 0xFF);
+            case 2 -> new Color32(component(p), component(brightness), component(t), 0xFF);
+            case 3 -> new Color32(component(p), component(q), component(brightness), 0xFF);
+            case 4 -> new Color32(component(t), component(p), component(brightness), 0xFF);
+            case 5 -> new Color32(component(brightness), component(p), component(q), 0xFF);
+            default -> new Color32(0, 0, 0, 0xFF);
+        };
+    }
+
+    private static int component(float value) {
+        return (int) (value * 255.0f + 0.5f);
+    }
+
+    /**
+     * Returns a darker version of this color, with the same result as
+     * {@code java.awt.Color.darker}.
+     *
+     * @return new color
+     */
+    public Color32 darker() {
+        return new Color32((int) (r * 0.7), (int) (g * 0.7), (int) (b * 0.7), a);
+    }
 }
@@ -0,0 +1,203 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.lib.struct;
+
+import info.ata4.bspsrc.lib.vector.Vector3f;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+/**
+ * {@link BspGeometry} stored in flat primitive arrays, one entry per struct
+ * field, instead of one object per vertex, plane, edge or index.
+ *
+ * The struct lists in {@link BspData} are replaced by read-only views that
+ * create a new struct object on every access, so code that still needs them
+ * keeps working, but shouldn't rely on object identity or modify them.
+ *
+ * Like {@link BspData}, the arrays are public and unchecked on purpose.
+ */
+public class ColumnarGeometry implements BspGeometry {
+
+    private static final float[] NO_FLOATS = new float[0];
+    private static final int[] NO_INTS = new int[0];
+
+    // x, y, z per vertex
+    public float[] verts = NO_FLOATS;
+
+    // normal x, y, z and distance per plane
+    public float[] planes = NO_FLOATS;
+    public int[] planeTypes = NO_INTS;
+
+    // start and end vertex per edge
+    public int[] edges = NO_INTS;
+
+    public int[] surfEdges = NO_INTS;
+    public int[] leafFaces = NO_INTS;
+    public int[] leafBrushes = NO_INTS;
+
+    @Override
+    public int numVerts() {
+        return verts.length / 3;
+    }
+
+    @Override
+    public float vertX(int ivert) {
+        return verts[ivert * 3];
+    }
+
+    @Override
+    public float vertY(int ivert) {
+        return verts[ivert * 3 + 1];
+    }
+
+    @Override
+    public float vertZ(int ivert) {
+        return verts[ivert * 3 + 2];
+    }
+
+    @Override
+    public int numPlanes() {
+        return planeTypes.length;
+    }
+
+    @Override
+    public float planeNormalX(int iplane) {
+        return planes[iplane * 4];
+    }
+
+    @Override
+    public float planeNormalY(int iplane) {
+        return planes[iplane * 4 + 1];
+    }
+
+    @Override
+    public float planeNormalZ(int iplane) {
+        return planes[iplane * 4 + 2];
+    }
+
+    @Override
+    public float planeDist(int iplane) {
+        return planes[iplane * 4 + 3];
+    }
+
+    @Override
+    public int numEdges() {
+        return edges.length / 2;
+    }
+
+    @Override
+    public int edgeVert(int iedge, int end) {
+        return edges[iedge * 2 + end];
+    }
+
+    @Override
+    public int numSurfEdges() {
+        return surfEdges.length;
+    }
+
+    @Override
+    public int surfEdge(int isurfedge) {
+        return surfEdges[isurfedge];
+    }
+
+    @Override
+    public int numLeafFaces() {
+        return leafFaces.length;
+    }
+
+    @Override
+    public int leafFace(int ileafface) {
+        return leafFaces[ileafface];
+    }
+
+    @Override
+    public int numLeafBrushes() {
+        return leafBrushes.length;
+    }
+
+    @Override
+    public int leafBrush(int ileafbrush) {
+        return leafBrushes[ileafbrush];
+    }
+
+    public List<DVertex> vertList() {
+        return new View<>(this::numVerts, ivert -> {
+            DVertex vert = new DVertex();
+            vert.point = new Vector3f(vertX(ivert), vertY(ivert), vertZ(ivert));
+            return vert;
+        });
+    }
+
+    public List<DPlane> planeList() {
+        return new View<>(this::numPlanes, iplane -> {
+            DPlane plane = new DPlane();
+            plane.normal = new Vector3f(planeNormalX(iplane), planeNormalY(iplane), planeNormalZ(iplane));
+            plane.dist = planeDist(iplane);
+            plane.type = planeTypes[iplane];
+            return plane;
+        });
+    }
+
+    public List<DEdge> edgeList() {
+        return new View<>(this::numEdges, iedge -> {
+            DEdge edge = new DEdge();
+            edge.v[0] = edgeVert(iedge, 0);
+            edge.v[1] = edgeVert(iedge, 1);
+            return edge;
+        });
+    }
+
+    public List<Integer> surfEdgeList() {
+        return new View<>(this::numSurfEdges, this::surfEdge);
+    }
+
+    public List<Integer> leafFaceList() {
+        return new View<>(this::numLeafFaces, this::leafFace);
+    }
+
+    public List<Integer> leafBrushList() {
+        return new View<>(this::numLeafBrushes, this::leafBrush);
+    }
+
+    /**
+     * Read-only list that creates its elements on demand. The size is
+     * re-evaluated on each call, since arrays may be replaced when lumps are
+     * loaded.
+     */
+    private static class View<T> extends AbstractList<T> implements RandomAccess {
+
+        private final IntSupplier size;
+        private final IntFunction<T> element;
+
+        private View(IntSupplier size, IntFunction<T> element) {
+            this.size = size;
+            this.element = element;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            return element.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size.getAsInt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+** 2026 October 16
+**
+** The author disclaims copyright to this source code.  In place of
+** a legal notice, here is a blessing:
+**    May you do good and not evil.
+**    May you find forgiveness for yourself and forgive others.
+**    May you share freely, never taking more than you give.
+*/
+
+package info.ata4.bspsrc.lib.struct;
+
+/**
+ * {@link BspGeometry} on top of the struct lists of a {@link BspData}.
+ */
+class ListGeometry implements BspGeometry {
+
+    private final BspData bsp;
+
+    ListGeometry(BspData bsp) {
+        this.bsp = bsp;
+    }
+
+    @Override
+    public int numVerts() {
+        return bsp.verts.size();
+    }
+
+    @Override
+    public float vertX(int ivert) {
+        return bsp.verts.get(ivert).point.x();
+    }
+
+    @Override
+    public float vertY(int ivert) {
+        return bsp.verts.get(ivert).point.y();
+    }
+
+    @Override
+    public float vertZ(int ivert) {
+        return bsp.verts.get(ivert).point.z();
+    }
+
+    @Override
+    public int numPlanes() {
+        return bsp.planes.size();
+    }
+
+    @Override
+    public float planeNormalX(int iplane) {
+        return bsp.planes.get(iplane).normal.x();
+    }
+
+    @Override
+    public float planeNormalY(int iplane) {
+        return bsp.planes.get(iplane).normal.y();
+    }
+
+    @Override
+    public float planeNormalZ(int iplane) {
+        return bsp.planes.get(iplane).normal.z();
+    }
+
+    @Override
+    public float planeDist(int iplane) {
+        return bsp.planes.get(iplane).dist;
+    }
+
+    @Override
+    public int numEdges() {
+        return bsp.edges.size();
+    }
+
+    @Override
+    public int edgeVert(int iedge, int end) {
+        return bsp.edges.get(iedge).v[end];
+    }
+
+    @Override
+    public int numSurfEdges() {
+        return bsp.surfEdges.size();
+    }
+
+    @Override
+    public int surfEdge(int isurfedge) {
+        return bsp.surfEdges.get(isurfedge);
+    }
+
+    @Override
+    public int numLeafFaces() {
+        return bsp.leafFaces.size();
+    }
+
+    @Override
+    public int leafFace(int ileafface) {
+        return bsp.leafFaces.get(ileafface);
+    }
+
+    @Override
+    public int numLeafBrushes() {
+        return bsp.leafBrushes.size();
+    }
+
+    @Override
+    public int leafBrush(int ileafbrush) {
+        return bsp.leafBrushes.get(ileafbrush);
+    }
+}
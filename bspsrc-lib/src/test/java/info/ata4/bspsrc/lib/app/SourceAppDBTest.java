@@ -0,0 +1,56 @@
+package info.ata4.bspsrc.lib.app;
+
+import info.ata4.bspsrc.lib.app.definitions.TeamFortress2Def;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SourceAppDB Test")
+class SourceAppDBTest {
+
+	@Test
+	@DisplayName("Detects apps by their entities and file name")
+	void find() {
+		var db = SourceAppDB.getInstance();
+		Set<String> classNames = new HashSet<>(TeamFortress2Def.APP.getEntities());
+		classNames.add("worldspawn");
+
+		assertEquals(SourceAppId.TEAM_FORTRESS_2, db.find("cp_test", 20, classNames));
+		assertEquals(SourceAppId.TEAM_FORTRESS_2, db.find("CP_TEST", 20, Set.of("func_respawnroom")));
+	}
+
+	@Test
+	@DisplayName("Rejects apps with other BSP versions")
+	void findVersion() {
+		var db = SourceAppDB.getInstance();
+		Set<String> classNames = TeamFortress2Def.APP.getEntities();
+
+		assertNotEquals(SourceAppId.TEAM_FORTRESS_2, db.find("cp_test", 21, classNames));
+		assertNotEquals(SourceAppId.TEAM_FORTRESS_2, db.find("cp_test", 1000, classNames));
+	}
+
+	@Test
+	@DisplayName("Looks up names by app id")
+	void getName() {
+		var db = SourceAppDB.getInstance();
+
+		assertEquals(Optional.of("Team Fortress 2"), db.getName(SourceAppId.TEAM_FORTRESS_2));
+		assertEquals(Optional.empty(), db.getName(-12345));
+	}
+
+	@Test
+	@DisplayName("Creates a single instance")
+	void getInstance() {
+		Set<SourceAppDB> instances = ConcurrentHashMap.newKeySet();
+		IntStream.range(0, 100).parallel().forEach(i -> instances.add(SourceAppDB.getInstance()));
+
+		assertEquals(1, instances.size());
+	}
+}
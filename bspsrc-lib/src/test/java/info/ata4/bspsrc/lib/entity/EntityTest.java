@@ -0,0 +1,86 @@
+package info.ata4.bspsrc.lib.entity;
+
+import info.ata4.bspsrc.lib.vector.Vector3f;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Entity Test")
+class EntityTest {
+
+	private static Entity entity(EntityKeyDictionary keys, String... kvs) {
+		List<KeyValue> kvList = new ArrayList<>();
+		for (int i = 0; i < kvs.length; i += 2) {
+			kvList.add(new KeyValue(kvs[i], kvs[i + 1]));
+		}
+		return new Entity(kvList, keys);
+	}
+
+	@Test
+	@DisplayName("Keeps key-values in insertion order")
+	void insertionOrder() {
+		Entity ent = entity(new EntityKeyDictionary(),
+				"origin", "1 2 3",
+				"classname", "info_target",
+				"spawnflags", "1",
+				"origin", "4 5 6",
+				"OnUser1", "a,b,,0,-1");
+
+		assertEquals("info_target", ent.getClassName());
+		assertEquals(List.of("origin", "spawnflags"), List.copyOf(ent.getKeys()));
+		assertEquals(List.of("4 5 6", "1"), List.copyOf(ent.getValues()));
+		assertEquals(new Vector3f(4, 5, 6), ent.getOrigin());
+		assertEquals(1, ent.getIO().size());
+		assertNull(ent.getValue("classname"));
+
+		ent.setValue("targetname", "t");
+		ent.setValue("origin", "0 0 0");
+		assertEquals(List.of(
+				Map.entry("origin", "0 0 0"),
+				Map.entry("spawnflags", "1"),
+				Map.entry("targetname", "t")
+		), List.copyOf(ent.getEntrySet()));
+		assertEquals("t", ent.getValue(EntityKeyDictionary.TARGETNAME));
+	}
+
+	@Test
+	@DisplayName("Removes and updates through views")
+	void views() {
+		Entity ent = entity(new EntityKeyDictionary(), "classname", "light", "a", "1", "b", "2", "c", "3");
+
+		Iterator<String> it = ent.getKeys().iterator();
+		it.next();
+		it.next();
+		it.remove();
+		assertEquals(List.of("a", "c"), List.copyOf(ent.getKeys()));
+		assertFalse(ent.hasKey("b"));
+
+		for (Map.Entry<String, String> kv : ent.getEntrySet()) {
+			kv.setValue(kv.getValue() + "!");
+		}
+		assertEquals("3!", ent.getValue("c"));
+
+		ent.removeValue("a");
+		assertEquals(List.of("c"), List.copyOf(ent.getKeys()));
+		assertTrue(ent.getKeys().contains("c"));
+	}
+
+	@Test
+	@DisplayName("Shares key dictionaries")
+	void sharedKeys() {
+		EntityKeyDictionary keys = new EntityKeyDictionary();
+		entity(keys, "classname", "a", "custom", "1");
+		entity(keys, "classname", "b", "custom", "2", "model", "*1");
+
+		assertEquals(EntityKeyDictionary.MODEL, keys.idOf("model"));
+		assertEquals("custom", keys.keyOf(keys.idOf("custom")));
+		assertEquals(-1, keys.idOf("missing"));
+		assertEquals(5, keys.size());
+	}
+}
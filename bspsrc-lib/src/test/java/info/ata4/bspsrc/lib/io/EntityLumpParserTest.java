@@ -0,0 +1,96 @@
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.entity.Entity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EntityLumpParser Test")
+class EntityLumpParserTest {
+
+	private static List<String> parse(byte[] data, boolean allowEsc) {
+		List<String> entities = new ArrayList<>();
+		new EntityLumpParser(ByteBuffer.wrap(data), allowEsc)
+				.forEachRemaining(ent -> entities.add(describe(ent)));
+		return entities;
+	}
+
+	private static List<String> parseStream(byte[] data, boolean allowEsc) throws IOException {
+		List<String> entities = new ArrayList<>();
+		try (EntityInputStream in = new EntityInputStream(new ByteArrayInputStream(data))) {
+			in.setAllowEscSeq(allowEsc);
+			for (Entity ent = in.readEntity(); ent != null; ent = in.readEntity()) {
+				entities.add(describe(ent));
+			}
+		}
+		return entities;
+	}
+
+	private static String describe(Entity ent) {
+		return ent.getClassName() + " " + ent.getEntrySet() + " " + ent.getIO();
+	}
+
+	@Test
+	@DisplayName("Parses entities")
+	void parses() {
+		byte[] data = """
+				{
+				"classname" "worldspawn"
+				"mapversion" "42"
+				}
+				{
+				"origin" "1 2 3"
+				"classname" "logic_relay"
+				"OnTrigger" "door,Open,,0,-1"
+				"" "ignored"
+				}
+				""".getBytes(StandardCharsets.ISO_8859_1);
+
+		assertEquals(List.of(
+				"worldspawn [mapversion=42] []",
+				"logic_relay [origin=1 2 3] [\"OnTrigger\" \"door,Open,,0,-1\"]"
+		), parse(data, false));
+	}
+
+	@Test
+	@DisplayName("Interns keys and class names")
+	void interns() {
+		byte[] data = "{\"classname\" \"light\" \"style\" \"1\"}{\"classname\" \"light\" \"style\" \"2\"}"
+				.getBytes(StandardCharsets.ISO_8859_1);
+
+		EntityLumpParser parser = new EntityLumpParser(ByteBuffer.wrap(data), false);
+		Entity a = parser.next();
+		Entity b = parser.next();
+
+		assertFalse(parser.hasNext());
+		assertSame(a.getClassName(), b.getClassName());
+		assertSame(a.getKeys().iterator().next(), b.getKeys().iterator().next());
+	}
+
+	@Test
+	@DisplayName("Matches EntityInputStream on malformed input")
+	void matchesStream() throws IOException {
+		String[] pieces = {"{", "}", "\"", "\\", "\\\"", " ", "\n", "classname", "key", "value", "\u00e9", "{\"a\" \"b\"}"};
+		Random rnd = new Random(7);
+
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int j = rnd.nextInt(60); j > 0; j--) {
+				sb.append(pieces[rnd.nextInt(pieces.length)]);
+			}
+			byte[] data = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+			assertEquals(parseStream(data, false), parse(data, false), sb.toString());
+			assertEquals(parseStream(data, true), parse(data, true), sb.toString());
+		}
+	}
+}
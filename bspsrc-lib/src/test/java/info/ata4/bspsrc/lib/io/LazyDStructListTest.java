@@ -0,0 +1,68 @@
+package info.ata4.bspsrc.lib.io;
+
+import info.ata4.bspsrc.lib.struct.DBrush;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LazyDStructList Test")
+class LazyDStructListTest {
+
+	private static ByteBuffer brushLump(int count) {
+		ByteBuffer bb = ByteBuffer.allocate(count * 12).order(ByteOrder.LITTLE_ENDIAN);
+		for (int i = 0; i < count; i++) {
+			bb.putInt(i * 6);
+			bb.putInt(6);
+			bb.putInt(1);
+		}
+		return bb.flip();
+	}
+
+	@Test
+	@DisplayName("Decodes structs at their offset")
+	void decodes() throws IOException {
+		List<DBrush> brushes = new LazyDStructList<>(brushLump(5), DBrush::new, 0);
+
+		assertEquals(5, brushes.size());
+		assertEquals(18, brushes.get(3).fstside);
+		assertEquals(6, brushes.get(3).numside);
+		assertTrue(brushes.get(4).isSolid());
+		assertThrows(IndexOutOfBoundsException.class, () -> brushes.get(5));
+	}
+
+	@Test
+	@DisplayName("Cache modes")
+	void caching() throws IOException {
+		List<DBrush> all = new LazyDStructList<>(brushLump(5), DBrush::new, LazyDStructList.CACHE_ALL);
+		assertSame(all.get(2), all.get(2));
+
+		List<DBrush> none = new LazyDStructList<>(brushLump(5), DBrush::new, 0);
+		assertNotSame(none.get(2), none.get(2));
+
+		List<DBrush> lru = new LazyDStructList<>(brushLump(5), DBrush::new, 1);
+		DBrush brush = lru.get(2);
+		assertSame(brush, lru.get(2));
+		lru.get(3);
+		assertNotSame(brush, lru.get(2));
+	}
+
+	@Test
+	@DisplayName("Rejects truncated lumps")
+	void truncated() {
+		ByteBuffer bb = brushLump(2).limit(20);
+		assertThrows(IOException.class, () -> new LazyDStructList<>(bb, DBrush::new, 0));
+	}
+
+	@Test
+	@DisplayName("Is read-only")
+	void readOnly() throws IOException {
+		List<DBrush> brushes = new LazyDStructList<>(brushLump(1), DBrush::new, 0);
+		assertThrows(UnsupportedOperationException.class, () -> brushes.add(new DBrush()));
+	}
+}
@@ -0,0 +1,124 @@
+package info.ata4.bspsrc.lib.lump;
+
+import info.ata4.bspsrc.lib.io.LzmaUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Lump Test")
+class LumpTest {
+
+	private static byte[] data(int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) (i % 7);
+		}
+		return data;
+	}
+
+	private static ByteBuffer compress(byte[] data) throws IOException {
+		var options = new LZMA2Options();
+		var lzma = new ByteArrayOutputStream();
+		int props;
+		try (var lzmaOut = new LZMAOutputStream(lzma, options, false)) {
+			lzmaOut.write(data);
+			lzmaOut.finish();
+			props = lzmaOut.getProps();
+		}
+
+		var bb = ByteBuffer.allocate(LzmaUtil.HEADER_SIZE + lzma.size()).order(ByteOrder.LITTLE_ENDIAN);
+		bb.putInt(LzmaUtil.LZMA_ID);
+		bb.putInt(data.length);
+		bb.putInt(lzma.size());
+		bb.put((byte) props);
+		bb.putInt(options.getDictSize());
+		bb.put(lzma.toByteArray());
+		return bb.flip();
+	}
+
+	private static Lump compressedLump(byte[] data) throws IOException {
+		var lump = new Lump(LumpType.LUMP_ENTITIES);
+		lump.setBuffer(compress(data));
+		return lump;
+	}
+
+	private static byte[] bytes(ByteBuffer bb) {
+		byte[] bytes = new byte[bb.remaining()];
+		bb.get(bytes);
+		return bytes;
+	}
+
+	@Test
+	@DisplayName("Uncompresses again after a release")
+	void release() throws IOException {
+		byte[] data = data(1000);
+		var lump = compressedLump(data);
+
+		assertTrue(lump.isCompressed());
+		assertEquals(data.length, lump.getLength());
+		assertTrue(lump.getRawLength() < data.length);
+
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+		assertTrue(lump.releaseUncompressed());
+		assertFalse(lump.releaseUncompressed());
+
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+		assertEquals(data.length, lump.getLength());
+		assertTrue(lump.isCompressed());
+	}
+
+	@Test
+	@DisplayName("Keeps written uncompressed data")
+	void writeAfterAccess() throws IOException {
+		byte[] data = data(1000);
+		var lump = compressedLump(data);
+
+		try (OutputStream out = lump.getOutputStream()) {
+			out.write(new byte[] {42, 43, 44});
+		}
+		data[0] = 42;
+		data[1] = 43;
+		data[2] = 44;
+
+		// the written data can't be released anymore
+		assertFalse(lump.releaseUncompressed());
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+
+		// and becomes the stored data once uncompressed
+		lump.uncompress();
+		assertFalse(lump.isCompressed());
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+	}
+
+	@Test
+	@DisplayName("Writes after a release go to newly uncompressed data")
+	void writeAfterRelease() throws IOException {
+		byte[] data = data(1000);
+		var lump = compressedLump(data);
+
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+		assertTrue(lump.releaseUncompressed());
+
+		try (OutputStream out = lump.getOutputStream()) {
+			out.write(new byte[] {42});
+		}
+		data[0] = 42;
+
+		assertFalse(lump.releaseUncompressed());
+		assertArrayEquals(data, bytes(lump.getBuffer()));
+
+		// setting new data starts over
+		lump.setBuffer(compress(data(10)));
+		assertArrayEquals(data(10), bytes(lump.getBuffer()));
+		assertTrue(lump.releaseUncompressed());
+	}
+}